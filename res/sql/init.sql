@@ -11,4 +11,5 @@ ADD JAR ${hiveconf:O2H_PATH}/OSM2Hive.jar;
 -- Create functions
 CREATE TEMPORARY FUNCTION OSMImportNodes AS 'info.pavie.osm2hive.controller.HiveNodeImporter';
 CREATE TEMPORARY FUNCTION OSMImportWays AS 'info.pavie.osm2hive.controller.HiveWayImporter';
-CREATE TEMPORARY FUNCTION OSMImportRelations AS 'info.pavie.osm2hive.controller.HiveRelationImporter';
\ No newline at end of file
+CREATE TEMPORARY FUNCTION OSMImportRelations AS 'info.pavie.osm2hive.controller.HiveRelationImporter';
+CREATE TEMPORARY FUNCTION OSMImportElements AS 'info.pavie.osm2hive.controller.HiveElementImporter';
\ No newline at end of file
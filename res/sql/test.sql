@@ -12,6 +12,7 @@ ADD JAR ${hiveconf:O2H_PATH}/OSM2Hive.jar;
 CREATE TEMPORARY FUNCTION OSMImportNodes AS 'info.pavie.osm2hive.controller.HiveNodeImporter';
 CREATE TEMPORARY FUNCTION OSMImportWays AS 'info.pavie.osm2hive.controller.HiveWayImporter';
 CREATE TEMPORARY FUNCTION OSMImportRelations AS 'info.pavie.osm2hive.controller.HiveRelationImporter';
+CREATE TEMPORARY FUNCTION OSMImportElements AS 'info.pavie.osm2hive.controller.HiveElementImporter';
 
 -- Load data
 DROP TABLE o2h_test;
@@ -33,4 +34,7 @@ SELECT * FROM o2h_test_ways;
 -- Relations, must contain 1 relation (R56688)
 DROP TABLE o2h_test_relations;
 CREATE TABLE o2h_test_relations AS SELECT OSMImportRelations(osm_content) FROM o2h_test;
-SELECT * FROM o2h_test_relations;
\ No newline at end of file
+SELECT * FROM o2h_test_relations;
+
+-- All elements in a single scan, must contain 4 nodes, 1 way and 1 relation
+SELECT e.Type, COUNT(*) FROM (SELECT OSMImportElements(osm_content) FROM o2h_test) e GROUP BY e.Type;
\ No newline at end of file
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs all project benchmarks (JMH), on the parse path: markups, parser and importers.
+ * Each benchmark operation handles a single line, so results are given in ns/line (average time mode)
+ * and in lines/s (throughput mode), with the allocation rate of the GC profiler (gc.alloc.rate.norm, in bytes per line).
+ * Results of both modes are written in a single JSON file, to be compared with the recorded baseline, res/bench/baseline.json
+ * (for example with JMH Visualizer, or by diffing the score of each benchmark).
+ * The baseline only covers {@code MarkupBenchmark} and {@code OSMParserBenchmark}, which don't depend on Hive.
+ * It was recorded with the benchmarks settings (1 fork, 5 iterations of 1 s), so only large differences are significant.
+ * {@code HiveImporterBenchmark} results depend on the Hive and Hadoop JARs of lib.dir: compare them with a run
+ * of the previous version using the same JARs (real hive-exec ones, not stubs).
+ * Benchmarks are compiled and run from project directory by the bench Ant target (see build.xml) :
+ * ant -Dlib.dir=/path/to/jars bench [-Dbench.results=results.json] [-Dbench.include=regex]
+ * @author Adrien PAVIE
+ */
+public class BenchmarkRunner {
+//CONSTANTS
+	/** Default file of results **/
+	public static final String RESULTS_FILE = "bench-results.json";
+	
+	/** Default file of read lines **/
+	public static final String DEFAULT_OSM_FILE = "res/xml/bleruais.osm";
+
+//OTHER METHODS
+	/**
+	 * Reads the lines of a benchmark file.
+	 * @param file The file path
+	 * @return The file lines
+	 * @throws IOException If the file can't be read
+	 */
+	public static String[] readLines(String file) throws IOException {
+		List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+		return lines.toArray(new String[lines.size()]);
+	}
+	
+	/**
+	 * Runs the benchmarks, and writes their results.
+	 * @param args The results file (optional), and a regular expression selecting benchmarks (optional)
+	 * @throws Exception If benchmarks can't be run
+	 */
+	public static void main(String[] args) throws Exception {
+		String resultsFile = (args.length > 0) ? args[0] : RESULTS_FILE;
+		String include = (args.length > 1) ? args[1] : "info\\.pavie\\.osm2hive\\..*Benchmark";
+		Collection<RunResult> results = new ArrayList<RunResult>();
+		
+		//Time per line, with allocations
+		results.addAll(new Runner(new OptionsBuilder()
+				.include(include)
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.NANOSECONDS)
+				.addProfiler(GCProfiler.class)
+				.build()).run());
+		
+		//Lines per second
+		results.addAll(new Runner(new OptionsBuilder()
+				.include(include)
+				.mode(Mode.Throughput)
+				.timeUnit(TimeUnit.SECONDS)
+				.build()).run());
+		
+		ResultFormatFactory.getInstance(ResultFormatType.JSON, resultsFile).writeOut(results);
+		System.out.println("Results written in "+resultsFile);
+	}
+}
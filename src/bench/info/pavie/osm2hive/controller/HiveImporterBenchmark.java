@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.BenchmarkRunner;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.Collector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of the node, way and relation importers, over the line stream of an OSM XML file (bleruais.osm by default).
+ * Each operation processes the next line, going back to the first line at file end. Forwarded rows are read
+ * by the collector through the rows object inspector, as Hive does, so lazily created columns are measured too.
+ * Lines are given as Java strings, or as Text objects like Hive does when reading text tables.
+ * @author Adrien PAVIE
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HiveImporterBenchmark {
+//ATTRIBUTES
+	/** The read OSM XML file **/
+	@Param({ BenchmarkRunner.DEFAULT_OSM_FILE })
+	public String file;
+	
+	/** The importer type **/
+	@Param({ "node", "way", "relation" })
+	public String importerType;
+	
+	/** The importer options (see {@link HiveImporter#setOptions(String)}) **/
+	@Param({ "" })
+	public String options;
+	
+	/** The importer argument type: Java strings, or Hadoop Text objects **/
+	@Param({ "string", "text" })
+	public String argumentType;
+	
+	/** The file lines, as importer arguments **/
+	private Object[] lines;
+	
+	/** The index of the next processed line **/
+	private int index;
+	
+	/** The importer **/
+	private HiveImporter importer;
+	
+	/** The importer arguments **/
+	private Object[] args;
+	
+	/** The blackhole consuming rows **/
+	private Blackhole blackhole;
+
+//SETUP
+	@Setup
+	public void setUp(Blackhole bh) throws IOException, HiveException {
+		String[] fileLines = BenchmarkRunner.readLines(file);
+		index = 0;
+		args = new Object[1];
+		blackhole = bh;
+		
+		switch(importerType) {
+			case "node":
+				importer = new HiveNodeImporter();
+				break;
+			case "way":
+				importer = new HiveWayImporter();
+				break;
+			case "relation":
+				importer = new HiveRelationImporter();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown importer type: "+importerType);
+		}
+		
+		ObjectInspector argumentOI;
+		switch(argumentType) {
+			case "string":
+				lines = fileLines;
+				argumentOI = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+				break;
+			case "text":
+				lines = new Text[fileLines.length];
+				for(int i=0; i < fileLines.length; i++) {
+					lines[i] = new Text(fileLines[i]);
+				}
+				argumentOI = PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown argument type: "+argumentType);
+		}
+		
+		importer.setOptions(options);
+		final StructObjectInspector rowOI = importer.initialize(new ObjectInspector[] { argumentOI });
+		
+		//Stub collector, reading all columns of forwarded rows
+		importer.setCollector(new Collector() {
+			@Override
+			public void collect(Object row) throws HiveException {
+				blackhole.consume(rowOI.getStructFieldsDataAsList(row));
+			}
+		});
+	}
+	
+	@TearDown
+	public void tearDown() throws HiveException {
+		importer.close();
+	}
+
+//BENCHMARKS
+	@Benchmark
+	public void process() throws HiveException {
+		args[0] = lines[index];
+		importer.process(args);
+		
+		index = (index + 1 == lines.length) ? 0 : index + 1;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.BenchmarkRunner;
+import info.pavie.osm2hive.model.xml.InvalidMarkupException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of {@link OSMParser}, over the line stream of an OSM XML file (bleruais.osm by default).
+ * Each operation parses the next line, going back to the first line at file end, so scores are given per line
+ * and cover all line types in file proportions.
+ * @author Adrien PAVIE
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OSMParserBenchmark {
+//ATTRIBUTES
+	/** The read OSM XML file **/
+	@Param({ BenchmarkRunner.DEFAULT_OSM_FILE })
+	public String file;
+	
+	/** Are element objects reused ? **/
+	@Param({ "true", "false" })
+	public boolean reuse;
+	
+	/** The file lines **/
+	private String[] lines;
+	
+	/** The index of the next parsed line **/
+	private int index;
+	
+	/** The parser **/
+	private OSMParser parser;
+
+//SETUP
+	@Setup
+	public void setUp() throws IOException {
+		lines = BenchmarkRunner.readLines(file);
+		index = 0;
+		parser = new OSMParser(reuse);
+	}
+
+//BENCHMARKS
+	@Benchmark
+	public void parse(Blackhole bh) throws InvalidMarkupException {
+		parser.parse(lines[index]);
+		if(parser.isElementReady()) {
+			bh.consume(parser.getCurrentElement());
+		}
+		
+		index = (index + 1 == lines.length) ? 0 : index + 1;
+	}
+}
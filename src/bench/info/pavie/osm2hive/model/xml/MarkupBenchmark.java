@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.xml;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link Markup} parsing, for each markup type, with new or reused markup objects.
+ * Markups are lines of an OSM XML file (bleruais.osm).
+ * @author Adrien PAVIE
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkupBenchmark {
+//ATTRIBUTES
+	/** The parsed markup type **/
+	@Param({ "start", "end", "empty", "complete", "declaration" })
+	public String type;
+	
+	/** The parsed line **/
+	private String line;
+	
+	/** The reused markup **/
+	private Markup markup;
+
+//SETUP
+	@Setup
+	public void setUp() {
+		switch(type) {
+			case "start":
+				line = "  <node id='670135730' timestamp='2010-03-20T20:47:00Z' uid='70696' user='xybot' visible='true' version='2' changeset='4184201' lat='48.1172258' lon='-2.1199346'>";
+				break;
+			case "end":
+				line = "  </node>";
+				break;
+			case "empty":
+				line = "    <tag k='man_made' v='survey_point' />";
+				break;
+			case "complete":
+				line = "    <tag k='man_made' v='survey_point'></tag>";
+				break;
+			case "declaration":
+				line = "<?xml version='1.0' encoding='UTF-8'?>";
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown markup type: "+type);
+		}
+		
+		markup = new Markup();
+	}
+
+//BENCHMARKS
+	@Benchmark
+	public Markup parseNew() throws InvalidMarkupException {
+		return new Markup(line);
+	}
+	
+	@Benchmark
+	public Markup parseReused() throws InvalidMarkupException {
+		markup.parse(line);
+		return markup;
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Tags;
+import info.pavie.osm2hive.model.osm.Timestamps;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * An element writable holds an already decoded OSM {@link Element}, as read by {@link OSMPBFInputFormat}.
+ * It is normally only passed from the record reader to {@link OSMSerDe} in the same task, without being serialized.
+ * When Hadoop has to copy it (for example, in a shuffle), it is written compactly: type, ID, node coordinates,
+ * metadata and tags, then way node IDs (as deltas) or relation members. Integers are written as variable-length numbers.
+ * @author Adrien PAVIE
+ */
+public class ElementWritable implements Writable {
+//ATTRIBUTES
+	/** The held element **/
+	private Element element;
+
+//ACCESSORS
+	/**
+	 * @return The held element
+	 */
+	public Element get() {
+		return element;
+	}
+	
+	@Override
+	public String toString() {
+		return String.valueOf(element);
+	}
+
+//MODIFIERS
+	/**
+	 * @param element The new held element
+	 */
+	public void set(Element element) {
+		this.element = element;
+	}
+
+//OTHER METHODS
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(element.getType());
+		WritableUtils.writeVLong(out, element.getNumericId());
+		if(element instanceof Node) {
+			out.writeInt(((Node) element).getFixedLat());
+			out.writeInt(((Node) element).getFixedLon());
+		}
+		
+		//Metadata, the timestamp string being only kept if it isn't in OSM form
+		WritableUtils.writeString(out, element.getUser());
+		WritableUtils.writeVLong(out, element.getUid());
+		WritableUtils.writeVLong(out, element.getTime());
+		if(element.getTime() == Timestamps.UNKNOWN) {
+			WritableUtils.writeString(out, element.getTimestamp());
+		}
+		out.writeBoolean(element.isVisible());
+		WritableUtils.writeVInt(out, element.getVersion());
+		WritableUtils.writeVLong(out, element.getChangeset());
+		
+		Tags tags = (Tags) element.getTags();
+		WritableUtils.writeVInt(out, tags.size());
+		for(int i=0; i < tags.size(); i++) {
+			WritableUtils.writeString(out, tags.getKey(i));
+			WritableUtils.writeString(out, tags.getValue(i));
+		}
+		
+		switch(element.getType()) {
+			case Element.WAY:
+				Way way = (Way) element;
+				WritableUtils.writeVInt(out, way.getNodesCount());
+				long previous = 0;
+				for(int i=0; i < way.getNodesCount(); i++) {
+					WritableUtils.writeVLong(out, way.getNodeId(i) - previous);
+					previous = way.getNodeId(i);
+				}
+				break;
+			
+			case Element.RELATION:
+				Relation relation = (Relation) element;
+				WritableUtils.writeVInt(out, relation.getMembersCount());
+				for(int i=0; i < relation.getMembersCount(); i++) {
+					out.writeByte(relation.getMemberType(i));
+					WritableUtils.writeVLong(out, relation.getMemberRef(i));
+					WritableUtils.writeString(out, relation.getMemberRole(i));
+				}
+				break;
+		}
+	}
+	
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		char type = (char) in.readByte();
+		long id = WritableUtils.readVLong(in);
+		
+		//A new element is created, as the previous one may still be used
+		switch(type) {
+			case Element.NODE:
+				Node node = new Node(id, 0, 0);
+				node.resetFixed(id, in.readInt(), in.readInt());
+				element = node;
+				break;
+			case Element.WAY:
+				element = new Way(id);
+				break;
+			case Element.RELATION:
+				element = new Relation(id);
+				break;
+			default:
+				throw new IOException("Unknown element type: "+type);
+		}
+		
+		element.setUser(WritableUtils.readString(in));
+		element.setUid(WritableUtils.readVLong(in));
+		long time = WritableUtils.readVLong(in);
+		if(time == Timestamps.UNKNOWN) {
+			element.setTimestamp(WritableUtils.readString(in));
+		}
+		else {
+			element.setTime(time);
+		}
+		element.setVisible(in.readBoolean());
+		element.setVersion(WritableUtils.readVInt(in));
+		element.setChangeset(WritableUtils.readVLong(in));
+		
+		int tagsCount = WritableUtils.readVInt(in);
+		for(int i=0; i < tagsCount; i++) {
+			element.addTag(WritableUtils.readString(in), WritableUtils.readString(in));
+		}
+		
+		switch(type) {
+			case Element.WAY:
+				Way way = (Way) element;
+				int nodesCount = WritableUtils.readVInt(in);
+				long previous = 0;
+				for(int i=0; i < nodesCount; i++) {
+					previous += WritableUtils.readVLong(in);
+					way.addNode(previous);
+				}
+				break;
+			
+			case Element.RELATION:
+				Relation relation = (Relation) element;
+				int membersCount = WritableUtils.readVInt(in);
+				for(int i=0; i < membersCount; i++) {
+					char memberType = (char) in.readByte();
+					long ref = WritableUtils.readVLong(in);
+					relation.addMember(WritableUtils.readString(in), memberType, ref);
+				}
+				break;
+		}
+	}
+}
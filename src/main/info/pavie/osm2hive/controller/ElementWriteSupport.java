@@ -0,0 +1,319 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Tags;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.util.HashMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+
+/**
+ * This write support gives elements of a single type to a Parquet writer, as records having the same columns
+ * as the importers ({@link HiveNodeImporter}, {@link HiveWayImporter} or {@link HiveRelationImporter}).
+ * Columns are named in lower case, and maps and lists use the standard three-level structure read by Hive,
+ * Spark or Impala. Element objects are read directly, so they can be reused after each write.
+ * @author Adrien PAVIE
+ */
+public class ElementWriteSupport extends WriteSupport<Element> {
+//CONSTANTS
+	/** Column path of element IDs **/
+	public static final String ID_COLUMN = "id";
+	
+	/** Column path of way node IDs **/
+	public static final String NODES_COLUMN = "nodes.list.element";
+	
+	/** Members type values, by member type **/
+	private static final Binary NODE_TYPE = Binary.fromString(String.valueOf(Element.NODE));
+	private static final Binary WAY_TYPE = Binary.fromString(String.valueOf(Element.WAY));
+	private static final Binary RELATION_TYPE = Binary.fromString(String.valueOf(Element.RELATION));
+
+//ATTRIBUTES
+	/** The written element type **/
+	private final char type;
+	
+	/** Are IDs written as numbers (see {@link HiveImporter#NUMERIC_IDS}) ? **/
+	private final boolean numericIds;
+	
+	/** The buffer used to encode string IDs **/
+	private final byte[] idBuffer;
+	
+	/** The record consumer **/
+	private RecordConsumer consumer;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param type The type of written elements ({@link Element#NODE}, {@link Element#WAY} or {@link Element#RELATION})
+	 * @param numericIds True to write IDs as numbers, false to write them as prefixed IDs (N000000)
+	 */
+	public ElementWriteSupport(char type, boolean numericIds) {
+		if(type != Element.NODE && type != Element.WAY && type != Element.RELATION) {
+			throw new IllegalArgumentException("Unknown element type: "+type);
+		}
+		
+		this.type = type;
+		this.numericIds = numericIds;
+		this.idBuffer = new byte[Element.MAX_ID_LENGTH];
+	}
+
+//OTHER METHODS
+	/**
+	 * Creates the Parquet schema of a table.
+	 * @param type The type of elements in table ({@link Element#NODE}, {@link Element#WAY} or {@link Element#RELATION})
+	 * @param numericIds True if IDs are numbers, false if they are prefixed strings
+	 * @return The table schema
+	 */
+	public static MessageType createSchema(char type, boolean numericIds) {
+		String id = (numericIds) ? "int64" : "binary";
+		String idAnnotation = (numericIds) ? "" : " (UTF8)";
+		StringBuilder schema = new StringBuilder();
+		
+		schema.append("message osm_element {\n")
+			.append("  required "+id+" id"+idAnnotation+";\n")
+			.append("  optional int64 userid;\n")
+			.append("  optional binary timestamp (UTF8);\n")
+			.append("  optional boolean isvisible;\n")
+			.append("  optional int32 version;\n")
+			.append("  optional int64 changesetid;\n")
+			.append("  optional group tags (MAP) {\n")
+			.append("    repeated group key_value {\n")
+			.append("      required binary key (UTF8);\n")
+			.append("      optional binary value (UTF8);\n")
+			.append("    }\n")
+			.append("  }\n");
+		
+		switch(type) {
+			case Element.NODE:
+				schema.append("  optional double latitude;\n")
+					.append("  optional double longitude;\n");
+				break;
+			case Element.WAY:
+				schema.append("  optional group nodes (LIST) {\n")
+					.append("    repeated group list {\n")
+					.append("      optional "+id+" element"+idAnnotation+";\n")
+					.append("    }\n")
+					.append("  }\n");
+				break;
+			case Element.RELATION:
+				schema.append("  optional group members (LIST) {\n")
+					.append("    repeated group list {\n")
+					.append("      optional group element {\n")
+					.append("        optional binary type (UTF8);\n")
+					.append("        optional "+id+" ref"+idAnnotation+";\n")
+					.append("        optional binary role (UTF8);\n")
+					.append("      }\n")
+					.append("    }\n")
+					.append("  }\n");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown element type: "+type);
+		}
+		
+		return MessageTypeParser.parseMessageType(schema.append("}\n").toString());
+	}
+	
+	@Override
+	public WriteContext init(Configuration configuration) {
+		return new WriteContext(createSchema(type, numericIds), new HashMap<String,String>());
+	}
+	
+	@Override
+	public void prepareForWrite(RecordConsumer recordConsumer) {
+		consumer = recordConsumer;
+	}
+	
+	@Override
+	public void write(Element e) {
+		if(e.getType() != type) {
+			throw new IllegalArgumentException("Element "+e.getId()+" can't be written in a table of type "+type);
+		}
+		
+		consumer.startMessage();
+		
+		//Common columns
+		consumer.startField("id", 0);
+		addId(type, e.getNumericId());
+		consumer.endField("id", 0);
+		
+		consumer.startField("userid", 1);
+		consumer.addLong(e.getUid());
+		consumer.endField("userid", 1);
+		
+		if(e.getTimestamp() != null) {
+			consumer.startField("timestamp", 2);
+			consumer.addBinary(Binary.fromString(e.getTimestamp()));
+			consumer.endField("timestamp", 2);
+		}
+		
+		consumer.startField("isvisible", 3);
+		consumer.addBoolean(e.isVisible());
+		consumer.endField("isvisible", 3);
+		
+		consumer.startField("version", 4);
+		consumer.addInteger(e.getVersion());
+		consumer.endField("version", 4);
+		
+		consumer.startField("changesetid", 5);
+		consumer.addLong(e.getChangeset());
+		consumer.endField("changesetid", 5);
+		
+		writeTags((Tags) e.getTags());
+		
+		//Type-specific columns
+		if(e instanceof Node) {
+			consumer.startField("latitude", 7);
+			consumer.addDouble(((Node) e).getLat());
+			consumer.endField("latitude", 7);
+			
+			consumer.startField("longitude", 8);
+			consumer.addDouble(((Node) e).getLon());
+			consumer.endField("longitude", 8);
+		}
+		else if(e instanceof Way) {
+			writeNodes((Way) e);
+		}
+		else if(e instanceof Relation) {
+			writeMembers((Relation) e);
+		}
+		
+		consumer.endMessage();
+	}
+	
+	/**
+	 * Writes tags, as a map.
+	 * @param tags The tags
+	 */
+	private void writeTags(Tags tags) {
+		consumer.startField("tags", 6);
+		consumer.startGroup();
+		
+		//Repeated field only written if not empty
+		if(tags.size() > 0) {
+			consumer.startField("key_value", 0);
+			for(int i=0; i < tags.size(); i++) {
+				consumer.startGroup();
+				consumer.startField("key", 0);
+				consumer.addBinary(Binary.fromString(tags.getKey(i)));
+				consumer.endField("key", 0);
+				
+				if(tags.getValue(i) != null) {
+					consumer.startField("value", 1);
+					consumer.addBinary(Binary.fromString(tags.getValue(i)));
+					consumer.endField("value", 1);
+				}
+				consumer.endGroup();
+			}
+			consumer.endField("key_value", 0);
+		}
+		
+		consumer.endGroup();
+		consumer.endField("tags", 6);
+	}
+	
+	/**
+	 * Writes way node IDs, as a list.
+	 * @param way The way
+	 */
+	private void writeNodes(Way way) {
+		long[] nodes = way.getNodeIds();
+		
+		consumer.startField("nodes", 7);
+		consumer.startGroup();
+		
+		if(way.getNodesCount() > 0) {
+			consumer.startField("list", 0);
+			for(int i=0; i < way.getNodesCount(); i++) {
+				consumer.startGroup();
+				consumer.startField("element", 0);
+				addId(Element.NODE, nodes[i]);
+				consumer.endField("element", 0);
+				consumer.endGroup();
+			}
+			consumer.endField("list", 0);
+		}
+		
+		consumer.endGroup();
+		consumer.endField("nodes", 7);
+	}
+	
+	/**
+	 * Writes relation members, as a list of structures.
+	 * @param relation The relation
+	 */
+	private void writeMembers(Relation relation) {
+		consumer.startField("members", 7);
+		consumer.startGroup();
+		
+		if(relation.getMembersCount() > 0) {
+			consumer.startField("list", 0);
+			for(int i=0; i < relation.getMembersCount(); i++) {
+				char memberType = relation.getMemberType(i);
+				
+				consumer.startGroup();
+				consumer.startField("element", 0);
+				consumer.startGroup();
+				
+				consumer.startField("type", 0);
+				consumer.addBinary((memberType == Element.NODE) ? NODE_TYPE : ((memberType == Element.WAY) ? WAY_TYPE : RELATION_TYPE));
+				consumer.endField("type", 0);
+				
+				consumer.startField("ref", 1);
+				addId(memberType, relation.getMemberRef(i));
+				consumer.endField("ref", 1);
+				
+				if(relation.getMemberRole(i) != null) {
+					consumer.startField("role", 2);
+					consumer.addBinary(Binary.fromString(relation.getMemberRole(i)));
+					consumer.endField("role", 2);
+				}
+				
+				consumer.endGroup();
+				consumer.endField("element", 0);
+				consumer.endGroup();
+			}
+			consumer.endField("list", 0);
+		}
+		
+		consumer.endGroup();
+		consumer.endField("members", 7);
+	}
+	
+	/**
+	 * Adds an element ID value, prefixed by its type unless IDs are numeric.
+	 * @param idType The element type code
+	 * @param id The numeric ID
+	 */
+	private void addId(char idType, long id) {
+		if(numericIds) {
+			consumer.addLong(id);
+			return;
+		}
+		
+		int pos = Element.writeId(idType, id, idBuffer);
+		consumer.addBinary(Binary.fromReusedByteArray(idBuffer, pos, idBuffer.length - pos));
+	}
+}
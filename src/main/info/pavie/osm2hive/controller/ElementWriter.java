@@ -0,0 +1,321 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Tags;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An element writer writes elements as rows of Hive text files, with the same columns as the importers
+ * ({@link HiveNodeImporter}, {@link HiveWayImporter} or {@link HiveRelationImporter}). It uses the default
+ * Hive delimiters (\001 between columns, \002 between collection items, \003 between map keys and values or
+ * structure fields, \N for null), so written files can be used directly as table data.
+ * Rows are encoded straight into a byte buffer, without creating strings for numbers.
+ * Control characters in strings are replaced by spaces, as they would break rows.
+ * @author Adrien PAVIE
+ */
+public class ElementWriter implements TableWriter {
+//CONSTANTS
+	/** Columns delimiter **/
+	private static final byte COLUMN = 1;
+	
+	/** Collection items delimiter **/
+	private static final byte ITEM = 2;
+	
+	/** Map keys and structure fields delimiter **/
+	private static final byte KEY = 3;
+	
+	/** Rows delimiter **/
+	private static final byte ROW = '\n';
+	
+	/** Size of the buffer, flushed when full **/
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	
+	/** Coordinates decimals, as in OSM database **/
+	private static final int COORDINATE_DECIMALS = 7;
+
+//ATTRIBUTES
+	/** The written stream **/
+	private final OutputStream out;
+	
+	/** Are IDs written as numbers (see {@link HiveImporter#NUMERIC_IDS}) ? **/
+	private final boolean numericIds;
+	
+	/** The output buffer **/
+	private byte[] buffer;
+	
+	/** The amount of bytes in buffer **/
+	private int length;
+	
+	/** The amount of written rows **/
+	private long rows;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param out The stream to write
+	 * @param numericIds True to write IDs as numbers, false to write them as prefixed IDs (N000000)
+	 */
+	public ElementWriter(OutputStream out, boolean numericIds) {
+		this.out = out;
+		this.numericIds = numericIds;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.length = 0;
+		this.rows = 0;
+	}
+
+//ACCESSORS
+	@Override
+	public long getRows() {
+		return rows;
+	}
+
+//OTHER METHODS
+	@Override
+	public void write(Element e) throws IOException {
+		//Common columns
+		writeId(e.getType(), e.getNumericId());
+		writeByte(COLUMN);
+		writeLong(e.getUid());
+		writeByte(COLUMN);
+		writeString(e.getTimestamp());
+		writeByte(COLUMN);
+		writeString(e.isVisible() ? "true" : "false");
+		writeByte(COLUMN);
+		writeLong(e.getVersion());
+		writeByte(COLUMN);
+		writeLong(e.getChangeset());
+		writeByte(COLUMN);
+		writeTags((Tags) e.getTags());
+		
+		//Type-specific columns
+		if(e instanceof Node) {
+			writeByte(COLUMN);
+			writeCoordinate(((Node) e).getLat());
+			writeByte(COLUMN);
+			writeCoordinate(((Node) e).getLon());
+		}
+		else if(e instanceof Way) {
+			Way w = (Way) e;
+			long[] nodes = w.getNodeIds();
+			writeByte(COLUMN);
+			for(int i=0; i < w.getNodesCount(); i++) {
+				if(i > 0) { writeByte(ITEM); }
+				writeId(Element.NODE, nodes[i]);
+			}
+		}
+		else if(e instanceof Relation) {
+			Relation r = (Relation) e;
+			writeByte(COLUMN);
+			for(int i=0; i < r.getMembersCount(); i++) {
+				if(i > 0) { writeByte(ITEM); }
+				writeByte(r.getMemberType(i));
+				writeByte(KEY);
+				writeId(r.getMemberType(i), r.getMemberRef(i));
+				writeByte(KEY);
+				writeString(r.getMemberRole(i));
+			}
+		}
+		
+		writeByte(ROW);
+		rows++;
+	}
+	
+	/**
+	 * Writes the buffered rows to the stream.
+	 * @throws IOException If the stream can't be written
+	 */
+	public void flush() throws IOException {
+		out.write(buffer, 0, length);
+		length = 0;
+		out.flush();
+	}
+	
+	/**
+	 * Writes the buffered rows, and closes the stream.
+	 * @throws IOException If the stream can't be written or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		out.close();
+	}
+	
+	/**
+	 * Writes tags, as a map.
+	 * @param tags The tags
+	 * @throws IOException If the stream can't be written
+	 */
+	private void writeTags(Tags tags) throws IOException {
+		for(int i=0; i < tags.size(); i++) {
+			if(i > 0) { writeByte(ITEM); }
+			writeString(tags.getKey(i));
+			writeByte(KEY);
+			writeString(tags.getValue(i));
+		}
+	}
+	
+	/**
+	 * Writes an element ID, prefixed by its type unless IDs are numeric.
+	 * @param type The element type code
+	 * @param id The numeric ID
+	 * @throws IOException If the stream can't be written
+	 */
+	private void writeId(char type, long id) throws IOException {
+		if(!numericIds) {
+			writeByte(type);
+		}
+		writeLong(id);
+	}
+	
+	/**
+	 * Writes a coordinate, with at most 7 decimals and without trailing zeros.
+	 * @param value The coordinate
+	 * @throws IOException If the stream can't be written
+	 */
+	private void writeCoordinate(double value) throws IOException {
+		long fixed = Math.round(value * 1e7);
+		if(fixed < 0) {
+			writeByte('-');
+			fixed = -fixed;
+		}
+		
+		writeLong(fixed / 10000000L);
+		
+		long decimals = fixed % 10000000L;
+		int digits = COORDINATE_DECIMALS;
+		while(digits > 1 && decimals % 10 == 0) {
+			decimals /= 10;
+			digits--;
+		}
+		
+		writeByte('.');
+		ensure(digits);
+		for(int i=digits-1; i >= 0; i--) {
+			buffer[length + i] = (byte) ('0' + decimals % 10);
+			decimals /= 10;
+		}
+		length += digits;
+	}
+	
+	/**
+	 * Writes a long, in decimal.
+	 * @param value The number
+	 * @throws IOException If the stream can't be written
+	 */
+	private void writeLong(long value) throws IOException {
+		if(value == Long.MIN_VALUE) {
+			writeString(Long.toString(value));
+			return;
+		}
+		if(value < 0) {
+			writeByte('-');
+			value = -value;
+		}
+		
+		int digits = 1;
+		for(long v = value / 10; v > 0; v /= 10) {
+			digits++;
+		}
+		
+		ensure(digits);
+		for(int i=digits-1; i >= 0; i--) {
+			buffer[length + i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		length += digits;
+	}
+	
+	/**
+	 * Writes a string in UTF-8, or \N if null.
+	 * @param s The string
+	 * @throws IOException If the stream can't be written
+	 */
+	private void writeString(String s) throws IOException {
+		if(s == null) {
+			writeByte('\\');
+			writeByte('N');
+			return;
+		}
+		
+		int count = s.length();
+		ensure(count * 3);
+		
+		for(int i=0; i < count; i++) {
+			char c = s.charAt(i);
+			
+			if(c < 0x20) {
+				buffer[length++] = ' ';
+			}
+			else if(c < 0x80) {
+				buffer[length++] = (byte) c;
+			}
+			else if(c < 0x800) {
+				buffer[length++] = (byte) (0xC0 | (c >> 6));
+				buffer[length++] = (byte) (0x80 | (c & 0x3F));
+			}
+			else if(Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				buffer[length++] = (byte) (0xF0 | (cp >> 18));
+				buffer[length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+				buffer[length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+				buffer[length++] = (byte) (0x80 | (cp & 0x3F));
+			}
+			else if(Character.isSurrogate(c)) {
+				buffer[length++] = '?';
+			}
+			else {
+				buffer[length++] = (byte) (0xE0 | (c >> 12));
+				buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[length++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+	}
+	
+	/**
+	 * Writes a single byte.
+	 * @param b The byte
+	 * @throws IOException If the stream can't be written
+	 */
+	private void writeByte(int b) throws IOException {
+		ensure(1);
+		buffer[length++] = (byte) b;
+	}
+	
+	/**
+	 * Makes room in buffer for the given amount of bytes, writing buffered bytes to the stream if needed.
+	 * @param bytes The amount of bytes to write
+	 * @throws IOException If the stream can't be written
+	 */
+	private void ensure(int bytes) throws IOException {
+		if(length + bytes > buffer.length) {
+			out.write(buffer, 0, length);
+			length = 0;
+			
+			if(bytes > buffer.length) {
+				buffer = new byte[bytes];
+			}
+		}
+	}
+}
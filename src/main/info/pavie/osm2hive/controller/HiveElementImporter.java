@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.util.ArrayList;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+
+/**
+ * This class reads an OSM XML file, and creates rows for Hive (Nodes, ways and relations).
+ * Each line is parsed only once, and each row has a Type column ("node", "way" or "relation")
+ * telling which of the type-specific columns are defined. Columns not relevant for the row type are null.
+ * This allows to fill the three tables with a single scan, using a Hive multi-insert.
+ * To use it, you need to have a JAR of this application, and in Hive :
+ * ADD JAR /path/to/osm2hive.jar;
+ * CREATE TEMPORARY FUNCTION OSMImportElements AS 'info.pavie.osm2hive.controller.HiveElementImporter';
+ * CREATE TABLE osmdata(osm_content STRING) STORED AS TEXTFILE;
+ * LOAD DATA LOCAL INPATH '/path/to/data.osm' OVERWRITE INTO TABLE osmdata;
+ * FROM (SELECT OSMImportElements(osm_content) FROM osmdata) e
+ * INSERT OVERWRITE TABLE osmnodes SELECT ID, UserID, Timestamp, IsVisible, Version, ChangesetID, Tags, Latitude, Longitude WHERE Type = 'node'
+ * INSERT OVERWRITE TABLE osmways SELECT ID, UserID, Timestamp, IsVisible, Version, ChangesetID, Tags, Nodes WHERE Type = 'way'
+ * INSERT OVERWRITE TABLE osmrelations SELECT ID, UserID, Timestamp, IsVisible, Version, ChangesetID, Tags, Members WHERE Type = 'relation';
+ * @author Adrien PAVIE
+ */
+public class HiveElementImporter extends HiveImporter {
+//OTHER METHODS
+	@Override
+	public StructObjectInspector initialize(ObjectInspector[] argOIs) throws UDFArgumentException {
+		//Check hive function call
+		checkParameterOI(argOIs);
+		filter = createFilter("node", "way", "relation", "tag", "nd", "member");
+		
+		//Expected output columns
+		ArrayList<String> fieldNames = getCommonFieldNames();
+		fieldNames.add("Type");
+		fieldNames.add("Latitude");
+		fieldNames.add("Longitude");
+		fieldNames.add("Nodes");
+		fieldNames.add("Members");
+		
+		//Expected output types
+		ArrayList<ObjectInspector> fieldOIs = getCommonFieldOIs();
+		fieldOIs.add(PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+		fieldOIs.add(getCoordinateOI());
+		fieldOIs.add(getCoordinateOI());
+		fieldOIs.add(getNodesOI());
+		fieldOIs.add(getMembersOI());
+		
+		//Way geometry, using nodes read before ways
+		if(wayGeometry) {
+			fieldNames.add("Geometry");
+			fieldOIs.add(PrimitiveObjectInspectorFactory.javaByteArrayObjectInspector);
+		}
+		
+		return createRowOI(fieldNames, fieldOIs);
+	}
+	
+	@Override
+	public void processElement(Element current) throws HiveException {
+		if(current instanceof Node) {
+			indexLocation((Node) current);
+		}
+		else if(current instanceof Way) {
+			createGeometry((Way) current, 12);
+		}
+		
+		//Send result, columns are read from element
+		forwardElement(current);
+	}
+	
+	@Override
+	public Object getColumn(Element element, int column) {
+		Object result = null;
+		
+		//Type-specific columns, null if not relevant for the element type
+		switch(column) {
+			case 7:
+				result = (element instanceof Node) ? "node" : ((element instanceof Way) ? "way" : "relation");
+				break;
+			case 8:
+				result = (element instanceof Node) ? getLatitude((Node) element) : null;
+				break;
+			case 9:
+				result = (element instanceof Node) ? getLongitude((Node) element) : null;
+				break;
+			case 10:
+				result = (element instanceof Way && isColumnRead(10)) ? element : null;
+				break;
+			case 11:
+				result = (element instanceof Relation && isColumnRead(11)) ? createMembers((Relation) element) : null;
+				break;
+			case 12:
+				result = (element instanceof Way) ? geometry : null;
+				break;
+			default:
+				result = getCommonColumn(element, column);
+		}
+		
+		return result;
+	}
+}
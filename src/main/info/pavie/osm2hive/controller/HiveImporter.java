@@ -1,6 +1,6 @@
 /*
  * Copyright 2015 Adrien PAVIE
- *
+ * 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -16,54 +16,299 @@
 
 package info.pavie.osm2hive.controller;
 
+import info.pavie.osm2hive.controller.inspector.ElementColumns;
+import info.pavie.osm2hive.controller.inspector.ElementStructObjectInspector;
+import info.pavie.osm2hive.controller.inspector.RelationMembersObjectInspector;
+import info.pavie.osm2hive.controller.inspector.TagsObjectInspector;
+import info.pavie.osm2hive.controller.inspector.WayNodesObjectInspector;
+import info.pavie.osm2hive.model.geo.DenseNodeLocationIndex;
+import info.pavie.osm2hive.model.geo.NodeLocationIndex;
+import info.pavie.osm2hive.model.geo.SparseNodeLocationIndex;
+import info.pavie.osm2hive.model.geo.WayGeometry;
 import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Timestamps;
+import info.pavie.osm2hive.model.osm.Way;
 import info.pavie.osm2hive.model.xml.InvalidMarkupException;
+import info.pavie.osm2hive.model.xml.MarkupFilter;
 
+import java.io.IOException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDTF;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
- 
+import org.apache.hadoop.io.Text;
+
 /**
  * Abstract class, containing common functions to all Hive importers.
  * See each heriting class for more details.
+ * Importers count their work in {@link ImportStatistics}, published as Hadoop counters of the task
+ * every {@link #PUBLISH_INTERVAL} lines and when closed. Times are sampled, one record and one row in {@link #TIMING_SAMPLE}.
  * @author Adrien PAVIE
  */
-public abstract class HiveImporter extends GenericUDTF {
+public abstract class HiveImporter extends GenericUDTF implements ElementColumns {
+//CONSTANTS
+	/** Index of Tags column **/
+	protected static final int TAGS_COLUMN = 6;
+	
+	/** Option for numeric IDs: ID column is a BIGINT, Nodes an ARRAY&lt;BIGINT&gt;, and members refs are BIGINT **/
+	public static final String NUMERIC_IDS = "numeric_ids";
+	
+	/** Option for the former Members column: a MAP&lt;STRING,STRING&gt; of prefixed IDs and roles, without order and duplicates **/
+	public static final String MEMBERS_MAP = "members_map";
+
+	/** Option for way geometries: ways get a Geometry column (WKB linestring), using the locations of the nodes read before **/
+	public static final String WAY_GEOMETRY = "way_geometry";
+	
+	/** Option for the node locations index of {@link #WAY_GEOMETRY}: a memory-mapped file, for planet-scale node IDs **/
+	public static final String DENSE_INDEX = "dense_index";
+	
+	/** Option for integer coordinates: Latitude and Longitude columns are INT, in 1e-7 degrees (OSM precision), instead of DOUBLE **/
+	public static final String INT_COORDS = "int_coords";
+	
+	/** Option for epoch timestamps: Timestamp column is a BIGINT, in milliseconds since 1970-01-01T00:00:00Z **/
+	public static final String EPOCH_TIMESTAMPS = "epoch_timestamps";
+	
+	/**
+	 * Option for native timestamps: Timestamp column is a TIMESTAMP, holding the UTC date and time of OSM data.
+	 * Values are java.sql.Timestamp, so this option needs Hive 1.x or 2.x (Hive 3 has its own timestamp type).
+	 */
+	public static final String NATIVE_TIMESTAMPS = "native_timestamps";
+	
+	/** The timestamp class of Hive 3 and later, whose object inspectors don't accept {@link Timestamp} values **/
+	private static final String HIVE3_TIMESTAMP_CLASS = "org.apache.hadoop.hive.common.type.Timestamp";
+	
+	/** Amount of read lines between two publications of statistics as Hadoop counters **/
+	public static final long PUBLISH_INTERVAL = 1 << 20;
+	
+	/** The task configuration property giving the start of the read split in its file, set by Hadoop for file splits **/
+	public static final String SPLIT_START = "mapreduce.map.input.start";
+	
+	/** Amount of records (and of rows) per timed one, timed durations being counted this amount of times (a power of 2) **/
+	public static final int TIMING_SAMPLE = 1 << 10;
+
 //ATTRIBUTES
 	/** Hive String Handler **/
 	protected StringObjectInspector stringOI;
 	
-	/** OSM XML Parser **/
-	protected static OSMParser parser = new OSMParser();
+	/** OSM XML Parser, owned by this importer instance **/
+	protected transient OSMParser parser;
 	
 	/** Parsed OSM elements **/
 	protected Map<String,Element> elements;
 	
+	/** The filter for read markups **/
+	protected transient MarkupFilter filter;
+	
+	/** The columns to fill (true if filled), or null if all columns are filled **/
+	protected boolean[] readColumns;
+	
+	/** Are IDs written as numbers (see {@link #NUMERIC_IDS}) ? **/
+	protected boolean numericIds;
+	
+	/** Are members written as a map (see {@link #MEMBERS_MAP}) ? **/
+	protected boolean membersMap;
+	
+	/** Are way geometries created (see {@link #WAY_GEOMETRY}) ? **/
+	protected boolean wayGeometry;
+	
+	/** Is the node locations index stored in a file (see {@link #DENSE_INDEX}) ? **/
+	protected boolean denseIndex;
+	
+	/** Are coordinates written as integers (see {@link #INT_COORDS}) ? **/
+	protected boolean intCoords;
+	
+	/** Are timestamps written as epoch milliseconds (see {@link #EPOCH_TIMESTAMPS}) ? **/
+	protected boolean epochTimestamps;
+	
+	/** Are timestamps written as Hive timestamps (see {@link #NATIVE_TIMESTAMPS}) ? **/
+	protected boolean nativeTimestamps;
+	
+	/** The time zone of Hive timestamps, used to keep their date and time in UTC with {@link #NATIVE_TIMESTAMPS} **/
+	protected transient TimeZone timeZone;
+	
+	/** The node locations index, with {@link #WAY_GEOMETRY} **/
+	protected transient NodeLocationIndex locations;
+	
+	/** The geometry of the forwarded way, with {@link #WAY_GEOMETRY} **/
+	protected transient byte[] geometry;
+	
+	/** The start of the task split in its file (0 if unknown) **/
+	protected transient long splitStart;
+
+	/** The import statistics, shared with the parser **/
+	protected transient ImportStatistics statistics;
+	
+	/** The task context, giving the reporter of Hadoop counters (null outside of a task) **/
+	private transient MapredContext context;
+	
+	/** The amount of read lines at which statistics are published next **/
+	private transient long nextPublish;
+	
+	/** The amount of processed records and forwarded rows, to select the timed ones **/
+	private transient long records, rows;
+
+//ACCESSORS
+	/**
+	 * Is the given column filled in created rows ?
+	 * @param column The column index
+	 * @return True if filled
+	 */
+	protected boolean isColumnRead(int column) {
+		return readColumns == null || (column < readColumns.length && readColumns[column]);
+	}
+	
+	/**
+	 * @return A snapshot of the import statistics
+	 */
+	public ImportStatistics getStatistics() {
+		return parser.getStatistics();
+	}
+
+//MODIFIERS
+	/**
+	 * Sets the columns to fill in created rows, the other ones are set to null.
+	 * Unused columns are not built, for example tags are not parsed if Tags column isn't read.
+	 * This should be called before initialize.
+	 * @param columns The indexes of the columns to fill
+	 */
+	public void setReadColumns(List<Integer> columns) {
+		int max = 0;
+		for(int column : columns) {
+			max = Math.max(max, column + 1);
+		}
+		
+		readColumns = new boolean[max];
+		for(int column : columns) {
+			readColumns[column] = true;
+		}
+	}
+	
+	/**
+	 * Sets the output options, given as a comma-separated list. Available options: {@link #NUMERIC_IDS}, {@link #MEMBERS_MAP},
+	 * {@link #WAY_GEOMETRY}, {@link #DENSE_INDEX}, {@link #INT_COORDS}, {@link #EPOCH_TIMESTAMPS}, {@link #NATIVE_TIMESTAMPS}.
+	 * This should be called before initialize.
+	 * @param options The options list, for example "numeric_ids"
+	 * @throws UDFArgumentException If an option is unknown, or isn't supported by this Hive version
+	 */
+	public void setOptions(String options) throws UDFArgumentException {
+		for(String option : options.split(",")) {
+			switch(option.trim()) {
+				case NUMERIC_IDS:
+					numericIds = true;
+					break;
+				case MEMBERS_MAP:
+					membersMap = true;
+					break;
+				case WAY_GEOMETRY:
+					wayGeometry = true;
+					break;
+				case DENSE_INDEX:
+					denseIndex = true;
+					break;
+				case INT_COORDS:
+					intCoords = true;
+					break;
+				case EPOCH_TIMESTAMPS:
+					epochTimestamps = true;
+					break;
+				case NATIVE_TIMESTAMPS:
+					if(isHive3()) {
+						throw new UDFArgumentException("The "+NATIVE_TIMESTAMPS+" option needs Hive 1.x or 2.x, use "+EPOCH_TIMESTAMPS+" instead");
+					}
+					nativeTimestamps = true;
+					break;
+				case "":
+					break;
+				default:
+					throw new UDFArgumentException("Unknown HiveImporter option: "+option.trim());
+			}
+		}
+	}
+
 //OTHER METHODS
+	/**
+	 * @return True if Hive 3 timestamps are available, which can't be created as {@link Timestamp}
+	 */
+	private static boolean isHive3() {
+		try {
+			Class.forName(HIVE3_TIMESTAMP_CLASS, false, HiveImporter.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+	
 	/**
 	 * Checks if hive function call is valid, and defines stringOI attribute.
+	 * The optional second argument is a constant string, containing options (see {@link #setOptions(String)}).
+	 * It also creates the parser of this importer. Each importer has its own parser, so several
+	 * importers can run in the same JVM (JVM reuse, multi-threaded execution engines) without sharing state.
+	 * The parser reuses its element objects, as rows (the elements themselves) are consumed before the next line is processed.
+	 * The parser and the importer count in the same statistics.
 	 * @param argOIs The hive function arguments
 	 * @throws UDFArgumentException If function call is invalid
 	 */
 	protected void checkParameterOI(ObjectInspector[] argOIs) throws UDFArgumentException {
-		if(argOIs.length != 1) {
-			throw new UDFArgumentException("HiveImporter UDTF takes 1 argument: STRING");
+		if(argOIs.length != 1 && argOIs.length != 2) {
+			throw new UDFArgumentException("HiveImporter UDTF takes 1 or 2 arguments: STRING, constant STRING options");
 		}
 		
 		ObjectInspector arg1 = argOIs[0]; //First parameter, corresponding to OSM XML file path
 		
 		if(!(arg1 instanceof StringObjectInspector)) {
-			throw new UDFArgumentException("HiveImporter UDTF takes 1 argument: STRING");
+			throw new UDFArgumentException("HiveImporter UDTF takes 1 or 2 arguments: STRING, constant STRING options");
+		}
+		
+		//Second parameter, options
+		if(argOIs.length == 2) {
+			if(!(argOIs[1] instanceof StringObjectInspector && argOIs[1] instanceof ConstantObjectInspector)) {
+				throw new UDFArgumentException("HiveImporter UDTF options must be a constant STRING");
+			}
+			Object options = ((ConstantObjectInspector) argOIs[1]).getWritableConstantValue();
+			setOptions((options == null) ? "" : options.toString());
 		}
 		
 		this.stringOI = (StringObjectInspector) arg1;
+		this.statistics = new ImportStatistics();
+		this.parser = new OSMParser(true, statistics);
+		this.nextPublish = PUBLISH_INTERVAL;
+	}
+	
+	@Override
+	public void configure(MapredContext mapredContext) {
+		context = mapredContext;
+		splitStart = (context == null || context.getJobConf() == null) ? 0 : context.getJobConf().getLong(SPLIT_START, 0);
+	}
+	
+	/**
+	 * Creates the filter for read markups. The tag markup is ignored if the Tags column isn't read.
+	 * @param markups The markups to read, for example: node, tag
+	 * @return The markup filter
+	 */
+	protected MarkupFilter createFilter(String... markups) {
+		List<String> accepted = new ArrayList<String>();
+		for(String markup : markups) {
+			if(!markup.equals("tag") || isColumnRead(TAGS_COLUMN)) {
+				accepted.add(markup);
+			}
+		}
+		
+		return new MarkupFilter(accepted.toArray(new String[accepted.size()]));
 	}
 	
 	/**
@@ -87,33 +332,266 @@ public abstract class HiveImporter extends GenericUDTF {
 	 */
 	protected ArrayList<ObjectInspector> getCommonFieldOIs() {
 		ArrayList<ObjectInspector> fieldOIs = new ArrayList<ObjectInspector>();
-		fieldOIs.add(PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+		fieldOIs.add((numericIds) ? PrimitiveObjectInspectorFactory.javaLongObjectInspector : PrimitiveObjectInspectorFactory.javaStringObjectInspector);
 		fieldOIs.add(PrimitiveObjectInspectorFactory.javaLongObjectInspector);
-		fieldOIs.add(PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+		fieldOIs.add(getTimestampOI());
 		fieldOIs.add(PrimitiveObjectInspectorFactory.javaBooleanObjectInspector);
 		fieldOIs.add(PrimitiveObjectInspectorFactory.javaIntObjectInspector);
 		fieldOIs.add(PrimitiveObjectInspectorFactory.javaLongObjectInspector);
-		fieldOIs.add(ObjectInspectorFactory.getStandardMapObjectInspector(
-				PrimitiveObjectInspectorFactory.javaStringObjectInspector,
-				PrimitiveObjectInspectorFactory.javaStringObjectInspector));
+		fieldOIs.add(new TagsObjectInspector());
 		
 		return fieldOIs;
 	}
 	
 	/**
-	 * Parses the given line from arguments and returns the read Element
+	 * @return The object inspector of the Nodes column (list of node IDs), which reads the {@link Way} object directly
+	 */
+	protected ObjectInspector getNodesOI() {
+		return new WayNodesObjectInspector(numericIds);
+	}
+	
+	/**
+	 * @return The object inspector of the Members column (list of type, ID and role structures, which reads
+	 * the {@link Relation} object directly, or map of member IDs and roles with {@link #MEMBERS_MAP})
+	 */
+	protected ObjectInspector getMembersOI() {
+		ObjectInspector result;
+		
+		if(membersMap) {
+			result = ObjectInspectorFactory.getStandardMapObjectInspector(
+					PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+					PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+		}
+		else {
+			result = new RelationMembersObjectInspector(numericIds);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @return The object inspector of the Timestamp column (BIGINT with {@link #EPOCH_TIMESTAMPS},
+	 * TIMESTAMP with {@link #NATIVE_TIMESTAMPS}, STRING otherwise)
+	 */
+	protected ObjectInspector getTimestampOI() {
+		ObjectInspector result = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+		
+		if(epochTimestamps) {
+			result = PrimitiveObjectInspectorFactory.javaLongObjectInspector;
+		}
+		else if(nativeTimestamps) {
+			result = PrimitiveObjectInspectorFactory.javaTimestampObjectInspector;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Creates the element timestamp, as expected in the Timestamp column.
+	 * Hive timestamps have no time zone: they are shifted by the offset of the JVM time zone, so they are
+	 * displayed with the UTC date and time of OSM data, and read as such by Hive date functions.
+	 * @param elem The element
+	 * @return The element timestamp, or null if it is unknown or not in OSM form with {@link #EPOCH_TIMESTAMPS} or {@link #NATIVE_TIMESTAMPS}
+	 */
+	protected Object getTimestamp(Element elem) {
+		Object result;
+		
+		if(epochTimestamps || nativeTimestamps) {
+			long time = elem.getTime();
+			if(time == Timestamps.UNKNOWN) {
+				result = null;
+			}
+			else if(epochTimestamps) {
+				result = time;
+			}
+			else {
+				if(timeZone == null) {
+					timeZone = TimeZone.getDefault();
+				}
+				result = new Timestamp(Timestamps.toLocal(time, timeZone));
+			}
+		}
+		else {
+			result = elem.getTimestamp();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @return The object inspector of the Latitude and Longitude columns (INT with {@link #INT_COORDS}, DOUBLE otherwise)
+	 */
+	protected ObjectInspector getCoordinateOI() {
+		return (intCoords) ? PrimitiveObjectInspectorFactory.javaIntObjectInspector : PrimitiveObjectInspectorFactory.javaDoubleObjectInspector;
+	}
+	
+	/**
+	 * @param node The node
+	 * @return The node latitude, as expected in the Latitude column
+	 */
+	protected Object getLatitude(Node node) {
+		return (intCoords) ? (Object) node.getFixedLat() : (Object) node.getLat();
+	}
+	
+	/**
+	 * @param node The node
+	 * @return The node longitude, as expected in the Longitude column
+	 */
+	protected Object getLongitude(Node node) {
+		return (intCoords) ? (Object) node.getFixedLon() : (Object) node.getLon();
+	}
+	
+	/**
+	 * Adds a node to the node locations index, if way geometries are created.
+	 * The index is created with the first node, so importers which are only initialized (for example
+	 * while Hive compiles a query) don't create any index file.
+	 * @param node The node
+	 * @throws HiveException If the index can't be created or written
+	 */
+	protected void indexLocation(Node node) throws HiveException {
+		if(wayGeometry) {
+			try {
+				if(locations == null) {
+					locations = (denseIndex) ? new DenseNodeLocationIndex() : new SparseNodeLocationIndex();
+				}
+				locations.put(node.getNumericId(), node.getFixedLat(), node.getFixedLon());
+			} catch (IOException e) {
+				throw new HiveException("Can't index node locations: "+e.getMessage(), e);
+			}
+		}
+	}
+	
+	/**
+	 * Creates the geometry of a way before forwarding it, with {@link #WAY_GEOMETRY}, if its column is read.
+	 * It is then given by {@link #geometry}. Ways with an unknown node location have a null geometry,
+	 * and are counted in {@link ImportStatistics#UNRESOLVED_WAY_GEOMETRIES}.
+	 * @param way The way
+	 * @param column The Geometry column index
+	 */
+	protected void createGeometry(Way way, int column) {
+		geometry = null;
+		
+		if(wayGeometry && isColumnRead(column)) {
+			geometry = (locations == null) ? null : WayGeometry.toWKB(way, locations);
+			if(geometry == null) {
+				statistics.increment(ImportStatistics.UNRESOLVED_WAY_GEOMETRIES);
+			}
+		}
+	}
+	
+	/**
+	 * Checks that the task split starts at its file start with {@link #WAY_GEOMETRY}, as nodes are read before ways.
+	 * Otherwise, the nodes of the file start are read by another task, and most geometries would be null.
+	 * @throws HiveException If the split doesn't start at its file start
+	 */
+	private void checkSplitStart() throws HiveException {
+		if(wayGeometry && splitStart > 0) {
+			throw new HiveException("The "+WAY_GEOMETRY+" option needs each file read as a single split, but this task split starts at "
+					+splitStart+" (raise mapreduce.input.fileinputformat.split.minsize above the file size)");
+		}
+	}
+	
+	/**
+	 * Parses the given line from arguments and returns the read Element.
+	 * The argument can also contain several lines, for example a whole element read by {@link OSMXmlInputFormat}.
+	 * Only the markups accepted by the importer filter are parsed. If the argument object inspector prefers
+	 * writable objects (Hadoop texts, as read from tables), lines are read from the text UTF-8 bytes without decoding them.
 	 * @param args The Hive command arguments
-	 * @param markups The markups to read, separated with |, for example: "node|tag|nd|relation"
 	 * @return The read OSM element, or null if not ready
 	 * @throws InvalidMarkupException If the line isn't a well-formed XML markup
 	 */
-	protected Element preprocess(Object[] args, String markups) throws InvalidMarkupException {
+	protected Element preprocess(Object[] args) throws InvalidMarkupException {
+		if(stringOI.preferWritable()) {
+			Text text = stringOI.getPrimitiveWritableObject(args[0]);
+			return preprocess(text.getBytes(), text.getLength());
+		}
+		
+		Element result = null;
+		
+		String record = (String) stringOI.getPrimitiveJavaObject(args[0]);
+		int lineEnd = record.indexOf('\n');
+		
+		if(lineEnd < 0) {
+			result = parseLine(record);
+		}
+		else {
+			//Parse each line of the record
+			int lineStart = 0;
+			while(lineStart < record.length()) {
+				if(lineEnd < 0) { lineEnd = record.length(); }
+				
+				Element read = parseLine(record.substring(lineStart, lineEnd));
+				if(read != null) { result = read; }
+				
+				lineStart = lineEnd + 1;
+				lineEnd = record.indexOf('\n', lineStart);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Parses each line of the given UTF-8 bytes, and returns the last read Element.
+	 * @param bytes The bytes containing the record
+	 * @param length The record length
+	 * @return The read OSM element, or null if not ready
+	 * @throws InvalidMarkupException If a line isn't a well-formed XML markup
+	 */
+	private Element preprocess(byte[] bytes, int length) throws InvalidMarkupException {
+		Element result = null;
+		int lineStart = 0;
+		
+		do {
+			int lineEnd = lineStart;
+			while(lineEnd < length && bytes[lineEnd] != '\n') { lineEnd++; }
+			
+			Element read = parseLine(bytes, lineStart, lineEnd);
+			if(read != null) { result = read; }
+			
+			lineStart = lineEnd + 1;
+		} while(lineStart < length);
+		
+		return result;
+	}
+	
+	/**
+	 * Parses the given line if it is accepted by filter, and returns the read Element
+	 * @param bytes The bytes containing the line
+	 * @param start The index of the line first byte
+	 * @param end The index after the line last byte
+	 * @return The read OSM element, or null if not ready
+	 * @throws InvalidMarkupException If the line isn't a well-formed XML markup
+	 */
+	private Element parseLine(byte[] bytes, int start, int end) throws InvalidMarkupException {
 		Element result = null;
+		statistics.increment(ImportStatistics.LINES_READ);
 		
-		//Parse the received line if necessary
-		String line = (String) stringOI.getPrimitiveJavaObject(args[0]);
+		if(!filter.accepts(bytes, start, end)) {
+			statistics.increment(ImportStatistics.LINES_FILTERED);
+		}
+		else {
+			parser.parse(bytes, start, end);
+			result = (parser.isElementReady()) ? parser.getCurrentElement() : null;
+		}
 		
-		if(line.matches(".*?\\x3C\\x2F?("+markups+").*?")) {
+		return result;
+	}
+	
+	/**
+	 * Parses the given line if it is accepted by filter, and returns the read Element
+	 * @param line The line to parse
+	 * @return The read OSM element, or null if not ready
+	 * @throws InvalidMarkupException If the line isn't a well-formed XML markup
+	 */
+	private Element parseLine(String line) throws InvalidMarkupException {
+		Element result = null;
+		statistics.increment(ImportStatistics.LINES_READ);
+		
+		if(!filter.accepts(line)) {
+			statistics.increment(ImportStatistics.LINES_FILTERED);
+		}
+		else {
 			parser.parse(line);
 			result = (parser.isElementReady()) ? parser.getCurrentElement() : null;
 		}
@@ -122,20 +600,163 @@ public abstract class HiveImporter extends GenericUDTF {
 	}
 	
 	/**
-	 * This methods fills a row array with common data extracted from the given element.
-	 * @param row The row array (size should be > 7)
+	 * Creates the rows object inspector. Rows are the forwarded elements themselves, and their columns are
+	 * only created when read by Hive, using {@link #getColumn(Element, int)}.
+	 * @param fieldNames The columns names
+	 * @param fieldOIs The columns object inspectors
+	 * @return The rows object inspector
+	 */
+	protected StructObjectInspector createRowOI(List<String> fieldNames, List<ObjectInspector> fieldOIs) {
+		return new ElementStructObjectInspector(fieldNames, fieldOIs, this);
+	}
+	
+	/**
+	 * Get the value of a column common to all importers (ID, UserID, Timestamp, ...) for the given element.
+	 * Tags are only set if the Tags column is read.
 	 * @param elem The element to use
+	 * @param column The column index (lower than 7)
+	 * @return The column value
 	 */
-	protected void fillRow(Object[] row, Element elem) {
-		row[0] = elem.getId();
-		row[1] = elem.getUid();
-		row[2] = elem.getTimestamp();
-		row[3] = elem.isVisible();
-		row[4] = elem.getVersion();
-		row[5] = elem.getChangeset();
-		row[6] = elem.getTags();
+	protected Object getCommonColumn(Element elem, int column) {
+		Object result = null;
+		
+		switch(column) {
+			case 0:
+				result = (numericIds) ? (Object) elem.getNumericId() : elem.getId();
+				break;
+			case 1:
+				result = elem.getUid();
+				break;
+			case 2:
+				result = getTimestamp(elem);
+				break;
+			case 3:
+				result = elem.isVisible();
+				break;
+			case 4:
+				result = elem.getVersion();
+				break;
+			case 5:
+				result = elem.getChangeset();
+				break;
+			case TAGS_COLUMN:
+				result = (isColumnRead(TAGS_COLUMN)) ? elem.getTags() : null;
+				break;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Creates the members of a relation, as expected in the Members column.
+	 * @param relation The relation to use
+	 * @return The relation itself (read by its object inspector), or the members map with {@link #MEMBERS_MAP}
+	 */
+	protected Object createMembers(Relation relation) {
+		return (membersMap) ? createMemberMap(relation) : relation;
+	}
+	
+	/**
+	 * Creates the members map of a relation, with {@link #MEMBERS_MAP}. For duplicate members, the first role is kept.
+	 * @param relation The relation to use
+	 * @return The map of members IDs and roles
+	 */
+	protected Map<String,String> createMemberMap(Relation relation) {
+		int count = relation.getMembersCount();
+		Map<String,String> members = new HashMap<String,String>();
+		
+		for(int i=0; i < count; i++) {
+			String e = relation.getMemberType(i)+Long.toString(relation.getMemberRef(i));
+			
+			//Role
+			String role = relation.getMemberRole(i);
+			if(role.equals("")) { role = "null"; }
+			
+			if(!members.containsKey(e)) {
+				members.put(e, role);
+			}
+		}
+		
+		return members;
 	}
 	
 	@Override
-	public void close() throws HiveException {;}
+	public void process(Object[] args) throws HiveException {
+		if(records == 0) {
+			checkSplitStart();
+		}
+		
+		try {
+			//Only one record in TIMING_SAMPLE is timed, to keep System.nanoTime() off most calls
+			Element current;
+			if((records++ & (TIMING_SAMPLE - 1)) == 0) {
+				long start = System.nanoTime();
+				current = preprocess(args);
+				statistics.add(ImportStatistics.PARSE_NANOS, (System.nanoTime() - start) * TIMING_SAMPLE);
+			}
+			else {
+				current = preprocess(args);
+			}
+			
+			//Check if element is valid
+			if(current != null) {
+				if((rows++ & (TIMING_SAMPLE - 1)) == 0) {
+					long start = System.nanoTime();
+					processElement(current);
+					statistics.add(ImportStatistics.ROW_NANOS, (System.nanoTime() - start) * TIMING_SAMPLE);
+				}
+				else {
+					processElement(current);
+				}
+			}
+		} catch (InvalidMarkupException e) {
+			throw new HiveException(e);
+		}
+		
+		if(statistics.get(ImportStatistics.LINES_READ) >= nextPublish) {
+			publishStatistics();
+			nextPublish = statistics.get(ImportStatistics.LINES_READ) + PUBLISH_INTERVAL;
+		}
+	}
+	
+	/**
+	 * Forwards an element as a row, and counts it in statistics.
+	 * @param current The element to forward
+	 * @throws HiveException If the row can't be forwarded
+	 */
+	protected void forwardElement(Element current) throws HiveException {
+		statistics.increment(ImportStatistics.ELEMENTS_EMITTED);
+		forward(current);
+	}
+	
+	/**
+	 * Publishes statistics as Hadoop counters, if running in a task.
+	 */
+	protected void publishStatistics() {
+		if(statistics != null && context != null && context.getReporter() != null) {
+			statistics.publish(context.getReporter());
+		}
+	}
+	
+	/**
+	 * Forwards the given element as a row, if the importer handles its type.
+	 * It is used for parsed lines, and for already decoded elements (for example from PBF files).
+	 * @param current The element to import
+	 * @throws HiveException If the row can't be forwarded
+	 */
+	public abstract void processElement(Element current) throws HiveException;
+	
+	@Override
+	public void close() throws HiveException {
+		publishStatistics();
+		
+		if(locations != null) {
+			try {
+				locations.close();
+			} catch (IOException e) {
+				throw new HiveException(e);
+			}
+			locations = null;
+		}
+	}
 }
\ No newline at end of file
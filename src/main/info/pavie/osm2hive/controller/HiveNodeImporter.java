@@ -1,6 +1,6 @@
 /*
  * Copyright 2015 Adrien PAVIE
- *
+ * 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -18,16 +18,13 @@ package info.pavie.osm2hive.controller;
 
 import info.pavie.osm2hive.model.osm.Element;
 import info.pavie.osm2hive.model.osm.Node;
-import info.pavie.osm2hive.model.xml.InvalidMarkupException;
 
 import java.util.ArrayList;
 
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 
 /**
  * This class reads an OSM XML file, and creates rows for Hive (Nodes only).
@@ -45,6 +42,7 @@ public class HiveNodeImporter extends HiveImporter {
 	public StructObjectInspector initialize(ObjectInspector[] argOIs) throws UDFArgumentException {
 		//Check hive function call
 		checkParameterOI(argOIs);
+		filter = createFilter("node", "tag");
 		
 		//Expected output columns
 		ArrayList<String> fieldNames = getCommonFieldNames();
@@ -53,30 +51,36 @@ public class HiveNodeImporter extends HiveImporter {
 		
 		//Expected output types
 		ArrayList<ObjectInspector> fieldOIs = getCommonFieldOIs();
-		fieldOIs.add(PrimitiveObjectInspectorFactory.javaDoubleObjectInspector);
-		fieldOIs.add(PrimitiveObjectInspectorFactory.javaDoubleObjectInspector);
+		fieldOIs.add(getCoordinateOI());
+		fieldOIs.add(getCoordinateOI());
 		
-		return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldOIs);
+		return createRowOI(fieldNames, fieldOIs);
 	}
 	
 	@Override
-	public void process(Object[] args) throws HiveException {
-		try {
-			Element current = preprocess(args, "node|tag");
-			
-			//Check if element is valid and is a node
-			if(current != null && current instanceof Node) {
-				//Create result
-				Object[] currentRow = new Object[9];
-				fillRow(currentRow, current);
-				currentRow[7] = ((Node) current).getLat();
-				currentRow[8] = ((Node) current).getLon();
-				
-				//Send result
-				forward(currentRow);
-			}
-		} catch (InvalidMarkupException e) {
-			throw new HiveException(e);
+	public void processElement(Element current) throws HiveException {
+		//Check if element is a node
+		if(current instanceof Node) {
+			//Send result, columns are read from node
+			forwardElement(current);
 		}
 	}
+	
+	@Override
+	public Object getColumn(Element element, int column) {
+		Object result;
+		
+		switch(column) {
+			case 7:
+				result = getLatitude((Node) element);
+				break;
+			case 8:
+				result = getLongitude((Node) element);
+				break;
+			default:
+				result = getCommonColumn(element, column);
+		}
+		
+		return result;
+	}
 }
\ No newline at end of file
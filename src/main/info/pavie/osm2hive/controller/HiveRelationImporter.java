@@ -1,6 +1,6 @@
 /*
  * Copyright 2015 Adrien PAVIE
- *
+ * 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -18,18 +18,13 @@ package info.pavie.osm2hive.controller;
 
 import info.pavie.osm2hive.model.osm.Element;
 import info.pavie.osm2hive.model.osm.Relation;
-import info.pavie.osm2hive.model.xml.InvalidMarkupException;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 
 /**
  * This class reads an OSM XML file, and creates rows for Hive (Ways only).
@@ -47,6 +42,7 @@ public class HiveRelationImporter extends HiveImporter {
 	public StructObjectInspector initialize(ObjectInspector[] argOIs) throws UDFArgumentException {
 		//Check hive function call
 		checkParameterOI(argOIs);
+		filter = createFilter("relation", "tag", "member");
 		
 		//Expected output columns
 		ArrayList<String> fieldNames = getCommonFieldNames();
@@ -54,41 +50,32 @@ public class HiveRelationImporter extends HiveImporter {
 		
 		//Expected output types
 		ArrayList<ObjectInspector> fieldOIs = getCommonFieldOIs();
-		fieldOIs.add(ObjectInspectorFactory.getStandardMapObjectInspector(
-				PrimitiveObjectInspectorFactory.javaStringObjectInspector,
-				PrimitiveObjectInspectorFactory.javaStringObjectInspector));
+		fieldOIs.add(getMembersOI());
 		
-		return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldOIs);
+		return createRowOI(fieldNames, fieldOIs);
+	}
+	
+	@Override
+	public void processElement(Element current) throws HiveException {
+		//Check if element is a relation
+		if(current instanceof Relation) {
+			//Send result, columns are read from relation
+			forwardElement(current);
+		}
 	}
 	
 	@Override
-	public void process(Object[] args) throws HiveException {
-		try {
-			Element current = preprocess(args, "relation|tag|member");
-			
-			//Check if element is valid and is a node
-			if(current != null && current instanceof Relation) {
-				//Create result
-				Object[] currentRow = new Object[8];
-				fillRow(currentRow, current);
-				
-				//Create members map
-				Map<String,String> members = new HashMap<String,String>();
-				for(String e : ((Relation) current).getMembers()) {
-					//Role
-					String role = ((Relation) current).getMemberRole(e);
-					if(role.equals("")) { role = "null"; }
-					
-					members.put(e, role);
-				}
-				
-				currentRow[7] = members;
-				
-				//Send result
-				forward(currentRow);
-			}
-		} catch (InvalidMarkupException e) {
-			throw new HiveException(e);
+	public Object getColumn(Element element, int column) {
+		Object result;
+		
+		//Create members, only when read
+		if(column == 7) {
+			result = (isColumnRead(7)) ? createMembers((Relation) element) : null;
 		}
+		else {
+			result = getCommonColumn(element, column);
+		}
+		
+		return result;
 	}
 }
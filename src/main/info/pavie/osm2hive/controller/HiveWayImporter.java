@@ -1,6 +1,6 @@
 /*
  * Copyright 2015 Adrien PAVIE
- *
+ * 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -17,16 +17,14 @@
 package info.pavie.osm2hive.controller;
 
 import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
 import info.pavie.osm2hive.model.osm.Way;
-import info.pavie.osm2hive.model.xml.InvalidMarkupException;
 
 import java.util.ArrayList;
-import java.util.List;
 
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 
@@ -38,6 +36,11 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectIn
  * CREATE TABLE osmdata(osm_content STRING) STORED AS TEXTFILE;
  * LOAD DATA LOCAL INPATH '/path/to/data.osm' OVERWRITE INTO TABLE osmdata;
  * CREATE TABLE osmways AS SELECT OSMImportWays(osm_content) FROM osmdata;
+ * With the way_geometry option (OSMImportWays(osm_content, 'way_geometry')), ways also have a Geometry column,
+ * containing their WKB linestring. Node locations are indexed while reading the nodes, so nodes must be read
+ * by the same task before the ways (whole file in a single split, or the import fails). Geometry is null if a node
+ * location is unknown, such ways being counted in {@link ImportStatistics#UNRESOLVED_WAY_GEOMETRIES}.
+ * The dense_index option stores the node locations index in a memory-mapped file, for planet files.
  * @author Adrien PAVIE
  */
 public class HiveWayImporter extends HiveImporter {
@@ -53,37 +56,50 @@ public class HiveWayImporter extends HiveImporter {
 		
 		//Expected output types
 		ArrayList<ObjectInspector> fieldOIs = getCommonFieldOIs();
-		fieldOIs.add(ObjectInspectorFactory.getStandardListObjectInspector(
-				PrimitiveObjectInspectorFactory.javaStringObjectInspector));
+		fieldOIs.add(getNodesOI());
+		
+		//Way geometry, using nodes read before ways
+		if(wayGeometry) {
+			filter = createFilter("node", "way", "tag", "nd");
+			fieldNames.add("Geometry");
+			fieldOIs.add(PrimitiveObjectInspectorFactory.javaByteArrayObjectInspector);
+		}
+		else {
+			filter = createFilter("way", "tag", "nd");
+		}
 		
-		return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldOIs);
+		return createRowOI(fieldNames, fieldOIs);
 	}
 	
 	@Override
-	public void process(Object[] args) throws HiveException {
-		try {
-			Element current = preprocess(args, "way|tag|nd");
-			
-			//Check if element is valid and is a node
-			if(current != null && current instanceof Way) {
-				//Create result
-				Object[] currentRow = new Object[8];
-				fillRow(currentRow, current);
-				
-				//Create nodes list
-				List<String> nodeList = new ArrayList<String>();
-				
-				for(String n : ((Way) current).getNodes()) {
-					nodeList.add(n);
-				}
-				
-				currentRow[7] = nodeList;
-				
-				//Send result
-				forward(currentRow);
-			}
-		} catch (InvalidMarkupException e) {
-			throw new HiveException(e);
+	public void processElement(Element current) throws HiveException {
+		//Check if element is a way
+		if(current instanceof Way) {
+			//Send result, columns are read from way
+			createGeometry((Way) current, 8);
+			forwardElement(current);
 		}
+		//Nodes are only read for way geometries
+		else if(current instanceof Node) {
+			indexLocation((Node) current);
+		}
+	}
+	
+	@Override
+	public Object getColumn(Element element, int column) {
+		Object result;
+		
+		//Nodes list, read from way by its object inspector
+		if(column == 7) {
+			result = (isColumnRead(7)) ? element : null;
+		}
+		else if(column == 8) {
+			result = geometry;
+		}
+		else {
+			result = getCommonColumn(element, column);
+		}
+		
+		return result;
 	}
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * Import statistics count the work done while importing OSM XML data: read lines, lines rejected by the markup filter,
+ * parsed markups by element name, emitted elements, dropped elements by reason, time spent parsing markups and forwarding rows,
+ * ways whose geometry can't be created, and records read by the input formats of {@link OSMSerDe} tables.
+ * They are filled by {@link OSMParser}, the Hive importers and the record readers, which publish them as Hadoop counters
+ * in the {@link #COUNTER_GROUP} group, visible in the job UI. Programs can read them with {@link OSMParser#getStatistics()}.
+ * Statistics are not thread-safe: each parser has its own.
+ * @author Adrien PAVIE
+ */
+public class ImportStatistics {
+//CONSTANTS
+	/** The group of published Hadoop counters **/
+	public static final String COUNTER_GROUP = "OSM2Hive";
+	
+	/** Counter of lines given to the importer **/
+	public static final int LINES_READ = 0;
+	
+	/** Counter of lines rejected by the importer markup filter, without being parsed **/
+	public static final int LINES_FILTERED = 1;
+	
+	/** Counters of parsed markups, by element name (start and end markups of an element both count) **/
+	public static final int NODE_MARKUPS = 2;
+	public static final int WAY_MARKUPS = 3;
+	public static final int RELATION_MARKUPS = 4;
+	public static final int TAG_MARKUPS = 5;
+	public static final int ND_MARKUPS = 6;
+	public static final int MEMBER_MARKUPS = 7;
+	
+	/** Counter of parsed markups of other elements (osm, bounds, XML declaration...) **/
+	public static final int OTHER_MARKUPS = 8;
+	
+	/** Counter of elements completely parsed **/
+	public static final int ELEMENTS_PARSED = 9;
+	
+	/** Counter of elements forwarded as rows **/
+	public static final int ELEMENTS_EMITTED = 10;
+	
+	/** Counter of end markups without a matching element (node, way or relation) **/
+	public static final int DROPPED_UNMATCHED_END = 11;
+	
+	/** Counter of ways dropped because they have less than 2 nodes **/
+	public static final int DROPPED_SHORT_WAYS = 12;
+	
+	/** Counter of relations dropped because they have no member **/
+	public static final int DROPPED_EMPTY_RELATIONS = 13;
+	
+	/** Counter of nanoseconds spent parsing records, from lines to elements (estimated from sampled records) **/
+	public static final int PARSE_NANOS = 14;
+	
+	/** Counter of nanoseconds spent forwarding rows, including columns creation by the Hive operators reading them (estimated from sampled rows) **/
+	public static final int ROW_NANOS = 15;
+	
+	/** Counter of ways with a null geometry, as a node location is unknown (with the way_geometry option) **/
+	public static final int UNRESOLVED_WAY_GEOMETRIES = 16;
+	
+	/** Counter of records read by the input formats of {@link OSMSerDe} tables (elements, or rows of vectorized batches) **/
+	public static final int RECORDS_READ = 17;
+	
+	/** The counters names, by index **/
+	private static final String[] NAMES = {
+		"LINES_READ", "LINES_FILTERED",
+		"NODE_MARKUPS", "WAY_MARKUPS", "RELATION_MARKUPS", "TAG_MARKUPS", "ND_MARKUPS", "MEMBER_MARKUPS", "OTHER_MARKUPS",
+		"ELEMENTS_PARSED", "ELEMENTS_EMITTED",
+		"DROPPED_UNMATCHED_END", "DROPPED_SHORT_WAYS", "DROPPED_EMPTY_RELATIONS",
+		"PARSE_NANOS", "ROW_NANOS", "UNRESOLVED_WAY_GEOMETRIES", "RECORDS_READ"
+	};
+	
+	/** Amount of counters **/
+	public static final int COUNTERS = NAMES.length;
+
+//ATTRIBUTES
+	/** The counters values **/
+	private final long[] values;
+	
+	/** The counters values already published as Hadoop counters **/
+	private final long[] published;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor, with all counters set to 0
+	 */
+	public ImportStatistics() {
+		values = new long[COUNTERS];
+		published = new long[COUNTERS];
+	}
+
+//ACCESSORS
+	/**
+	 * @param counter The counter index, for example {@link #LINES_READ}
+	 * @return The counter value
+	 */
+	public long get(int counter) {
+		return values[counter];
+	}
+	
+	/**
+	 * @param counter The counter index, for example {@link #LINES_READ}
+	 * @return The counter name, as published in Hadoop counters
+	 */
+	public static String getName(int counter) {
+		return NAMES[counter];
+	}
+	
+	/**
+	 * @return The counters values, by name (in counters order)
+	 */
+	public Map<String,Long> toMap() {
+		Map<String,Long> result = new LinkedHashMap<String,Long>();
+		for(int i=0; i < COUNTERS; i++) {
+			result.put(NAMES[i], values[i]);
+		}
+		return result;
+	}
+	
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+
+//MODIFIERS
+	/**
+	 * Adds 1 to a counter.
+	 * @param counter The counter index
+	 */
+	public void increment(int counter) {
+		values[counter]++;
+	}
+	
+	/**
+	 * Adds an amount to a counter.
+	 * @param counter The counter index
+	 * @param amount The amount to add
+	 */
+	public void add(int counter, long amount) {
+		values[counter] += amount;
+	}
+
+//OTHER METHODS
+	/**
+	 * @return A copy of the current counters values, not updated anymore
+	 */
+	public ImportStatistics snapshot() {
+		ImportStatistics result = new ImportStatistics();
+		System.arraycopy(values, 0, result.values, 0, COUNTERS);
+		return result;
+	}
+	
+	/**
+	 * Publishes the counters as Hadoop counters. Only the increase since the last call is added,
+	 * so this can be called several times during a task.
+	 * @param reporter The task reporter
+	 */
+	public void publish(Reporter reporter) {
+		for(int i=0; i < COUNTERS; i++) {
+			long delta = values[i] - published[i];
+			if(delta != 0) {
+				reporter.incrCounter(COUNTER_GROUP, NAMES[i], delta);
+				published[i] = values[i];
+			}
+		}
+	}
+}
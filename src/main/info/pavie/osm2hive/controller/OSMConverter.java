@@ -0,0 +1,294 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Way;
+import info.pavie.osm2hive.model.xml.InvalidMarkupException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This class converts a local OSM XML file into node, way and relation tables, outside of Hive.
+ * The file is parsed by chunks on all processors with a {@link ParallelOSMParser}, and elements are written
+ * with {@link ElementWriter}s as Hive text files, in three directories (nodes, ways and relations) which can be
+ * used as table locations. Each chunk writes its own file in each directory, files being named in chunk order.
+ * Files can also be written as ORC files with {@link OrcElementWriter}s, for tables STORED AS ORC,
+ * or as Parquet files with {@link ParquetElementWriter}s.
+ * To use it (options being separated by commas) :
+ * java -cp osm2hive.jar info.pavie.osm2hive.controller.OSMConverter data.osm output/directory [numeric_ids,orc|parquet,row_group_size=134217728]
+ * @author Adrien PAVIE
+ */
+public class OSMConverter {
+//CONSTANTS
+	/** Names of the written files in each table directory, from chunk index **/
+	public static final String DATA_FILE = "%06d_0";
+	
+	/** Text file format, see {@link ElementWriter} **/
+	public static final String TEXT = "text";
+	
+	/** ORC file format, see {@link OrcElementWriter} **/
+	public static final String ORC = "orc";
+	
+	/** Parquet file format, see {@link ParquetElementWriter} **/
+	public static final String PARQUET = "parquet";
+	
+	/** Option prefix giving the Parquet row group size, in bytes **/
+	public static final String ROW_GROUP_SIZE = "row_group_size=";
+	
+	/** Names of the written tables **/
+	private static final String[] TABLES = { "nodes", "ways", "relations" };
+	
+	/** Types of elements in written tables **/
+	private static final char[] TABLE_TYPES = { Element.NODE, Element.WAY, Element.RELATION };
+
+//ATTRIBUTES
+	/** The OSM XML file to read **/
+	private final File input;
+	
+	/** The directory of created tables **/
+	private final File output;
+	
+	/** Are IDs written as numbers ? **/
+	private final boolean numericIds;
+	
+	/** The format of written files **/
+	private final String format;
+	
+	/** The amount of parsing threads **/
+	private final int threads;
+	
+	/** The size of Parquet row groups **/
+	private int rowGroupSize;
+	
+	/** The amount of read bytes **/
+	private long readBytes;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor, writing text files and using all available processors
+	 * @param input The OSM XML file to read
+	 * @param output The directory of created tables
+	 * @param numericIds True to write IDs as numbers (see {@link HiveImporter#NUMERIC_IDS})
+	 */
+	public OSMConverter(File input, File output, boolean numericIds) {
+		this(input, output, numericIds, TEXT, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Class constructor
+	 * @param input The OSM XML file to read
+	 * @param output The directory of created tables
+	 * @param numericIds True to write IDs as numbers (see {@link HiveImporter#NUMERIC_IDS})
+	 * @param format The format of written files ({@link #TEXT}, {@link #ORC} or {@link #PARQUET})
+	 * @param threads The amount of parsing threads
+	 */
+	public OSMConverter(File input, File output, boolean numericIds, String format, int threads) {
+		if(!format.equals(TEXT) && !format.equals(ORC) && !format.equals(PARQUET)) {
+			throw new IllegalArgumentException("Unknown file format: "+format);
+		}
+		
+		this.input = input;
+		this.output = output;
+		this.numericIds = numericIds;
+		this.format = format;
+		this.threads = threads;
+		this.rowGroupSize = ParquetElementWriter.DEFAULT_ROW_GROUP_SIZE;
+		this.readBytes = 0;
+	}
+
+//ACCESSORS
+	/**
+	 * @return The amount of bytes read by the last conversion
+	 */
+	public long getReadBytes() {
+		return readBytes;
+	}
+
+//MODIFIERS
+	/**
+	 * Changes the size of Parquet row groups, {@link ParquetElementWriter#DEFAULT_ROW_GROUP_SIZE} by default.
+	 * @param rowGroupSize The size of row groups, in bytes
+	 */
+	public void setRowGroupSize(int rowGroupSize) {
+		if(rowGroupSize <= 0) {
+			throw new IllegalArgumentException("Invalid row group size: "+rowGroupSize);
+		}
+		this.rowGroupSize = rowGroupSize;
+	}
+
+//OTHER METHODS
+	/**
+	 * Converts the input file.
+	 * @return The amount of written rows, for nodes, ways and relations
+	 * @throws IOException If a file can't be read or written
+	 * @throws InvalidMarkupException If the input file contains an invalid markup
+	 */
+	public long[] convert() throws IOException, InvalidMarkupException {
+		for(String table : TABLES) {
+			File directory = new File(output, table);
+			if(!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Can't create directory "+directory);
+			}
+		}
+		
+		ParallelOSMParser<ChunkWriters> parser = new ParallelOSMParser<ChunkWriters>(input, threads, ParallelOSMParser.DEFAULT_CHUNK) {
+			@Override
+			protected ChunkWriters startChunk(int chunk) {
+				return new ChunkWriters(chunk);
+			}
+	
+			@Override
+			protected void handle(ChunkWriters writers, Element element) throws IOException {
+				writers.write(element);
+			}
+			
+			@Override
+			protected void endChunk(ChunkWriters writers) throws IOException {
+				writers.close();
+			}
+		};
+		
+		List<ChunkWriters> chunks = parser.parse();
+		readBytes = parser.getSize();
+		
+		long[] rows = new long[TABLES.length];
+		for(ChunkWriters writers : chunks) {
+			for(int i=0; i < TABLES.length; i++) {
+				rows[i] += writers.getRows(i);
+			}
+		}
+		
+		return rows;
+	}
+	
+	/**
+	 * Converts an OSM XML file.
+	 * @param args The input file, the output directory, and optionally options separated by commas
+	 * (numeric_ids, orc, parquet, row_group_size=bytes)
+	 * @throws Exception If the conversion fails
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean numericIds = false;
+		String format = TEXT;
+		int rowGroupSize = ParquetElementWriter.DEFAULT_ROW_GROUP_SIZE;
+		boolean valid = args.length == 2 || args.length == 3;
+		
+		if(args.length == 3) {
+			for(String option : args[2].split(",")) {
+				option = option.trim();
+				
+				if(option.equals(HiveImporter.NUMERIC_IDS)) {
+					numericIds = true;
+				}
+				else if(option.equals(ORC) || option.equals(PARQUET)) {
+					format = option;
+				}
+				else if(option.startsWith(ROW_GROUP_SIZE) && option.length() > ROW_GROUP_SIZE.length()) {
+					rowGroupSize = Integer.parseInt(option.substring(ROW_GROUP_SIZE.length()));
+				}
+				else {
+					valid = false;
+				}
+			}
+		}
+		
+		if(!valid) {
+			System.err.println("Usage: OSMConverter data.osm output/directory [numeric_ids,orc|parquet,row_group_size=bytes]");
+			System.exit(1);
+		}
+		
+		OSMConverter converter = new OSMConverter(new File(args[0]), new File(args[1]), numericIds, format, Runtime.getRuntime().availableProcessors());
+		converter.setRowGroupSize(rowGroupSize);
+		long start = System.nanoTime();
+		long[] rows = converter.convert();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		
+		System.err.println("Nodes: "+rows[0]+", ways: "+rows[1]+", relations: "+rows[2]);
+		System.err.printf("Read %.1f MB in %.2f s (%.1f MB/s)%n", converter.getReadBytes() / 1e6, seconds, converter.getReadBytes() / 1e6 / seconds);
+	}
+
+//INNER CLASS ChunkWriters
+	/**
+	 * The table writers of a chunk. Files are only created for tables having rows in the chunk.
+	 */
+	private class ChunkWriters {
+	//ATTRIBUTES
+		/** The chunk index **/
+		private final int chunk;
+		/** The writers, by table **/
+		private final TableWriter[] writers;
+	
+	//CONSTRUCTOR
+		private ChunkWriters(int chunk) {
+			this.chunk = chunk;
+			this.writers = new TableWriter[TABLES.length];
+		}
+	
+	//ACCESSORS
+		/**
+		 * @param table The table index
+		 * @return The amount of rows written in table
+		 */
+		private long getRows(int table) {
+			return (writers[table] == null) ? 0 : writers[table].getRows();
+		}
+	
+	//OTHER METHODS
+		/**
+		 * Writes an element in its table.
+		 * @param e The element
+		 * @throws IOException If the table file can't be created or written
+		 */
+		private void write(Element e) throws IOException {
+			int table = (e instanceof Node) ? 0 : ((e instanceof Way) ? 1 : 2);
+			
+			if(writers[table] == null) {
+				File f = new File(new File(output, TABLES[table]), String.format(DATA_FILE, chunk));
+				
+				switch(format) {
+					case ORC:
+						writers[table] = new OrcElementWriter(f, TABLE_TYPES[table], numericIds);
+						break;
+					case PARQUET:
+						writers[table] = new ParquetElementWriter(f, TABLE_TYPES[table], numericIds, rowGroupSize);
+						break;
+					default:
+						writers[table] = new ElementWriter(new FileOutputStream(f), numericIds);
+				}
+			}
+			writers[table].write(e);
+		}
+		
+		/**
+		 * Closes the created writers.
+		 * @throws IOException If a file can't be closed
+		 */
+		private void close() throws IOException {
+			for(TableWriter writer : writers) {
+				if(writer != null) {
+					writer.close();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.JobConfigurable;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * This input format reads OSM PBF files, one OSM element (node, way or relation) per record.
+ * Each OSMData blob of a PBF file can be decompressed and decoded alone, so files are split as usual,
+ * and each split reads the blobs starting in it. This way, blobs of a file are decoded in parallel by several tasks.
+ * With the way_geometry option of {@link OSMSerDe}, files are not split, as ways need the nodes read before them.
+ * Records are decoded {@link ElementWritable}s, which are read by {@link OSMSerDe}.
+ * To use it in Hive :
+ * CREATE EXTERNAL TABLE osmelements ROW FORMAT SERDE 'info.pavie.osm2hive.controller.OSMSerDe'
+ *   STORED AS INPUTFORMAT 'info.pavie.osm2hive.controller.OSMPBFInputFormat'
+ *   OUTPUTFORMAT 'org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat'
+ *   LOCATION '/path/to/pbf/directory';
+ * @author Adrien PAVIE
+ */
+public class OSMPBFInputFormat extends FileInputFormat<LongWritable, ElementWritable> implements JobConfigurable {
+//ATTRIBUTES
+	/** Are files read as a single split, for way geometries ? **/
+	private boolean wholeFiles;
+
+//OTHER METHODS
+	@Override
+	public void configure(JobConf conf) {
+		wholeFiles = OSMSerDe.hasOption(conf, HiveImporter.WAY_GEOMETRY);
+	}
+	
+	@Override
+	protected boolean isSplitable(FileSystem fs, Path file) {
+		return !wholeFiles;
+	}
+	
+	@Override
+	public RecordReader<LongWritable, ElementWritable> getRecordReader(InputSplit split, JobConf job, Reporter reporter) throws IOException {
+		reporter.setStatus(split.toString());
+		OSMPBFRecordReader result = new OSMPBFRecordReader(job, (FileSplit) split);
+		result.setReporter(reporter);
+		return result;
+	}
+}
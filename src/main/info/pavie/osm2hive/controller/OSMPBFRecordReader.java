@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.pbf.Blob;
+import info.pavie.osm2hive.model.pbf.BlobReader;
+import info.pavie.osm2hive.model.pbf.BlockDecoder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * This record reader reads the OSM elements of a PBF file split, for {@link OSMPBFInputFormat}.
+ * It decodes the blobs starting in the split, even if they end after the split end.
+ * Only the elements of the table type are returned (see {@link OSMSerDe#getElementNames(org.apache.hadoop.conf.Configuration)}).
+ * Keys are the positions in file of the blobs containing the elements, values are the elements.
+ * Decoded elements and read records are counted in {@link ImportStatistics}, published with the task reporter
+ * (see {@link #setReporter(Reporter)}).
+ * @author Adrien PAVIE
+ */
+public class OSMPBFRecordReader implements RecordReader<LongWritable, ElementWritable> {
+//ATTRIBUTES
+	/** The split start position **/
+	private long start;
+	
+	/** The split end position **/
+	private long end;
+	
+	/** The blobs reader **/
+	private BlobReader reader;
+	
+	/** The blocks decoder **/
+	private BlockDecoder decoder;
+	
+	/** The position of the current blob **/
+	private long blobPosition;
+	
+	/** The elements of the current blob **/
+	private List<Element> elements;
+	
+	/** The index of the next element to return **/
+	private int elementIndex;
+
+	/** The type codes of the returned elements **/
+	private String types;
+
+	/** The import statistics **/
+	private final ImportStatistics statistics;
+	
+	/** The task reporter, publishing statistics as Hadoop counters **/
+	private Reporter reporter;
+	
+	/** The amount of read records at which statistics are published next **/
+	private long nextPublish;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param job The job configuration
+	 * @param split The split to read
+	 * @throws IOException If the file can't be opened, or the element type is unknown
+	 */
+	public OSMPBFRecordReader(JobConf job, FileSplit split) throws IOException {
+		start = split.getStart();
+		end = start + split.getLength();
+		
+		//Open file at split start, reader looks for the first blob starting there
+		Path file = split.getPath();
+		FileSystem fs = file.getFileSystem(job);
+		FSDataInputStream fileIn = fs.open(file);
+		fileIn.seek(start);
+		reader = new BlobReader(fileIn, start, end);
+		decoder = new BlockDecoder();
+		
+		elements = Collections.emptyList();
+		elementIndex = 0;
+		
+		types = "";
+		for(String name : OSMSerDe.getElementNames(job)) {
+			types += Element.getType(name);
+		}
+		
+		statistics = new ImportStatistics();
+		reporter = Reporter.NULL;
+		nextPublish = HiveImporter.PUBLISH_INTERVAL;
+	}
+
+//ACCESSORS
+	@Override
+	public LongWritable createKey() {
+		return new LongWritable();
+	}
+	
+	@Override
+	public ElementWritable createValue() {
+		return new ElementWritable();
+	}
+	
+	@Override
+	public long getPos() throws IOException {
+		return reader.getPosition();
+	}
+	
+	@Override
+	public float getProgress() throws IOException {
+		return (end == start) ? 0.0f : Math.max(0.0f, Math.min(1.0f, (reader.getPosition() - start) / (float) (end - start)));
+	}
+
+	/**
+	 * @return A snapshot of the import statistics
+	 */
+	public ImportStatistics getStatistics() {
+		return statistics.snapshot();
+	}
+
+//MODIFIERS
+	/**
+	 * Sets the reporter publishing statistics as Hadoop counters, every {@link HiveImporter#PUBLISH_INTERVAL} records and on close.
+	 * @param reporter The task reporter
+	 */
+	public void setReporter(Reporter reporter) {
+		this.reporter = reporter;
+	}
+
+//OTHER METHODS
+	@Override
+	public boolean next(LongWritable key, ElementWritable value) throws IOException {
+		Element current = null;
+		
+		while(current == null) {
+			//Decode next data blob when current one is done
+			while(elementIndex == elements.size()) {
+				Blob blob = reader.next();
+				if(blob == null) {
+					return false;
+				}
+				
+				if(Blob.HEADER.equals(blob.getType())) {
+					BlockDecoder.checkHeader(blob.getData());
+				}
+				else if(Blob.DATA.equals(blob.getType())) {
+					blobPosition = blob.getPosition();
+					elements = decoder.decode(blob.getData());
+					elementIndex = 0;
+					statistics.add(ImportStatistics.ELEMENTS_PARSED, elements.size());
+				}
+			}
+			
+			//Skip elements of other types
+			current = elements.get(elementIndex++);
+			if(types.indexOf(current.getType()) < 0) {
+				current = null;
+			}
+		}
+		
+		key.set(blobPosition);
+		value.set(current);
+		
+		statistics.increment(ImportStatistics.RECORDS_READ);
+		if(statistics.get(ImportStatistics.RECORDS_READ) >= nextPublish) {
+			statistics.publish(reporter);
+			nextPublish += HiveImporter.PUBLISH_INTERVAL;
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		statistics.publish(reporter);
+		reader.close();
+	}
+}
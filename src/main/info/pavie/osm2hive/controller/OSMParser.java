@@ -19,13 +19,19 @@ package info.pavie.osm2hive.controller;
 import info.pavie.osm2hive.model.osm.Element;
 import info.pavie.osm2hive.model.osm.Node;
 import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Timestamps;
 import info.pavie.osm2hive.model.osm.Way;
 import info.pavie.osm2hive.model.xml.InvalidMarkupException;
 import info.pavie.osm2hive.model.xml.Markup;
+import info.pavie.osm2hive.model.xml.StringPool;
 
 /**
  * This class parses OSM XML file, line by line.
  * It uses the XML {@link Markup} parser, and create {@link Element}s objects.
+ * In reuse mode, the same markup and element objects are refilled for each line, instead of creating new ones.
+ * A parsed element is then only valid until the next element starts, so it must be used or copied before.
+ * Tag keys and frequent tag values are shared through string pools, kept for the parser lifetime.
+ * Parsed markups, parsed elements and dropped elements are counted in {@link ImportStatistics}.
  * @author Adrien PAVIE
  */
 public class OSMParser {
@@ -39,6 +45,26 @@ public class OSMParser {
 	/** Is the current element ready (ie completely parsed) ? **/
 	private boolean isCurrentReady;
 
+	/** The markup object, refilled for each line **/
+	private final Markup markup;
+	
+	/** The pool of tag keys **/
+	private final StringPool tagKeys;
+	
+	/** The pool of tag values **/
+	private final StringPool tagValues;
+	
+	/** Should element objects be reused ? **/
+	private final boolean reuseElements;
+	
+	/** The reused node, way and relation (only in reuse mode) **/
+	private Node reusedNode;
+	private Way reusedWay;
+	private Relation reusedRelation;
+
+	/** The statistics of this parser **/
+	private final ImportStatistics statistics;
+
 //TODO Remove, debug purposes only
 //	/** Last read lines **/
 //	private List<String> lastLines = new LinkedList<String>();
@@ -46,12 +72,34 @@ public class OSMParser {
 
 //CONSTRUCTORS
 	/**
-	 * Class constructor
+	 * Class constructor, creating a new object for each parsed element
 	 */
 	public OSMParser() {
+		this(false);
+	}
+	
+	/**
+	 * Class constructor
+	 * @param reuseElements If true, the same node, way and relation objects are refilled for each parsed element
+	 */
+	public OSMParser(boolean reuseElements) {
+		this(reuseElements, new ImportStatistics());
+	}
+	
+	/**
+	 * Class constructor, counting in the given statistics (for example, shared with an importer also counting lines)
+	 * @param reuseElements If true, the same node, way and relation objects are refilled for each parsed element
+	 * @param statistics The statistics to update
+	 */
+	public OSMParser(boolean reuseElements, ImportStatistics statistics) {
 		current = null;
 		lastParsed = null;
 		isCurrentReady = false;
+		markup = new Markup();
+		tagKeys = new StringPool();
+		tagValues = new StringPool();
+		this.reuseElements = reuseElements;
+		this.statistics = statistics;
 	}
 	
 //ACCESSORS
@@ -68,6 +116,13 @@ public class OSMParser {
 	public Element getCurrentElement() {
 		return (isCurrentReady) ? lastParsed : null;
 	}
+	
+	/**
+	 * @return A snapshot of the parser statistics (markups, parsed and dropped elements, and the counters of the importer using it)
+	 */
+	public ImportStatistics getStatistics() {
+		return statistics.snapshot();
+	}
 
 //OTHER METHODS
 	/**
@@ -102,7 +157,7 @@ public class OSMParser {
 	 * @throws InvalidMarkupException If the given line isn't a correct XML markup (see {@link Markup} for details)
 	 */
 	public void parse(String line) throws InvalidMarkupException {
-		Markup m = new Markup(line); //Parse the line
+		markup.parse(line); //Parse the line
 		
 		//TODO Remove, debug purposes only
 //		lastLines.add(line);
@@ -111,6 +166,30 @@ public class OSMParser {
 //		}
 		//ENDTODO
 		
+		processMarkup(markup);
+	}
+	
+	/**
+	 * Processes the current line, given as UTF-8 bytes (for example, from a Hadoop Text), without decoding it.
+	 * Only the attribute values stored in elements are decoded.
+	 * @param bytes The bytes containing the line
+	 * @param start The index of the line first byte
+	 * @param end The index after the line last byte
+	 * @throws InvalidMarkupException If the given line isn't a correct XML markup (see {@link Markup} for details)
+	 */
+	public void parse(byte[] bytes, int start, int end) throws InvalidMarkupException {
+		markup.parse(bytes, start, end);
+		processMarkup(markup);
+	}
+	
+	/**
+	 * Processes the parsed markup, taking account of previous entries.
+	 * @param m The markup
+	 * @throws InvalidMarkupException If the markup type is unknown
+	 */
+	private void processMarkup(Markup m) throws InvalidMarkupException {
+		statistics.increment(getMarkupCounter(m.getName()));
+		
 		switch(m.getType()) {
 			//Opening markup, for example <node>
 			case Markup.START:
@@ -136,7 +215,6 @@ public class OSMParser {
 				
 			//Declaration markup, for example <?xml version="1.0" ?>
 			case Markup.DECLARATION:
-				//Do nothing
 				break;
 				
 			default:
@@ -144,124 +222,182 @@ public class OSMParser {
 		}
 	}
 	
+	/**
+	 * @param name The markup name
+	 * @return The statistics counter of markups with this name (see {@link ImportStatistics#NODE_MARKUPS})
+	 */
+	private static int getMarkupCounter(String name) {
+		switch(name) {
+			case "node":
+				return ImportStatistics.NODE_MARKUPS;
+			case "way":
+				return ImportStatistics.WAY_MARKUPS;
+			case "relation":
+				return ImportStatistics.RELATION_MARKUPS;
+			case "tag":
+				return ImportStatistics.TAG_MARKUPS;
+			case "nd":
+				return ImportStatistics.ND_MARKUPS;
+			case "member":
+				return ImportStatistics.MEMBER_MARKUPS;
+			default:
+				return ImportStatistics.OTHER_MARKUPS;
+		}
+	}
+	
 	/**
 	 * Analyzes the start markup
 	 * @param m The markup to analyze
 	 */
 	private void startMarkup(Markup m) {
 		isCurrentReady = false;
+		String name = m.getName();
 		
 		//Case of node
-		if(m.getName().equals("node")) {
-			Node n = new Node(
-							Long.parseLong(m.getAttribute("id")),
-							Double.parseDouble(m.getAttribute("lat")),
-							Double.parseDouble(m.getAttribute("lon"))
-							);
-			n.setUser(m.getAttribute("user"));
-			
-			if(m.getAttribute("uid") != null) {
-				n.setUid(Long.parseLong(m.getAttribute("uid")));
-			}
+		if(name.equals("node")) {
+			long id = m.getLongAttribute("id");
+			int lat = m.getCoordinateAttribute("lat");
+			int lon = m.getCoordinateAttribute("lon");
+			Node n;
 			
-			n.setVisible(Boolean.parseBoolean(m.getAttribute("visible")));
-			
-			if(m.getAttribute("version") != null) {
-				n.setVersion(Integer.parseInt(m.getAttribute("version")));
+			if(reuseElements) {
+				if(reusedNode == null) {
+					reusedNode = new Node(id, 0, 0);
+				}
+				n = reusedNode;
 			}
-			
-			if(m.getAttribute("changeset") != null) {
-				n.setChangeset(Long.parseLong(m.getAttribute("changeset")));
+			else {
+				n = new Node(id, 0, 0);
 			}
+			n.resetFixed(id, lat, lon);
 			
-			n.setTimestamp(m.getAttribute("timestamp"));
+			readMetadata(n, m);
 			current = n;
 		}
 		//Case of way
-		else if(m.getName().equals("way")) {
-			Way w = new Way(Long.parseLong(m.getAttribute("id")));
-			w.setUser(m.getAttribute("user"));
-			
-			if(m.getAttribute("uid") != null) {
-				w.setUid(Long.parseLong(m.getAttribute("uid")));
-			}
-			
-			w.setVisible(Boolean.parseBoolean(m.getAttribute("visible")));
+		else if(name.equals("way")) {
+			long id = m.getLongAttribute("id");
+			Way w;
 			
-			if(m.getAttribute("version") != null) {
-				w.setVersion(Integer.parseInt(m.getAttribute("version")));
+			if(reuseElements) {
+				if(reusedWay == null) {
+					reusedWay = new Way(id);
+				}
+				w = reusedWay;
+				w.reset(id);
 			}
-			
-			if(m.getAttribute("changeset") != null) {
-				w.setChangeset(Long.parseLong(m.getAttribute("changeset")));
+			else {
+				w = new Way(id);
 			}
 			
-			w.setTimestamp(m.getAttribute("timestamp"));
+			readMetadata(w, m);
 			current = w;
 		}
 		//Case of way node
-		else if(m.getName().equals("nd")) {
+		else if(name.equals("nd")) {
 			if(current != null && current instanceof Way) {
-				((Way) current).addNode("N"+m.getAttribute("ref"));
+				((Way) current).addNode(m.getLongAttribute("ref"));
 			}
 		}
 		//Case of relation
-		else if(m.getName().equals("relation")) {
-			Relation r = new Relation(Long.parseLong(m.getAttribute("id")));
-			r.setUser(m.getAttribute("user"));
+		else if(name.equals("relation")) {
+			long id = m.getLongAttribute("id");
+			Relation r;
 			
-			if(m.getAttribute("uid") != null) {
-				r.setUid(Long.parseLong(m.getAttribute("uid")));
-			}
-			
-			r.setVisible(Boolean.parseBoolean(m.getAttribute("visible")));
-			
-			if(m.getAttribute("version") != null) {
-				r.setVersion(Integer.parseInt(m.getAttribute("version")));
+			if(reuseElements) {
+				if(reusedRelation == null) {
+					reusedRelation = new Relation(id);
+				}
+				r = reusedRelation;
+				r.reset(id);
 			}
-			
-			if(m.getAttribute("changeset") != null) {
-				r.setChangeset(Long.parseLong(m.getAttribute("changeset")));
+			else {
+				r = new Relation(id);
 			}
 			
-			r.setTimestamp(m.getAttribute("timestamp"));
+			readMetadata(r, m);
 			current = r;
 		}
 		//Case of relation member
-		else if(m.getName().equals("member")) {
+		else if(name.equals("member")) {
 			if(current != null && current instanceof Relation) {
-				String refMember = getId(m.getAttribute("type"), m.getAttribute("ref"));
+				char typeMember = Element.getType(m.getAttribute("type"));
 				
 				//Add member to relation
-				((Relation) current).addMember(m.getAttribute("role"), refMember);
+				((Relation) current).addMember(m.getAttribute("role"), typeMember, m.getLongAttribute("ref"));
 			}
 		}
 		//Case of tag
-		else if(m.getName().equals("tag")) {
+		else if(name.equals("tag")) {
 			if(current != null) {
-				current.addTag(m.getAttribute("k"), m.getAttribute("v"));
+				current.addTag(m.getAttribute("k", tagKeys), m.getAttribute("v", tagValues));
 			}
 		}
 	}
 	
 	/**
-	 * Analyzes the end markup.
+	 * Reads the metadata attributes common to all elements (user, uid, visible, version, changeset, timestamp).
+	 * @param e The element to fill
+	 * @param m The element start markup
+	 */
+	private void readMetadata(Element e, Markup m) {
+		e.setUser(m.getAttribute("user"));
+		
+		if(m.hasAttribute("uid")) {
+			e.setUid(m.getLongAttribute("uid"));
+		}
+		
+		e.setVisible(Boolean.parseBoolean(m.getAttribute("visible")));
+		
+		if(m.hasAttribute("version")) {
+			e.setVersion(m.getIntAttribute("version"));
+		}
+		
+		if(m.hasAttribute("changeset")) {
+			e.setChangeset(m.getLongAttribute("changeset"));
+		}
+		
+		//Timestamps in OSM form are read without creating a string
+		long time = m.getTimestampAttribute("timestamp");
+		if(time != Timestamps.UNKNOWN) {
+			e.setTime(time);
+		}
+		else {
+			e.setTimestamp(m.getAttribute("timestamp"));
+		}
+	}
+	
+	/**
+	 * Analyzes the end markup. Ways with less than 2 nodes, relations without members, and end markups
+	 * not matching the current element are dropped, and counted in statistics.
 	 * @param m The markup to analyze
 	 */
 	private void endMarkup(Markup m) {
-		if(m.getName().equals("node") || m.getName().equals("way") || m.getName().equals("relation")) {
+		String name = m.getName();
+		
+		if(name.equals("node") || name.equals("way") || name.equals("relation")) {
 			//Add element to list, and delete current
 			if(current != null) {
-				if( (m.getName().equals("way") && current instanceof Way && ((Way) current).getNodes().size() >= 2)
-						|| (m.getName().equals("node") && current instanceof Node)
-						|| (m.getName().equals("relation") && current instanceof Relation && ((Relation) current).getMembers().size() > 0)) {
+				if( (name.equals("way") && current instanceof Way && ((Way) current).getNodesCount() >= 2)
+						|| (name.equals("node") && current instanceof Node)
+						|| (name.equals("relation") && current instanceof Relation && ((Relation) current).getMembersCount() > 0)) {
 					
 					isCurrentReady = true;
 					lastParsed = current;
 					current = null;
+					statistics.increment(ImportStatistics.ELEMENTS_PARSED);
+				}
+				else if(name.equals("way") && current instanceof Way) {
+					statistics.increment(ImportStatistics.DROPPED_SHORT_WAYS);
+				}
+				else if(name.equals("relation") && current instanceof Relation) {
+					statistics.increment(ImportStatistics.DROPPED_EMPTY_RELATIONS);
+				}
+				else {
+					statistics.increment(ImportStatistics.DROPPED_UNMATCHED_END);
 				}
 			} else {
-				System.err.println("End markup not matching: "+m.getName()+" with current object "+current);
+				statistics.increment(ImportStatistics.DROPPED_UNMATCHED_END);
 				//TODO Remove, debug purposes only
 //				for(String s : lastLines) {
 //					System.err.println(s);
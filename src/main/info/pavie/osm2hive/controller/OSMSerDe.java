@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.Collector;
+import org.apache.hadoop.hive.serde2.AbstractSerDe;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.SerDeStats;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * This SerDe reads OSM XML data directly in Hive tables, without staging text table and import query.
+ * Rows have the same columns as the ones created by importers, depending on the osm.element.type property:
+ * node ({@link HiveNodeImporter}), way ({@link HiveWayImporter}), relation ({@link HiveRelationImporter})
+ * or all (default, {@link HiveElementImporter}). Importer options, for example numeric_ids, are given by the
+ * osm.options property. The way_geometry option is only available for all elements tables, as way tables don't read nodes.
+ * The dense_index option isn't available, as SerDes are never closed and couldn't delete the index file.
+ * Records are best read with {@link OSMXmlInputFormat}, but text input format also works. PBF files are read
+ * with {@link OSMPBFInputFormat}, whose records are already decoded elements. These input formats only read
+ * the elements of the wanted type (see {@link #getElementNames(Configuration)}), so tables have no other rows.
+ * With text input format, records which are not elements of the wanted type are read as rows containing only null values.
+ * Only the columns read by the query are created. This SerDe is read-only.
+ * To use it in Hive :
+ * ADD JAR /path/to/osm2hive.jar;
+ * CREATE EXTERNAL TABLE osmelements ROW FORMAT SERDE 'info.pavie.osm2hive.controller.OSMSerDe'
+ *   STORED AS INPUTFORMAT 'info.pavie.osm2hive.controller.OSMXmlInputFormat'
+ *   OUTPUTFORMAT 'org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat'
+ *   LOCATION '/path/to/osm/directory';
+ * @author Adrien PAVIE
+ */
+public class OSMSerDe extends AbstractSerDe {
+//CONSTANTS
+	/** The table property defining the element type (node, way, relation or all) **/
+	public static final String ELEMENT_TYPE = "osm.element.type";
+	
+	/** The table property defining the importer options (see {@link HiveImporter#setOptions(String)}) **/
+	public static final String OPTIONS = "osm.options";
+
+	/** The names of all the elements read in tables **/
+	private static final String[] ELEMENTS = { "node", "way", "relation" };
+
+//ATTRIBUTES
+	/** The importer creating rows **/
+	private HiveImporter importer;
+	
+	/** The rows object inspector **/
+	private StructObjectInspector rowOI;
+	
+	/** The arguments given to importer **/
+	private Object[] args;
+	
+	/** The last row created by importer **/
+	private Object row;
+
+//ACCESSORS
+	@Override
+	public ObjectInspector getObjectInspector() throws SerDeException {
+		return rowOI;
+	}
+	
+	@Override
+	public Class<? extends Writable> getSerializedClass() {
+		return Text.class;
+	}
+	
+	@Override
+	public SerDeStats getSerDeStats() {
+		return null;
+	}
+
+//OTHER METHODS
+	/**
+	 * Get the names of the elements read in a table, from its {@link #ELEMENT_TYPE} property.
+	 * Input formats read it in the job configuration, where Hive copies table properties, and skip other elements.
+	 * @param conf The job configuration
+	 * @return The element names (node, way and relation if the property isn't defined or is "all")
+	 * @throws IOException If the element type is unknown
+	 */
+	public static String[] getElementNames(Configuration conf) throws IOException {
+		String type = conf.get(ELEMENT_TYPE, "all");
+		String[] result;
+		
+		switch(type) {
+			case "node":
+			case "way":
+			case "relation":
+				result = new String[] { type };
+				break;
+			case "all":
+				result = ELEMENTS;
+				break;
+			default:
+				throw new IOException("Unknown OSM element type: "+type);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Is an importer option set in the {@link #OPTIONS} property of a table ?
+	 * Input formats read it in the job configuration, where Hive copies table properties.
+	 * @param conf The job configuration
+	 * @param option The option, for example {@link HiveImporter#WAY_GEOMETRY}
+	 * @return True if the option is set
+	 */
+	public static boolean hasOption(Configuration conf, String option) {
+		for(String o : conf.get(OPTIONS, "").split(",")) {
+			if(o.trim().equals(option)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public void initialize(Configuration conf, Properties tbl) throws SerDeException {
+		String type = tbl.getProperty(ELEMENT_TYPE, "all");
+		
+		switch(type) {
+			case "node":
+				importer = new HiveNodeImporter();
+				break;
+			case "way":
+				importer = new HiveWayImporter();
+				break;
+			case "relation":
+				importer = new HiveRelationImporter();
+				break;
+			case "all":
+				importer = new HiveElementImporter();
+				break;
+			default:
+				throw new SerDeException("Unknown OSM element type: "+type);
+		}
+		
+		//Only create read columns
+		if(conf != null && !ColumnProjectionUtils.isReadAllColumns(conf)) {
+			importer.setReadColumns(ColumnProjectionUtils.getReadColumnIDs(conf));
+		}
+		
+		try {
+			importer.setOptions(tbl.getProperty(OPTIONS, ""));
+			
+			//Way tables don't read nodes, so their locations can't be indexed
+			if(importer.wayGeometry && importer instanceof HiveWayImporter) {
+				throw new SerDeException("The "+HiveImporter.WAY_GEOMETRY+" option needs nodes, use it with osm.element.type=all or with the way import function");
+			}
+			
+			//SerDes are never closed, so an index file would never be deleted
+			if(importer.denseIndex) {
+				throw new SerDeException("The "+HiveImporter.DENSE_INDEX+" option is only available with import functions");
+			}
+			
+			rowOI = importer.initialize(new ObjectInspector[] { PrimitiveObjectInspectorFactory.writableStringObjectInspector });
+		} catch (HiveException e) {
+			throw new SerDeException(e);
+		}
+		
+		importer.setCollector(new Collector() {
+			@Override
+			public void collect(Object input) throws HiveException {
+				row = input;
+			}
+		});
+		
+		args = new Object[1];
+	}
+	
+	@Override
+	public Object deserialize(Writable blob) throws SerDeException {
+		row = null;
+		
+		try {
+			//Elements already decoded (PBF files) or XML text
+			if(blob instanceof ElementWritable) {
+				importer.processElement(((ElementWritable) blob).get());
+			}
+			else {
+				args[0] = blob;
+				importer.process(args);
+			}
+		} catch (HiveException e) {
+			throw new SerDeException(e);
+		}
+		
+		return row;
+	}
+	
+	@Override
+	public Writable serialize(Object obj, ObjectInspector objInspector) throws SerDeException {
+		throw new SerDeException("OSMSerDe can't write OSM data");
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.JobConfigurable;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * This input format reads OSM XML files, one OSM element (node, way or relation) per record.
+ * Unlike text input format, a record contains the whole element, from its start markup to its end markup,
+ * even if it is written on several lines or crosses a split boundary. Each record can then be given
+ * as is to the importers. Compressed files are not split. For tables read with {@link OSMSerDe}, only the elements
+ * of the table type (osm.element.type property) are read, and files are not split with the way_geometry option,
+ * as ways need the nodes read before them.
+ * To use it in Hive :
+ * CREATE TABLE osmdata(osm_content STRING) STORED AS
+ *   INPUTFORMAT 'info.pavie.osm2hive.controller.OSMXmlInputFormat'
+ *   OUTPUTFORMAT 'org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat';
+ * @author Adrien PAVIE
+ */
+public class OSMXmlInputFormat extends FileInputFormat<LongWritable, Text> implements JobConfigurable {
+//ATTRIBUTES
+	/** The available compression codecs **/
+	private CompressionCodecFactory compressionCodecs;
+
+	/** Are files read as a single split, for way geometries ? **/
+	private boolean wholeFiles;
+
+//OTHER METHODS
+	@Override
+	public void configure(JobConf conf) {
+		compressionCodecs = new CompressionCodecFactory(conf);
+		wholeFiles = OSMSerDe.hasOption(conf, HiveImporter.WAY_GEOMETRY);
+	}
+	
+	@Override
+	protected boolean isSplitable(FileSystem fs, Path file) {
+		return !wholeFiles && (compressionCodecs == null || compressionCodecs.getCodec(file) == null);
+	}
+	
+	@Override
+	public RecordReader<LongWritable, Text> getRecordReader(InputSplit split, JobConf job, Reporter reporter) throws IOException {
+		reporter.setStatus(split.toString());
+		OSMXmlRecordReader result = new OSMXmlRecordReader(job, (FileSplit) split);
+		result.setReporter(reporter);
+		return result;
+	}
+}
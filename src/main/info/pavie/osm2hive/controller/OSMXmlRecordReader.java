@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.xml.ElementReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * This record reader reads the OSM elements of a file split, for {@link OSMXmlInputFormat}.
+ * It starts at the first element starting in the split, and reads after the split end
+ * until the last element starting in the split is closed. Only the elements of the table type are read.
+ * Keys are the elements positions in file, values are the elements XML.
+ * Read records are counted in {@link ImportStatistics}, published with the task reporter (see {@link #setReporter(Reporter)}).
+ * @author Adrien PAVIE
+ */
+public class OSMXmlRecordReader implements RecordReader<LongWritable, Text> {
+//ATTRIBUTES
+	/** The split start position **/
+	private long start;
+	
+	/** The split end position **/
+	private long end;
+	
+	/** The elements reader **/
+	private ElementReader reader;
+	
+	/** The import statistics, also filled by the parser of {@link VectorizedOSMNodeRecordReader} **/
+	final ImportStatistics statistics;
+	
+	/** The task reporter, publishing statistics as Hadoop counters **/
+	private Reporter reporter;
+	
+	/** The amount of read records at which statistics are published next **/
+	private long nextPublish;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor, reading the elements of the table type (see {@link OSMSerDe#getElementNames(org.apache.hadoop.conf.Configuration)})
+	 * @param job The job configuration
+	 * @param split The split to read
+	 * @throws IOException If the file can't be opened, or the element type is unknown
+	 */
+	public OSMXmlRecordReader(JobConf job, FileSplit split) throws IOException {
+		this(job, split, OSMSerDe.getElementNames(job));
+	}
+	
+	/**
+	 * Class constructor
+	 * @param job The job configuration
+	 * @param split The split to read
+	 * @param elements The names of the read elements, other elements being skipped without being copied
+	 * @throws IOException If the file can't be opened
+	 */
+	public OSMXmlRecordReader(JobConf job, FileSplit split, String... elements) throws IOException {
+		start = split.getStart();
+		end = start + split.getLength();
+		
+		//Open file
+		Path file = split.getPath();
+		FileSystem fs = file.getFileSystem(job);
+		FSDataInputStream fileIn = fs.open(file);
+		CompressionCodec codec = new CompressionCodecFactory(job).getCodec(file);
+		InputStream in;
+		
+		if(codec != null) {
+			//Compressed files are not split, so read the whole stream
+			in = codec.createInputStream(fileIn);
+			end = Long.MAX_VALUE;
+		}
+		else {
+			fileIn.seek(start);
+			in = fileIn;
+		}
+		
+		reader = new ElementReader(in, start, end, elements);
+		statistics = new ImportStatistics();
+		reporter = Reporter.NULL;
+		nextPublish = HiveImporter.PUBLISH_INTERVAL;
+	}
+
+//ACCESSORS
+	@Override
+	public LongWritable createKey() {
+		return new LongWritable();
+	}
+	
+	@Override
+	public Text createValue() {
+		return new Text();
+	}
+	
+	@Override
+	public long getPos() throws IOException {
+		return reader.getPosition();
+	}
+	
+	@Override
+	public float getProgress() throws IOException {
+		return (end == start || end == Long.MAX_VALUE) ? 0.0f : Math.min(1.0f, (reader.getPosition() - start) / (float) (end - start));
+	}
+
+	/**
+	 * @return A snapshot of the import statistics
+	 */
+	public ImportStatistics getStatistics() {
+		return statistics.snapshot();
+	}
+
+//MODIFIERS
+	/**
+	 * Sets the reporter publishing statistics as Hadoop counters, every {@link HiveImporter#PUBLISH_INTERVAL} records and on close.
+	 * @param reporter The task reporter
+	 */
+	public void setReporter(Reporter reporter) {
+		this.reporter = reporter;
+	}
+
+//OTHER METHODS
+	@Override
+	public boolean next(LongWritable key, Text value) throws IOException {
+		boolean found = reader.next();
+		
+		if(found) {
+			key.set(reader.getElementStart());
+			value.set(reader.getElement(), 0, reader.getElementLength());
+			
+			statistics.increment(ImportStatistics.RECORDS_READ);
+			if(statistics.get(ImportStatistics.RECORDS_READ) >= nextPublish) {
+				statistics.publish(reporter);
+				nextPublish += HiveImporter.PUBLISH_INTERVAL;
+			}
+		}
+		
+		return found;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		statistics.publish(reporter);
+		reader.close();
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Tags;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MultiValuedColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+
+/**
+ * An ORC element writer writes elements of a single type as rows of an ORC file, with the same columns as the importers
+ * ({@link HiveNodeImporter}, {@link HiveWayImporter} or {@link HiveRelationImporter}), named in lower case as in Hive.
+ * Rows are filled directly in vectorized row batches, which are given to the ORC writer when full.
+ * Stripes are sized for HDFS blocks, and a bloom filter is written on the ID column, so ID lookups and joins
+ * only read the stripes containing the wanted IDs.
+ * Written files can be used as data of a table STORED AS ORC, for example with {@link OSMConverter}.
+ * @author Adrien PAVIE
+ */
+public class OrcElementWriter implements TableWriter {
+//CONSTANTS
+	/** Size of stripes (64 MB) **/
+	private static final long STRIPE_SIZE = 64L * 1024 * 1024;
+	
+	/** Column having a bloom filter **/
+	private static final String BLOOM_FILTER_COLUMN = "id";
+	
+	/** False positive probability of the bloom filter **/
+	private static final double BLOOM_FILTER_FPP = 0.01;
+	
+	/** Members type column values, by member type **/
+	private static final byte[] NODE_TYPE = { Element.NODE };
+	private static final byte[] WAY_TYPE = { Element.WAY };
+	private static final byte[] RELATION_TYPE = { Element.RELATION };
+	
+//ATTRIBUTES
+	/** The written element type **/
+	private final char type;
+	
+	/** Are IDs written as numbers (see {@link HiveImporter#NUMERIC_IDS}) ? **/
+	private final boolean numericIds;
+	
+	/** The ORC writer **/
+	private final Writer writer;
+	
+	/** The batch being filled **/
+	private final VectorizedRowBatch batch;
+	
+	/** The buffer used to encode string IDs **/
+	private final byte[] idBuffer;
+	
+	/** The amount of written rows **/
+	private long rows;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor. An existing file is replaced.
+	 * @param file The ORC file to write
+	 * @param type The type of written elements ({@link Element#NODE}, {@link Element#WAY} or {@link Element#RELATION})
+	 * @param numericIds True to write IDs as numbers, false to write them as prefixed IDs (N000000)
+	 * @throws IOException If the file can't be created
+	 */
+	public OrcElementWriter(File file, char type, boolean numericIds) throws IOException {
+		TypeDescription schema = createSchema(type, numericIds);
+		
+		if(file.exists() && !file.delete()) {
+			throw new IOException("Can't replace file "+file);
+		}
+		
+		this.type = type;
+		this.numericIds = numericIds;
+		this.writer = OrcFile.createWriter(new Path(file.getAbsolutePath()), OrcFile.writerOptions(new Configuration())
+				.setSchema(schema)
+				.stripeSize(STRIPE_SIZE)
+				.compress(CompressionKind.ZLIB)
+				.bloomFilterColumns(BLOOM_FILTER_COLUMN)
+				.bloomFilterFpp(BLOOM_FILTER_FPP));
+		this.batch = schema.createRowBatch();
+		this.batch.reset();
+		this.idBuffer = new byte[Element.MAX_ID_LENGTH];
+		this.rows = 0;
+	}
+
+//ACCESSORS
+	@Override
+	public long getRows() {
+		return rows;
+	}
+
+//OTHER METHODS
+	/**
+	 * Creates the ORC schema of a table.
+	 * @param type The type of elements in table ({@link Element#NODE}, {@link Element#WAY} or {@link Element#RELATION})
+	 * @param numericIds True if IDs are numbers, false if they are prefixed strings
+	 * @return The table schema
+	 */
+	public static TypeDescription createSchema(char type, boolean numericIds) {
+		TypeDescription schema = TypeDescription.createStruct()
+				.addField("id", createIdType(numericIds))
+				.addField("userid", TypeDescription.createLong())
+				.addField("timestamp", TypeDescription.createString())
+				.addField("isvisible", TypeDescription.createBoolean())
+				.addField("version", TypeDescription.createInt())
+				.addField("changesetid", TypeDescription.createLong())
+				.addField("tags", TypeDescription.createMap(TypeDescription.createString(), TypeDescription.createString()));
+		
+		switch(type) {
+			case Element.NODE:
+				schema.addField("latitude", TypeDescription.createDouble());
+				schema.addField("longitude", TypeDescription.createDouble());
+				break;
+			case Element.WAY:
+				schema.addField("nodes", TypeDescription.createList(createIdType(numericIds)));
+				break;
+			case Element.RELATION:
+				schema.addField("members", TypeDescription.createList(TypeDescription.createStruct()
+						.addField("type", TypeDescription.createString())
+						.addField("ref", createIdType(numericIds))
+						.addField("role", TypeDescription.createString())));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown element type: "+type);
+		}
+		
+		return schema;
+	}
+	
+	/**
+	 * @param numericIds True if IDs are numbers
+	 * @return The ORC type of IDs
+	 */
+	private static TypeDescription createIdType(boolean numericIds) {
+		return (numericIds) ? TypeDescription.createLong() : TypeDescription.createString();
+	}
+	
+	@Override
+	public void write(Element e) throws IOException {
+		if(e.getType() != type) {
+			throw new IllegalArgumentException("Element "+e.getId()+" can't be written in a table of type "+type);
+		}
+		
+		int row = batch.size;
+		ColumnVector[] cols = batch.cols;
+		
+		//Common columns
+		setId(cols[0], row, type, e.getNumericId());
+		((LongColumnVector) cols[1]).vector[row] = e.getUid();
+		setString(cols[2], row, e.getTimestamp());
+		((LongColumnVector) cols[3]).vector[row] = e.isVisible() ? 1 : 0;
+		((LongColumnVector) cols[4]).vector[row] = e.getVersion();
+		((LongColumnVector) cols[5]).vector[row] = e.getChangeset();
+		setTags((MapColumnVector) cols[6], row, (Tags) e.getTags());
+		
+		//Type-specific columns
+		if(e instanceof Node) {
+			((DoubleColumnVector) cols[7]).vector[row] = ((Node) e).getLat();
+			((DoubleColumnVector) cols[8]).vector[row] = ((Node) e).getLon();
+		}
+		else if(e instanceof Way) {
+			Way w = (Way) e;
+			ListColumnVector nodes = (ListColumnVector) cols[7];
+			int first = startItems(nodes, row, w.getNodesCount());
+			nodes.child.ensureSize(nodes.childCount, true);
+			long[] ids = w.getNodeIds();
+			
+			for(int i=0; i < w.getNodesCount(); i++) {
+				setId(nodes.child, first + i, Element.NODE, ids[i]);
+			}
+		}
+		else if(e instanceof Relation) {
+			Relation r = (Relation) e;
+			ListColumnVector members = (ListColumnVector) cols[7];
+			int first = startItems(members, row, r.getMembersCount());
+			members.child.ensureSize(members.childCount, true);
+			ColumnVector[] fields = ((StructColumnVector) members.child).fields;
+			
+			for(int i=0; i < r.getMembersCount(); i++) {
+				char memberType = r.getMemberType(i);
+				byte[] typeBytes = (memberType == Element.NODE) ? NODE_TYPE : ((memberType == Element.WAY) ? WAY_TYPE : RELATION_TYPE);
+				((BytesColumnVector) fields[0]).setRef(first + i, typeBytes, 0, 1);
+				setId(fields[1], first + i, memberType, r.getMemberRef(i));
+				setString(fields[2], first + i, r.getMemberRole(i));
+			}
+		}
+		
+		rows++;
+		batch.size++;
+		if(batch.size == batch.getMaxSize()) {
+			flush();
+		}
+	}
+	
+	/**
+	 * Writes the rows of the batch, and closes the file.
+	 * @throws IOException If the file can't be written or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		writer.close();
+	}
+	
+	/**
+	 * Gives the batch to the ORC writer, and empties it.
+	 * @throws IOException If the file can't be written
+	 */
+	private void flush() throws IOException {
+		if(batch.size > 0) {
+			writer.addRowBatch(batch);
+			batch.reset();
+		}
+	}
+	
+	/**
+	 * Sets tags, as a map.
+	 * @param map The map column
+	 * @param row The row in batch
+	 * @param tags The tags
+	 */
+	private void setTags(MapColumnVector map, int row, Tags tags) {
+		int first = startItems(map, row, tags.size());
+		map.keys.ensureSize(map.childCount, true);
+		map.values.ensureSize(map.childCount, true);
+		
+		for(int i=0; i < tags.size(); i++) {
+			setString(map.keys, first + i, tags.getKey(i));
+			setString(map.values, first + i, tags.getValue(i));
+		}
+	}
+	
+	/**
+	 * Starts a list or map value, giving it the next items of child columns.
+	 * Child columns must then be grown to the new {@link MultiValuedColumnVector#childCount}.
+	 * @param col The list or map column
+	 * @param row The row in batch
+	 * @param size The amount of items
+	 * @return The index of the first item in child columns
+	 */
+	private static int startItems(MultiValuedColumnVector col, int row, int size) {
+		int first = col.childCount;
+		col.offsets[row] = first;
+		col.lengths[row] = size;
+		col.childCount += size;
+		return first;
+	}
+	
+	/**
+	 * Sets an element ID, prefixed by its type unless IDs are numeric.
+	 * @param col The ID column
+	 * @param row The row in column
+	 * @param idType The element type code
+	 * @param id The numeric ID
+	 */
+	private void setId(ColumnVector col, int row, char idType, long id) {
+		if(numericIds) {
+			((LongColumnVector) col).vector[row] = id;
+			return;
+		}
+		
+		int pos = Element.writeId(idType, id, idBuffer);
+		((BytesColumnVector) col).setVal(row, idBuffer, pos, idBuffer.length - pos);
+	}
+	
+	/**
+	 * Sets a string, in UTF-8, or null.
+	 * Also used by {@link VectorizedOSMNodeRecordReader}, which fills the same column vectors.
+	 * @param col The string column
+	 * @param row The row in column
+	 * @param s The string
+	 */
+	static void setString(ColumnVector col, int row, String s) {
+		if(s == null) {
+			col.noNulls = false;
+			col.isNull[row] = true;
+		}
+		else {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			((BytesColumnVector) col).setRef(row, bytes, 0, bytes.length);
+		}
+	}
+}
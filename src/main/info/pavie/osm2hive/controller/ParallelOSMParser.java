@@ -0,0 +1,265 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.xml.InvalidMarkupException;
+import info.pavie.osm2hive.model.xml.MappedMarkupReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A parallel OSM parser reads a single local OSM XML file with several threads.
+ * The file is split into chunks of the same size in bytes, which are parsed by a fork/join pool, each one with its own
+ * {@link MappedMarkupReader} and reusing {@link OSMParser}. A chunk starts at the first node, way or relation
+ * start markup found at or after its start position, and contains every element starting before its end position,
+ * even if the element ends after. This way, each element is parsed exactly once, by a single chunk.
+ * Elements are given to subclasses with a per-chunk result object (for example, the chunk output files),
+ * and results are returned in file order. Comments are assumed not to contain node, way or relation markups.
+ * @param <T> The type of chunk results
+ * @author Adrien PAVIE
+ */
+public abstract class ParallelOSMParser<T> {
+//CONSTANTS
+	/** Default size of chunks (64 MB) **/
+	public static final long DEFAULT_CHUNK = 64L * 1024 * 1024;
+	
+	/** Minimum size of mapped windows, as elements often end after their chunk end (1 MB) **/
+	private static final int MIN_WINDOW = 1024 * 1024;
+	
+	/** Names of the markups starting a chunk **/
+	private static final String[] ELEMENTS = { "node", "way", "relation" };
+
+//ATTRIBUTES
+	/** The OSM XML file to read **/
+	private final File input;
+	
+	/** The amount of parsing threads **/
+	private final int threads;
+	
+	/** The size of chunks **/
+	private final long chunkSize;
+	
+	/** The read file size **/
+	private long size;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param input The OSM XML file to read
+	 * @param threads The amount of parsing threads
+	 * @param chunkSize The size of chunks, in bytes
+	 */
+	public ParallelOSMParser(File input, int threads, long chunkSize) {
+		if(threads <= 0) {
+			throw new IllegalArgumentException("Invalid amount of threads: "+threads);
+		}
+		if(chunkSize <= 0) {
+			throw new IllegalArgumentException("Invalid chunk size: "+chunkSize);
+		}
+		
+		this.input = input;
+		this.threads = threads;
+		this.chunkSize = chunkSize;
+		this.size = 0;
+	}
+
+//ACCESSORS
+	/**
+	 * @return The size of the last parsed file
+	 */
+	public long getSize() {
+		return size;
+	}
+
+//OTHER METHODS
+	/**
+	 * Parses the whole file.
+	 * @return The chunk results, in file order
+	 * @throws IOException If the file can't be read, or a chunk can't be handled
+	 * @throws InvalidMarkupException If the file contains an invalid markup
+	 */
+	public List<T> parse() throws IOException, InvalidMarkupException {
+		size = input.length();
+		int chunks = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		
+		try {
+			return pool.invoke(new ChunkTask(0, chunks));
+		} catch(RuntimeException e) {
+			//Exceptions of other threads may be wrapped again by the pool
+			for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+				if(cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				else if(cause instanceof InvalidMarkupException) {
+					throw (InvalidMarkupException) cause;
+				}
+			}
+			throw e;
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Creates the result of a chunk, before its first element is parsed.
+	 * This method is called by parsing threads, so it should only create objects specific to the chunk.
+	 * @param chunk The chunk index, in file order
+	 * @return The chunk result
+	 * @throws IOException If the result can't be created
+	 */
+	protected abstract T startChunk(int chunk) throws IOException;
+	
+	/**
+	 * Handles a parsed element.
+	 * The element object is reused by the chunk parser, so it must be used or copied before this method returns.
+	 * @param result The result of the element chunk
+	 * @param element The parsed element
+	 * @throws IOException If the element can't be handled
+	 */
+	protected abstract void handle(T result, Element element) throws IOException;
+	
+	/**
+	 * Ends the result of a chunk, after its last element is handled, or if parsing failed.
+	 * @param result The chunk result
+	 * @throws IOException If the result can't be ended
+	 */
+	protected abstract void endChunk(T result) throws IOException;
+	
+	/**
+	 * Parses the elements of a chunk.
+	 * @param chunk The chunk index
+	 * @return The chunk result
+	 * @throws IOException If the file can't be read, or an element can't be handled
+	 * @throws InvalidMarkupException If the chunk contains an invalid markup
+	 */
+	private T parseChunk(int chunk) throws IOException, InvalidMarkupException {
+		long start = chunk * chunkSize;
+		long end = start + chunkSize;
+		OSMParser parser = new OSMParser(true);
+		MappedMarkupReader reader = new MappedMarkupReader(input, (int) Math.min(Math.max(chunkSize, MIN_WINDOW), MappedMarkupReader.DEFAULT_WINDOW));
+		T result = startChunk(chunk);
+		boolean started = false;
+		
+		try {
+			reader.seek(start);
+			
+			while(reader.next()) {
+				//Elements starting after chunk end belong to the next chunk
+				if(isElementStart(reader)) {
+					if(reader.getMarkupStart() >= end) {
+						break;
+					}
+					started = true;
+				}
+				
+				//Markups before the first element start are the end of the previous chunk
+				if(started) {
+					parser.parse(reader.getMarkupBytes(), 0, reader.getMarkupLength());
+					
+					if(parser.isElementReady()) {
+						handle(result, parser.getCurrentElement());
+					}
+				}
+			}
+		} finally {
+			reader.close();
+			endChunk(result);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @param reader The reader
+	 * @return True if the last read markup starts a node, a way or a relation
+	 */
+	private static boolean isElementStart(MappedMarkupReader reader) {
+		for(String name : ELEMENTS) {
+			if(reader.isStart(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+//INNER CLASS ChunkTask
+	/**
+	 * A task parsing a range of chunks, split in two tasks until it contains a single chunk.
+	 */
+	private class ChunkTask extends RecursiveTask<List<T>> {
+	//CONSTANTS
+		private static final long serialVersionUID = 1L;
+	
+	//ATTRIBUTES
+		/** The first chunk index **/
+		private final int first;
+		/** The chunk index after the last chunk **/
+		private final int last;
+	
+	//CONSTRUCTOR
+		private ChunkTask(int first, int last) {
+			this.first = first;
+			this.last = last;
+		}
+	
+	//OTHER METHODS
+		@Override
+		protected List<T> compute() {
+			List<T> result;
+			
+			if(last - first == 1) {
+				result = new ArrayList<T>(1);
+				try {
+					result.add(parseChunk(first));
+				} catch(IOException | InvalidMarkupException e) {
+					throw new ChunkException(e);
+				}
+			}
+			else {
+				//Second half parsed by another thread, results merged in file order
+				int middle = (first + last) >>> 1;
+				ChunkTask second = new ChunkTask(middle, last);
+				second.fork();
+				result = new ChunkTask(first, middle).compute();
+				result.addAll(second.join());
+			}
+			
+			return result;
+		}
+	}
+
+//INNER CLASS ChunkException
+	/**
+	 * An unchecked exception, carrying the checked exception of a parsing thread.
+	 */
+	private static class ChunkException extends RuntimeException {
+	//CONSTANTS
+		private static final long serialVersionUID = 1L;
+	
+	//CONSTRUCTOR
+		private ChunkException(Throwable cause) {
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * A Parquet element writer writes elements of a single type as rows of a Parquet file, through an {@link ElementWriteSupport}.
+ * Files are written in Parquet 2 format: columns are dictionary-encoded (tag keys and values, timestamps, roles...),
+ * which suits the heavy repetition of OSM tags, except element IDs and way node IDs, which are almost unique.
+ * They are delta-encoded instead: with numeric IDs, way node IDs are a delta-encoded INT64 repeated column,
+ * as consecutive nodes of a way often have close IDs. The row group size can be chosen, to match the HDFS block size.
+ * Written files can be read by any Parquet engine, or used as data of a table STORED AS PARQUET.
+ * @author Adrien PAVIE
+ */
+public class ParquetElementWriter implements TableWriter {
+//CONSTANTS
+	/** Default size of row groups (128 MB) **/
+	public static final int DEFAULT_ROW_GROUP_SIZE = 128 * 1024 * 1024;
+
+//ATTRIBUTES
+	/** The Parquet writer **/
+	private final ParquetWriter<Element> writer;
+	
+	/** The amount of written rows **/
+	private long rows;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor. An existing file is replaced.
+	 * @param file The Parquet file to write
+	 * @param type The type of written elements ({@link Element#NODE}, {@link Element#WAY} or {@link Element#RELATION})
+	 * @param numericIds True to write IDs as numbers, false to write them as prefixed IDs (N000000)
+	 * @param rowGroupSize The size of row groups, in bytes
+	 * @throws IOException If the file can't be created
+	 */
+	public ParquetElementWriter(File file, char type, boolean numericIds, int rowGroupSize) throws IOException {
+		if(rowGroupSize <= 0) {
+			throw new IllegalArgumentException("Invalid row group size: "+rowGroupSize);
+		}
+		
+		writer = new Builder(new Path(file.getAbsolutePath()), new ElementWriteSupport(type, numericIds))
+				.withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+				.withWriterVersion(ParquetProperties.WriterVersion.PARQUET_2_0)
+				.withCompressionCodec(CompressionCodecName.SNAPPY)
+				.withRowGroupSize(rowGroupSize)
+				.withDictionaryEncoding(true)
+				.withDictionaryEncoding(ElementWriteSupport.ID_COLUMN, false)
+				.withDictionaryEncoding(ElementWriteSupport.NODES_COLUMN, false)
+				.build();
+		rows = 0;
+	}
+
+//ACCESSORS
+	@Override
+	public long getRows() {
+		return rows;
+	}
+
+//OTHER METHODS
+	@Override
+	public void write(Element e) throws IOException {
+		writer.write(e);
+		rows++;
+	}
+	
+	/**
+	 * Writes the last row group, and closes the file.
+	 * @throws IOException If the file can't be written or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+//INNER CLASS Builder
+	/**
+	 * The builder of Parquet writers, using an element write support.
+	 */
+	private static class Builder extends ParquetWriter.Builder<Element,Builder> {
+	//ATTRIBUTES
+		/** The write support **/
+		private final ElementWriteSupport writeSupport;
+	
+	//CONSTRUCTOR
+		private Builder(Path path, ElementWriteSupport writeSupport) {
+			super(path);
+			this.writeSupport = writeSupport;
+		}
+	
+	//OTHER METHODS
+		@Override
+		protected Builder self() {
+			return this;
+		}
+		
+		@Override
+		protected WriteSupport<Element> getWriteSupport(Configuration conf) {
+			return writeSupport;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A table writer writes elements as rows of a table file, with the same columns as the importers.
+ * @author Adrien PAVIE
+ */
+public interface TableWriter extends Closeable {
+	/**
+	 * Writes the row of an element.
+	 * @param e The element to write
+	 * @throws IOException If the file can't be written
+	 */
+	void write(Element e) throws IOException;
+	
+	/**
+	 * @return The amount of written rows
+	 */
+	long getRows();
+}
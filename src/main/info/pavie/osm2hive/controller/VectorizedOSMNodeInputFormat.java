@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatchCtx;
+import org.apache.hadoop.hive.ql.io.VectorizedInputFormatInterface;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.JobConfigurable;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * This input format reads the nodes of OSM XML files as vectorized row batches, for Hive vectorized execution.
+ * Batches are filled by {@link VectorizedOSMNodeRecordReader}, with the columns of {@link HiveNodeImporter},
+ * so queries on nodes (for example filters on coordinates) run on whole columns instead of row by row.
+ * Splits are handled as in {@link OSMXmlInputFormat}. The table must have the node columns.
+ * When the query plan isn't vectorized (vectorization disabled, or an operator Hive can't vectorize),
+ * this input format falls back to row mode, as Hive's own vectorized formats do: node elements are then
+ * given as XML text by {@link OSMXmlRecordReader}, and deserialized by {@link OSMSerDe}.
+ * To use it in Hive :
+ * ADD JAR /path/to/osm2hive.jar;
+ * SET hive.vectorized.execution.enabled=true;
+ * CREATE EXTERNAL TABLE osmnodes(...node columns...) ROW FORMAT SERDE 'info.pavie.osm2hive.controller.OSMSerDe'
+ *   WITH SERDEPROPERTIES ('osm.element.type'='node')
+ *   STORED AS INPUTFORMAT 'info.pavie.osm2hive.controller.VectorizedOSMNodeInputFormat'
+ *   OUTPUTFORMAT 'org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat'
+ *   LOCATION '/path/to/osm/directory';
+ * @author Adrien PAVIE
+ */
+public class VectorizedOSMNodeInputFormat extends FileInputFormat<NullWritable, VectorizedRowBatch> implements JobConfigurable, VectorizedInputFormatInterface {
+//ATTRIBUTES
+	/** The available compression codecs **/
+	private CompressionCodecFactory compressionCodecs;
+
+//OTHER METHODS
+	@Override
+	public void configure(JobConf conf) {
+		compressionCodecs = new CompressionCodecFactory(conf);
+	}
+	
+	@Override
+	protected boolean isSplitable(FileSystem fs, Path file) {
+		return compressionCodecs == null || compressionCodecs.getCodec(file) == null;
+	}
+	
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public RecordReader<NullWritable, VectorizedRowBatch> getRecordReader(InputSplit split, JobConf job, Reporter reporter) throws IOException {
+		reporter.setStatus(split.toString());
+		
+		//No batch context if the plan isn't vectorized, rows are read instead
+		VectorizedRowBatchCtx rbCtx = Utilities.getVectorizedRowBatchCtx(job);
+		if(rbCtx == null) {
+			OSMXmlRecordReader rows = new OSMXmlRecordReader(job, (FileSplit) split, "node");
+			rows.setReporter(reporter);
+			return (RecordReader) rows;
+		}
+		
+		VectorizedOSMNodeRecordReader result = new VectorizedOSMNodeRecordReader(job, (FileSplit) split, rbCtx);
+		result.setReporter(reporter);
+		return result;
+	}
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Tags;
+import info.pavie.osm2hive.model.osm.Timestamps;
+import info.pavie.osm2hive.model.xml.InvalidMarkupException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatchCtx;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * This record reader reads the nodes of an OSM XML file split as vectorized row batches, for {@link VectorizedOSMNodeInputFormat}.
+ * Batches have the columns of {@link HiveNodeImporter}, and are filled directly from parsed nodes, without creating rows.
+ * Only node elements are copied from the file, ways and relations being skipped while looking for the next node.
+ * The ID column can be a string (prefixed IDs) or a bigint (numeric IDs), coordinates can be doubles or integers
+ * (1e-7 degrees, as with {@link HiveImporter#INT_COORDS}), timestamps can be strings, bigints (epoch milliseconds,
+ * as with {@link HiveImporter#EPOCH_TIMESTAMPS}) or timestamps (as with {@link HiveImporter#NATIVE_TIMESTAMPS}),
+ * and only the columns read by the query are filled.
+ * Read records, parsed markups and filled rows are counted in {@link ImportStatistics}, published with the task reporter
+ * (see {@link #setReporter(Reporter)}).
+ * @author Adrien PAVIE
+ */
+public class VectorizedOSMNodeRecordReader implements RecordReader<NullWritable, VectorizedRowBatch> {
+//CONSTANTS
+	/** Columns indexes, as in {@link HiveNodeImporter} **/
+	private static final int ID = 0;
+	private static final int USER_ID = 1;
+	private static final int TIMESTAMP = 2;
+	private static final int IS_VISIBLE = 3;
+	private static final int VERSION = 4;
+	private static final int CHANGESET_ID = 5;
+	private static final int TAGS = 6;
+	private static final int LATITUDE = 7;
+	private static final int LONGITUDE = 8;
+	
+	/** Amount of node columns **/
+	private static final int COLUMNS = 9;
+	
+//ATTRIBUTES
+	/** The node elements reader **/
+	private final OSMXmlRecordReader reader;
+	
+	/** The node elements position and XML **/
+	private final LongWritable position;
+	private final Text xml;
+	
+	/** The parser, reusing the same node object **/
+	private final OSMParser parser;
+	
+	/** The batch context, creating batches and partition columns **/
+	private final VectorizedRowBatchCtx rbCtx;
+	
+	/** The partition values, added to the first batch (or null if none) **/
+	private Object[] partitionValues;
+	
+	/** Is each node column read by query ? **/
+	private final boolean[] readColumns;
+	
+	/** The buffer used to encode string IDs **/
+	private final byte[] idBuffer;
+
+	/** The time zone used to shift Hive timestamps **/
+	private final TimeZone timeZone;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param job The job configuration
+	 * @param split The split to read
+	 * @param rbCtx The batch context, or null if batches are created by caller and the table has no partition columns
+	 * @throws IOException If the file can't be opened
+	 */
+	public VectorizedOSMNodeRecordReader(JobConf job, FileSplit split, VectorizedRowBatchCtx rbCtx) throws IOException {
+		this.reader = new OSMXmlRecordReader(job, split, "node");
+		this.position = reader.createKey();
+		this.xml = reader.createValue();
+		this.parser = new OSMParser(true, reader.statistics);
+		this.rbCtx = rbCtx;
+		this.idBuffer = new byte[Element.MAX_ID_LENGTH];
+		this.timeZone = TimeZone.getDefault();
+		
+		//Partition columns, constant for the whole split
+		if(rbCtx != null && rbCtx.getPartitionColumnCount() > 0) {
+			partitionValues = new Object[rbCtx.getPartitionColumnCount()];
+			VectorizedRowBatchCtx.getPartitionValues(rbCtx, job, split, partitionValues);
+		}
+		
+		//Read columns
+		readColumns = new boolean[COLUMNS];
+		if(ColumnProjectionUtils.isReadAllColumns(job)) {
+			Arrays.fill(readColumns, true);
+		}
+		else {
+			for(Integer column : ColumnProjectionUtils.getReadColumnIDs(job)) {
+				if(column < COLUMNS) {
+					readColumns[column] = true;
+				}
+			}
+		}
+	}
+
+//ACCESSORS
+	@Override
+	public NullWritable createKey() {
+		return NullWritable.get();
+	}
+	
+	@Override
+	public VectorizedRowBatch createValue() {
+		return rbCtx.createVectorizedRowBatch();
+	}
+	
+	@Override
+	public long getPos() throws IOException {
+		return reader.getPos();
+	}
+	
+	@Override
+	public float getProgress() throws IOException {
+		return reader.getProgress();
+	}
+
+	/**
+	 * @return A snapshot of the import statistics
+	 */
+	public ImportStatistics getStatistics() {
+		return reader.getStatistics();
+	}
+
+//MODIFIERS
+	/**
+	 * Sets the reporter publishing statistics as Hadoop counters, every {@link HiveImporter#PUBLISH_INTERVAL} records and on close.
+	 * @param reporter The task reporter
+	 */
+	public void setReporter(Reporter reporter) {
+		reader.setReporter(reporter);
+	}
+
+//OTHER METHODS
+	@Override
+	public boolean next(NullWritable key, VectorizedRowBatch batch) throws IOException {
+		if(partitionValues != null) {
+			rbCtx.addPartitionColsToBatch(batch, partitionValues);
+			partitionValues = null;
+		}
+		
+		//Only node columns are reset, partition columns are kept
+		ColumnVector[] cols = new ColumnVector[COLUMNS];
+		for(int i=0; i < COLUMNS && i < batch.cols.length; i++) {
+			if(readColumns[i] && batch.cols[i] != null) {
+				cols[i] = batch.cols[i];
+				cols[i].reset();
+			}
+		}
+		
+		int row = 0;
+		while(row < batch.getMaxSize() && reader.next(position, xml)) {
+			Node node = parseNode();
+			if(node != null) {
+				fillRow(cols, row, node);
+				reader.statistics.increment(ImportStatistics.ELEMENTS_EMITTED);
+				row++;
+			}
+		}
+		
+		batch.size = row;
+		batch.selectedInUse = false;
+		return row > 0;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+	
+	/**
+	 * Parses the last read node element, markup by markup.
+	 * @return The parsed node, or null if the element isn't a complete node
+	 * @throws IOException If the element contains an invalid markup
+	 */
+	private Node parseNode() throws IOException {
+		byte[] bytes = xml.getBytes();
+		int length = xml.getLength();
+		int markupStart = -1;
+		int quote = 0;
+		Element result = null;
+		
+		try {
+			for(int i=0; i < length; i++) {
+				byte b = bytes[i];
+				
+				if(markupStart < 0) {
+					if(b == '<') {
+						markupStart = i;
+					}
+				}
+				else if(b == '"' || b == '\'') {
+					quote = (quote == 0) ? b : ((quote == b) ? 0 : quote);
+				}
+				else if(b == '>' && quote == 0) {
+					parser.parse(bytes, markupStart, i + 1);
+					if(parser.isElementReady()) {
+						result = parser.getCurrentElement();
+					}
+					markupStart = -1;
+				}
+			}
+		} catch(InvalidMarkupException e) {
+			throw new IOException("Invalid node at position "+position.get()+": "+e.getMessage(), e);
+		}
+		
+		return (result instanceof Node) ? (Node) result : null;
+	}
+	
+	/**
+	 * Fills the columns of a batch row with a node.
+	 * @param cols The filled columns, null for columns not read
+	 * @param row The row in batch
+	 * @param node The node
+	 */
+	private void fillRow(ColumnVector[] cols, int row, Node node) {
+		if(cols[ID] != null) {
+			setId(cols[ID], row, node.getNumericId());
+		}
+		if(cols[USER_ID] != null) {
+			((LongColumnVector) cols[USER_ID]).vector[row] = node.getUid();
+		}
+		if(cols[TIMESTAMP] != null) {
+			setTimestamp(cols[TIMESTAMP], row, node);
+		}
+		if(cols[IS_VISIBLE] != null) {
+			((LongColumnVector) cols[IS_VISIBLE]).vector[row] = node.isVisible() ? 1 : 0;
+		}
+		if(cols[VERSION] != null) {
+			((LongColumnVector) cols[VERSION]).vector[row] = node.getVersion();
+		}
+		if(cols[CHANGESET_ID] != null) {
+			((LongColumnVector) cols[CHANGESET_ID]).vector[row] = node.getChangeset();
+		}
+		if(cols[TAGS] != null) {
+			setTags((MapColumnVector) cols[TAGS], row, (Tags) node.getTags());
+		}
+		if(cols[LATITUDE] != null) {
+			setCoordinate(cols[LATITUDE], row, node.getFixedLat());
+		}
+		if(cols[LONGITUDE] != null) {
+			setCoordinate(cols[LONGITUDE], row, node.getFixedLon());
+		}
+	}
+	
+	/**
+	 * Sets a node coordinate, as a double or as an integer depending on the column type.
+	 * @param col The coordinate column
+	 * @param row The row in batch
+	 * @param coordinate The coordinate, in 1e-7 degrees
+	 */
+	private void setCoordinate(ColumnVector col, int row, int coordinate) {
+		if(col instanceof LongColumnVector) {
+			((LongColumnVector) col).vector[row] = coordinate;
+		}
+		else {
+			((DoubleColumnVector) col).vector[row] = coordinate / Node.COORDINATE_SCALE;
+		}
+	}
+	
+	/**
+	 * Sets a node timestamp, as epoch milliseconds, as a Hive timestamp or as a string depending on the column type.
+	 * Hive timestamps are shifted by the JVM time zone offset, as in {@link HiveImporter#NATIVE_TIMESTAMPS}.
+	 * @param col The timestamp column
+	 * @param row The row in batch
+	 * @param node The node
+	 */
+	private void setTimestamp(ColumnVector col, int row, Node node) {
+		if(col instanceof LongColumnVector || col instanceof TimestampColumnVector) {
+			long time = node.getTime();
+			if(time == Timestamps.UNKNOWN) {
+				col.noNulls = false;
+				col.isNull[row] = true;
+			}
+			else if(col instanceof LongColumnVector) {
+				((LongColumnVector) col).vector[row] = time;
+			}
+			else {
+				//Milliseconds and nanoseconds of second, as set from a java.sql.Timestamp
+				long local = Timestamps.toLocal(time, timeZone);
+				TimestampColumnVector timestamps = (TimestampColumnVector) col;
+				timestamps.time[row] = local;
+				timestamps.nanos[row] = (int) Math.floorMod(local, 1000L) * 1000000;
+			}
+		}
+		else {
+			OrcElementWriter.setString(col, row, node.getTimestamp());
+		}
+	}
+	
+	/**
+	 * Sets a node ID, as a number or as a prefixed string depending on the column type.
+	 * @param col The ID column
+	 * @param row The row in batch
+	 * @param id The numeric ID
+	 */
+	private void setId(ColumnVector col, int row, long id) {
+		if(col instanceof LongColumnVector) {
+			((LongColumnVector) col).vector[row] = id;
+			return;
+		}
+		
+		int pos = Element.writeId(Element.NODE, id, idBuffer);
+		((BytesColumnVector) col).setVal(row, idBuffer, pos, idBuffer.length - pos);
+	}
+	
+	/**
+	 * Sets tags, as a map.
+	 * @param map The map column
+	 * @param row The row in batch
+	 * @param tags The tags
+	 */
+	private static void setTags(MapColumnVector map, int row, Tags tags) {
+		int first = map.childCount;
+		map.offsets[row] = first;
+		map.lengths[row] = tags.size();
+		map.childCount += tags.size();
+		map.keys.ensureSize(map.childCount, true);
+		map.values.ensureSize(map.childCount, true);
+		
+		for(int i=0; i < tags.size(); i++) {
+			OrcElementWriter.setString(map.keys, first + i, tags.getKey(i));
+			OrcElementWriter.setString(map.values, first + i, tags.getValue(i));
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.controller.inspector;
+
+import info.pavie.osm2hive.model.osm.Element;
+
+/**
+ * Columns source of an {@link ElementStructObjectInspector}: it creates the value of a column for a given element.
+ * @author Adrien PAVIE
+ */
+public interface ElementColumns {
+	/**
+	 * Get the value of a column for the given element. It is only called when Hive reads the column.
+	 * @param element The element of the row
+	 * @param column The column index
+	 * @return The column value, as expected by the column object inspector (or null)
+	 */
+	Object getColumn(Element element, int column);
+}
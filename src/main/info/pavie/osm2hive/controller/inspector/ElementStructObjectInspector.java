@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.controller.inspector;
+
+import info.pavie.osm2hive.model.osm.Element;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+
+/**
+ * This object inspector reads an {@link Element} as a Hive row. The row data is the element itself, and each
+ * column value is only created when Hive reads it, by the given {@link ElementColumns}. This way, queries reading
+ * a few columns don't pay for the other ones (for example prefixed IDs, boxed values, or members maps).
+ * @author Adrien PAVIE
+ */
+public class ElementStructObjectInspector extends StructObjectInspector {
+//ATTRIBUTES
+	/** The row fields **/
+	private final List<ElementField> fields;
+	
+	/** The columns values source **/
+	private final ElementColumns columns;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param fieldNames The columns names
+	 * @param fieldOIs The columns object inspectors, in the same order as names
+	 * @param columns The columns values source
+	 */
+	public ElementStructObjectInspector(List<String> fieldNames, List<ObjectInspector> fieldOIs, ElementColumns columns) {
+		if(fieldNames.size() != fieldOIs.size()) {
+			throw new IllegalArgumentException("Columns names and object inspectors don't match");
+		}
+		
+		this.fields = new ArrayList<ElementField>(fieldNames.size());
+		for(int i=0; i < fieldNames.size(); i++) {
+			fields.add(new ElementField(i, fieldNames.get(i), fieldOIs.get(i)));
+		}
+		this.columns = columns;
+	}
+
+//ACCESSORS
+	@Override
+	public String getTypeName() {
+		StringBuilder result = new StringBuilder("struct<");
+		for(ElementField f : fields) {
+			if(f.id > 0) { result.append(','); }
+			result.append(f.name).append(':').append(f.oi.getTypeName());
+		}
+		return result.append('>').toString();
+	}
+	
+	@Override
+	public Category getCategory() {
+		return Category.STRUCT;
+	}
+	
+	@Override
+	public List<? extends StructField> getAllStructFieldRefs() {
+		return fields;
+	}
+	
+	@Override
+	public StructField getStructFieldRef(String fieldName) {
+		for(ElementField f : fields) {
+			if(f.name.equalsIgnoreCase(fieldName)) {
+				return f;
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public Object getStructFieldData(Object data, StructField fieldRef) {
+		return (data == null) ? null : columns.getColumn((Element) data, ((ElementField) fieldRef).id);
+	}
+	
+	@Override
+	public List<Object> getStructFieldsDataAsList(Object data) {
+		if(data == null) {
+			return null;
+		}
+		
+		List<Object> result = new ArrayList<Object>(fields.size());
+		for(ElementField f : fields) {
+			result.add(columns.getColumn((Element) data, f.id));
+		}
+		return result;
+	}
+
+//INNER CLASS ElementField
+	/**
+	 * A column of the row.
+	 */
+	private static class ElementField implements StructField {
+	//ATTRIBUTES
+		/** The column index **/
+		private final int id;
+		/** The column name **/
+		private final String name;
+		/** The column object inspector **/
+		private final ObjectInspector oi;
+	
+	//CONSTRUCTOR
+		private ElementField(int id, String name, ObjectInspector oi) {
+			this.id = id;
+			this.name = name;
+			this.oi = oi;
+		}
+	
+	//ACCESSORS
+		@Override
+		public String getFieldName() {
+			return name;
+		}
+		
+		@Override
+		public ObjectInspector getFieldObjectInspector() {
+			return oi;
+		}
+		
+		@Override
+		public int getFieldID() {
+			return id;
+		}
+		
+		@Override
+		public String getFieldComment() {
+			return null;
+		}
+	}
+}
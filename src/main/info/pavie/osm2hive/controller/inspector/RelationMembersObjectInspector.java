@@ -0,0 +1,271 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller.inspector;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Relation;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+
+/**
+ * This object inspector reads the members of a {@link Relation} as a Hive list of (Type, Ref, Role) structures,
+ * straight from its members arrays. The column data is the relation itself, and members are read in relation order,
+ * including duplicates. Type is N, W or R, and Ref is the numeric ID (BIGINT) or the prefixed ID (N000000, STRING).
+ * @author Adrien PAVIE
+ */
+public class RelationMembersObjectInspector implements ListObjectInspector {
+//CONSTANTS
+	/** The member types, as read in Type field, indexed by type code **/
+	private static final String[] MEMBER_TYPES = new String['Z'];
+	static {
+		MEMBER_TYPES[Element.NODE] = "N";
+		MEMBER_TYPES[Element.WAY] = "W";
+		MEMBER_TYPES[Element.RELATION] = "R";
+	}
+
+//ATTRIBUTES
+	/** Are members read as numeric IDs ? **/
+	private final boolean numericIds;
+	
+	/** The members object inspector **/
+	private final MemberObjectInspector elementOI;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param numericIds True to read member refs as numeric IDs, false to read them as prefixed IDs
+	 */
+	public RelationMembersObjectInspector(boolean numericIds) {
+		this.numericIds = numericIds;
+		this.elementOI = new MemberObjectInspector();
+	}
+
+//ACCESSORS
+	@Override
+	public String getTypeName() {
+		return "array<"+elementOI.getTypeName()+">";
+	}
+	
+	@Override
+	public Category getCategory() {
+		return Category.LIST;
+	}
+	
+	@Override
+	public ObjectInspector getListElementObjectInspector() {
+		return elementOI;
+	}
+	
+	@Override
+	public Object getListElement(Object data, int index) {
+		Object result = null;
+		
+		if(data != null && index >= 0 && index < ((Relation) data).getMembersCount()) {
+			result = new Member((Relation) data, index);
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public int getListLength(Object data) {
+		return (data == null) ? -1 : ((Relation) data).getMembersCount();
+	}
+	
+	@Override
+	public List<?> getList(final Object data) {
+		if(data == null) {
+			return null;
+		}
+		
+		return new AbstractList<Object>() {
+			@Override
+			public Object get(int index) {
+				if(index < 0 || index >= size()) {
+					throw new IndexOutOfBoundsException("Invalid member index: "+index);
+				}
+				return getListElement(data, index);
+			}
+			
+			@Override
+			public int size() {
+				return ((Relation) data).getMembersCount();
+			}
+		};
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof RelationMembersObjectInspector && ((RelationMembersObjectInspector) o).numericIds == numericIds;
+	}
+	
+	@Override
+	public int hashCode() {
+		return (numericIds) ? 1 : 0;
+	}
+
+//INNER CLASS Member
+	/**
+	 * A member of a relation, read by {@link MemberObjectInspector}.
+	 */
+	private static class Member {
+	//ATTRIBUTES
+		/** The relation **/
+		private final Relation relation;
+		/** The member index in relation **/
+		private final int index;
+	
+	//CONSTRUCTOR
+		private Member(Relation relation, int index) {
+			this.relation = relation;
+			this.index = index;
+		}
+	}
+
+//INNER CLASS MemberField
+	/**
+	 * A field of the member structure.
+	 */
+	private static class MemberField implements StructField {
+	//ATTRIBUTES
+		/** The field index **/
+		private final int id;
+		/** The field name **/
+		private final String name;
+		/** The field object inspector **/
+		private final ObjectInspector oi;
+	
+	//CONSTRUCTOR
+		private MemberField(int id, String name, ObjectInspector oi) {
+			this.id = id;
+			this.name = name;
+			this.oi = oi;
+		}
+	
+	//ACCESSORS
+		@Override
+		public String getFieldName() {
+			return name;
+		}
+		
+		@Override
+		public ObjectInspector getFieldObjectInspector() {
+			return oi;
+		}
+		
+		@Override
+		public int getFieldID() {
+			return id;
+		}
+		
+		@Override
+		public String getFieldComment() {
+			return null;
+		}
+	}
+
+//INNER CLASS MemberObjectInspector
+	/**
+	 * The object inspector of the member structure (Type, Ref, Role).
+	 */
+	private class MemberObjectInspector extends StructObjectInspector {
+	//ATTRIBUTES
+		/** The structure fields **/
+		private final List<MemberField> fields;
+	
+	//CONSTRUCTOR
+		private MemberObjectInspector() {
+			fields = Arrays.asList(
+					new MemberField(0, "type", PrimitiveObjectInspectorFactory.javaStringObjectInspector),
+					new MemberField(1, "ref", (numericIds) ? PrimitiveObjectInspectorFactory.javaLongObjectInspector : PrimitiveObjectInspectorFactory.javaStringObjectInspector),
+					new MemberField(2, "role", PrimitiveObjectInspectorFactory.javaStringObjectInspector));
+		}
+	
+	//ACCESSORS
+		@Override
+		public String getTypeName() {
+			return "struct<type:string,ref:"+fields.get(1).getFieldObjectInspector().getTypeName()+",role:string>";
+		}
+		
+		@Override
+		public Category getCategory() {
+			return Category.STRUCT;
+		}
+		
+		@Override
+		public List<? extends StructField> getAllStructFieldRefs() {
+			return fields;
+		}
+		
+		@Override
+		public StructField getStructFieldRef(String fieldName) {
+			for(MemberField f : fields) {
+				if(f.name.equalsIgnoreCase(fieldName)) {
+					return f;
+				}
+			}
+			return null;
+		}
+		
+		@Override
+		public Object getStructFieldData(Object data, StructField fieldRef) {
+			if(data == null) {
+				return null;
+			}
+			
+			Member m = (Member) data;
+			Object result = null;
+			
+			switch(((MemberField) fieldRef).id) {
+				case 0:
+					result = MEMBER_TYPES[m.relation.getMemberType(m.index)];
+					break;
+				case 1:
+					long ref = m.relation.getMemberRef(m.index);
+					result = (numericIds) ? (Object) ref : m.relation.getMemberType(m.index)+Long.toString(ref);
+					break;
+				case 2:
+					result = m.relation.getMemberRole(m.index);
+					break;
+			}
+			
+			return result;
+		}
+		
+		@Override
+		public List<Object> getStructFieldsDataAsList(Object data) {
+			if(data == null) {
+				return null;
+			}
+			
+			List<Object> result = new ArrayList<Object>(fields.size());
+			for(MemberField f : fields) {
+				result.add(getStructFieldData(data, f));
+			}
+			return result;
+		}
+	}
+}
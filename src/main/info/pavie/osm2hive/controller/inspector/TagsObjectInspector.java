@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.controller.inspector;
+
+import info.pavie.osm2hive.model.osm.Tags;
+
+import java.util.Map;
+
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+
+/**
+ * This object inspector reads the {@link Tags} of an element as a Hive map of strings.
+ * The column data is the tags object itself, so tags aren't copied in a new map for each row,
+ * and a tag value is found with a binary search on keys.
+ * @author Adrien PAVIE
+ */
+public class TagsObjectInspector implements MapObjectInspector {
+//ACCESSORS
+	@Override
+	public String getTypeName() {
+		return "map<string,string>";
+	}
+	
+	@Override
+	public Category getCategory() {
+		return Category.MAP;
+	}
+	
+	@Override
+	public ObjectInspector getMapKeyObjectInspector() {
+		return PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+	}
+	
+	@Override
+	public ObjectInspector getMapValueObjectInspector() {
+		return PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+	}
+	
+	@Override
+	public Object getMapValueElement(Object data, Object key) {
+		return (data == null || key == null) ? null : ((Tags) data).get(key.toString());
+	}
+	
+	@Override
+	public Map<?,?> getMap(Object data) {
+		return (Tags) data;
+	}
+	
+	@Override
+	public int getMapSize(Object data) {
+		return (data == null) ? -1 : ((Tags) data).size();
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof TagsObjectInspector;
+	}
+	
+	@Override
+	public int hashCode() {
+		return TagsObjectInspector.class.hashCode();
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller.inspector;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+
+/**
+ * This object inspector reads the nodes of a {@link Way} as a Hive list, straight from its node IDs array.
+ * The column data is the way itself, so no list is created for each row. Nodes are read as numeric IDs (BIGINT),
+ * or as prefixed IDs (N000000, STRING) which are only created when read.
+ * @author Adrien PAVIE
+ */
+public class WayNodesObjectInspector implements ListObjectInspector {
+//ATTRIBUTES
+	/** Are nodes read as numeric IDs ? **/
+	private final boolean numericIds;
+	
+	/** The nodes object inspector **/
+	private final ObjectInspector elementOI;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param numericIds True to read nodes as numeric IDs, false to read them as prefixed IDs
+	 */
+	public WayNodesObjectInspector(boolean numericIds) {
+		this.numericIds = numericIds;
+		this.elementOI = (numericIds) ? PrimitiveObjectInspectorFactory.javaLongObjectInspector : PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+	}
+
+//ACCESSORS
+	@Override
+	public String getTypeName() {
+		return "array<"+elementOI.getTypeName()+">";
+	}
+	
+	@Override
+	public Category getCategory() {
+		return Category.LIST;
+	}
+	
+	@Override
+	public ObjectInspector getListElementObjectInspector() {
+		return elementOI;
+	}
+	
+	@Override
+	public Object getListElement(Object data, int index) {
+		Object result = null;
+		
+		if(data != null && index >= 0 && index < ((Way) data).getNodesCount()) {
+			long id = ((Way) data).getNodeIds()[index];
+			result = (numericIds) ? (Object) id : Element.NODE+Long.toString(id);
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public int getListLength(Object data) {
+		return (data == null) ? -1 : ((Way) data).getNodesCount();
+	}
+	
+	@Override
+	public List<?> getList(final Object data) {
+		if(data == null) {
+			return null;
+		}
+		
+		return new AbstractList<Object>() {
+			@Override
+			public Object get(int index) {
+				if(index < 0 || index >= size()) {
+					throw new IndexOutOfBoundsException("Invalid node index: "+index);
+				}
+				return getListElement(data, index);
+			}
+			
+			@Override
+			public int size() {
+				return ((Way) data).getNodesCount();
+			}
+		};
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof WayNodesObjectInspector && ((WayNodesObjectInspector) o).numericIds == numericIds;
+	}
+	
+	@Override
+	public int hashCode() {
+		return (numericIds) ? 1 : 0;
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Hive object inspectors reading the OSM model objects directly, without copying them in standard Java objects.
+ */
+package info.pavie.osm2hive.controller.inspector;
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.geo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A node location index stored in a memory-mapped file, as an array of locations indexed by node ID.
+ * It uses 8 bytes for each ID up to the highest indexed one, whatever the amount of nodes, so it fits planet files
+ * (where most IDs are used). The file is mapped in segments created when first written, and is sparse on most
+ * file systems. Memory is managed by the operating system, so the index can be larger than the Java heap.
+ * The file is temporary, and deleted when the index is closed (or else when the JVM exits). Negative IDs (new nodes, in files edited with JOSM
+ * and not uploaded yet) are few, so they are kept in a {@link SparseNodeLocationIndex}.
+ * @author Adrien PAVIE
+ */
+public class DenseNodeLocationIndex extends NodeLocationIndex {
+//CONSTANTS
+	/** Amount of bits of a node ID giving its index in a segment **/
+	private static final int SEGMENT_BITS = 27;
+	
+	/** Size of a segment in bytes (1 GB) **/
+	private static final long SEGMENT_SIZE = 8L << SEGMENT_BITS;
+	
+	/** Mask giving the index of a node in its segment **/
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+//ATTRIBUTES
+	/** The index file **/
+	private final File file;
+	
+	/** The index file access **/
+	private final RandomAccessFile access;
+	
+	/** The index file channel **/
+	private final FileChannel channel;
+	
+	/** The mapped segments, null if not created yet **/
+	private MappedByteBuffer[] segments;
+	
+	/** The amount of indexed nodes with a positive ID **/
+	private long count;
+	
+	/** The index of nodes with a negative ID, null if there is none **/
+	private SparseNodeLocationIndex negatives;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor, creating the index file in the default temporary directory
+	 * @throws IOException If the index file can't be created
+	 */
+	public DenseNodeLocationIndex() throws IOException {
+		this(null);
+	}
+	
+	/**
+	 * Class constructor
+	 * @param directory The directory of the index file, or null for the default temporary directory
+	 * @throws IOException If the index file can't be created
+	 */
+	public DenseNodeLocationIndex(File directory) throws IOException {
+		file = File.createTempFile("osm2hive-nodes", ".idx", directory);
+		file.deleteOnExit();
+		access = new RandomAccessFile(file, "rw");
+		channel = access.getChannel();
+		segments = new MappedByteBuffer[16];
+		count = 0;
+	}
+
+//ACCESSORS
+	@Override
+	public long get(long id) {
+		long result = NO_LOCATION;
+		int segment = (int) (id >>> SEGMENT_BITS);
+		
+		if(id < 0) {
+			result = (negatives == null) ? NO_LOCATION : negatives.get(id);
+		}
+		else if(segment < segments.length && segments[segment] != null) {
+			//Stored with sign bit flipped, so unwritten zeros mean no location
+			result = segments[segment].getLong((int) (id & SEGMENT_MASK) << 3) ^ NO_LOCATION;
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public long size() {
+		return (negatives == null) ? count : count + negatives.size();
+	}
+
+//MODIFIERS
+	@Override
+	public void put(long id, int lat, int lon) throws IOException {
+		if(id < 0) {
+			if(negatives == null) {
+				negatives = new SparseNodeLocationIndex();
+			}
+			negatives.put(id, lat, lon);
+			return;
+		}
+		
+		MappedByteBuffer buffer = getSegment((int) (id >>> SEGMENT_BITS));
+		int offset = (int) (id & SEGMENT_MASK) << 3;
+		
+		if(buffer.getLong(offset) == 0) {
+			count++;
+		}
+		buffer.putLong(offset, pack(lat, lon) ^ NO_LOCATION);
+	}
+
+//OTHER METHODS
+	/**
+	 * Get a segment, mapping it if needed.
+	 * @param segment The segment index
+	 * @return The mapped segment
+	 * @throws IOException If the segment can't be mapped
+	 */
+	private MappedByteBuffer getSegment(int segment) throws IOException {
+		if(segment >= segments.length) {
+			segments = Arrays.copyOf(segments, Math.max(segments.length * 2, segment + 1));
+		}
+		
+		if(segments[segment] == null) {
+			segments[segment] = channel.map(FileChannel.MapMode.READ_WRITE, segment * SEGMENT_SIZE, SEGMENT_SIZE);
+		}
+		
+		return segments[segment];
+	}
+	
+	@Override
+	public void close() throws IOException {
+		segments = new MappedByteBuffer[0];
+		channel.close();
+		access.close();
+		
+		file.delete();
+	}
+}
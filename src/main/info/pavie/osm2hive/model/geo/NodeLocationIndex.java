@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.geo;
+
+import info.pavie.osm2hive.model.osm.Node;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A node location index gives the location of nodes from their numeric ID. It is filled from the node stream,
+ * and then used to resolve the nodes of ways (nodes come before ways in OSM files).
+ * Locations are stored as fixed-point coordinates (7 decimals, as in OSM database and {@link Node}), packed in a long.
+ * @author Adrien PAVIE
+ */
+public abstract class NodeLocationIndex implements Closeable {
+//CONSTANTS
+	/** The value returned for unknown nodes (latitude can't be the minimum int) **/
+	public static final long NO_LOCATION = Long.MIN_VALUE;
+
+//ACCESSORS
+	/**
+	 * Get the location of a node.
+	 * @param id The node numeric ID
+	 * @return The packed location (see {@link #getLat(long)} and {@link #getLon(long)}), or {@link #NO_LOCATION} if unknown
+	 */
+	public abstract long get(long id);
+	
+	/**
+	 * @return The amount of nodes in index
+	 */
+	public abstract long size();
+	
+	/**
+	 * @param location The packed location
+	 * @return The latitude
+	 */
+	public static double getLat(long location) {
+		return ((int) (location >> 32)) / Node.COORDINATE_SCALE;
+	}
+	
+	/**
+	 * @param location The packed location
+	 * @return The longitude
+	 */
+	public static double getLon(long location) {
+		return ((int) location) / Node.COORDINATE_SCALE;
+	}
+
+//MODIFIERS
+	/**
+	 * Sets the location of a node.
+	 * @param id The node numeric ID (negative for nodes not uploaded yet)
+	 * @param lat The node fixed-point latitude (see {@link Node#getFixedLat()})
+	 * @param lon The node fixed-point longitude (see {@link Node#getFixedLon()})
+	 * @throws IOException If the index storage fails
+	 */
+	public abstract void put(long id, int lat, int lon) throws IOException;
+
+//OTHER METHODS
+	/**
+	 * Packs a location in a long.
+	 * @param lat The fixed-point latitude
+	 * @param lon The fixed-point longitude
+	 * @return The packed location
+	 */
+	public static long pack(int lat, int lon) {
+		return ((long) lat << 32) | (lon & 0xFFFFFFFFL);
+	}
+	
+	@Override
+	public void close() throws IOException {;}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.geo;
+
+import java.util.Arrays;
+
+/**
+ * A node location index held in memory, as an open-addressing hash table of IDs and locations.
+ * It only uses memory for the indexed nodes, so it fits small extracts. For whole planet files,
+ * see {@link DenseNodeLocationIndex}.
+ * @author Adrien PAVIE
+ */
+public class SparseNodeLocationIndex extends NodeLocationIndex {
+//CONSTANTS
+	/** Initial amount of slots **/
+	private static final int DEFAULT_CAPACITY = 1024;
+	
+//ATTRIBUTES
+	/** The node IDs, by slot **/
+	private long[] ids;
+	
+	/** The packed locations, by slot ({@link #NO_LOCATION} for empty slots, so any ID can be indexed) **/
+	private long[] locations;
+	
+	/** The amount of indexed nodes **/
+	private int count;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 */
+	public SparseNodeLocationIndex() {
+		ids = new long[DEFAULT_CAPACITY];
+		locations = new long[DEFAULT_CAPACITY];
+		Arrays.fill(locations, NO_LOCATION);
+		count = 0;
+	}
+
+//ACCESSORS
+	@Override
+	public long get(long id) {
+		return locations[find(ids, locations, id)];
+	}
+	
+	@Override
+	public long size() {
+		return count;
+	}
+
+//MODIFIERS
+	@Override
+	public void put(long id, int lat, int lon) {
+		//Keep table at most half full
+		if(count * 2 >= ids.length) {
+			grow();
+		}
+		
+		int slot = find(ids, locations, id);
+		if(locations[slot] == NO_LOCATION) {
+			ids[slot] = id;
+			count++;
+		}
+		locations[slot] = pack(lat, lon);
+	}
+
+//OTHER METHODS
+	/**
+	 * Doubles the table size, and puts again all nodes.
+	 */
+	private void grow() {
+		long[] oldIds = ids;
+		long[] oldLocations = locations;
+		ids = new long[oldIds.length * 2];
+		locations = new long[oldIds.length * 2];
+		Arrays.fill(locations, NO_LOCATION);
+		
+		for(int i=0; i < oldIds.length; i++) {
+			if(oldLocations[i] != NO_LOCATION) {
+				int slot = find(ids, locations, oldIds[i]);
+				ids[slot] = oldIds[i];
+				locations[slot] = oldLocations[i];
+			}
+		}
+	}
+	
+	/**
+	 * Looks for the slot of a node (linear probing).
+	 * @param table The IDs table
+	 * @param locations The locations table, telling which slots are empty
+	 * @param id The node ID
+	 * @return The slot containing this ID, or the empty slot where it should be put
+	 */
+	private static int find(long[] table, long[] locations, long id) {
+		int mask = table.length - 1;
+		long hash = id * 0x9E3779B97F4A7C15L;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		
+		while(locations[slot] != NO_LOCATION && table[slot] != id) {
+			slot = (slot + 1) & mask;
+		}
+		
+		return slot;
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.geo;
+
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * This class creates way geometries from their nodes locations, as Well-Known Binary (WKB) linestrings.
+ * WKB can be read by most spatial tools, for example Hive spatial functions (ST_GeomFromWKB).
+ * @author Adrien PAVIE
+ */
+public class WayGeometry {
+//CONSTANTS
+	/** WKB byte order marker, for little endian **/
+	private static final byte LITTLE_ENDIAN = 1;
+	
+	/** WKB geometry type of linestrings **/
+	private static final int LINESTRING = 2;
+	
+	/** WKB header size (byte order, type, points amount) **/
+	private static final int HEADER_SIZE = 9;
+
+//CONSTRUCTORS
+	private WayGeometry() {}
+
+//OTHER METHODS
+	/**
+	 * Get the coordinates of the way nodes.
+	 * @param way The way
+	 * @param index The node location index
+	 * @return The packed locations of the nodes (see {@link NodeLocationIndex}), or null if a node location is unknown
+	 */
+	public static long[] getLocations(Way way, NodeLocationIndex index) {
+		int count = way.getNodesCount();
+		long[] nodes = way.getNodeIds();
+		long[] result = new long[count];
+		
+		for(int i=0; i < count; i++) {
+			result[i] = index.get(nodes[i]);
+			if(result[i] == NodeLocationIndex.NO_LOCATION) {
+				return null;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Get the way geometry, as a WKB linestring (coordinates in longitude, latitude order).
+	 * @param way The way
+	 * @param index The node location index
+	 * @return The WKB linestring, or null if a node location is unknown
+	 */
+	public static byte[] toWKB(Way way, NodeLocationIndex index) {
+		long[] locations = getLocations(way, index);
+		if(locations == null) {
+			return null;
+		}
+		
+		ByteBuffer wkb = ByteBuffer.allocate(HEADER_SIZE + locations.length * 16).order(ByteOrder.LITTLE_ENDIAN);
+		wkb.put(LITTLE_ENDIAN);
+		wkb.putInt(LINESTRING);
+		wkb.putInt(locations.length);
+		
+		for(long location : locations) {
+			wkb.putDouble(NodeLocationIndex.getLon(location));
+			wkb.putDouble(NodeLocationIndex.getLat(location));
+		}
+		
+		return wkb.array();
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Classes related to elements geometry: node locations index, and way geometries.
+ */
+package info.pavie.osm2hive.model.geo;
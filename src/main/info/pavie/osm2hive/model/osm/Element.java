@@ -16,7 +16,6 @@
 
 package info.pavie.osm2hive.model.osm;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -24,6 +23,19 @@ import java.util.Map;
  * @author Adrien PAVIE
  */
 public abstract class Element {
+//CONSTANTS
+	/** The type code of nodes, also used as their ID prefix **/
+	public static final char NODE = 'N';
+	
+	/** The type code of ways, also used as their ID prefix **/
+	public static final char WAY = 'W';
+	
+	/** The type code of relations, also used as their ID prefix **/
+	public static final char RELATION = 'R';
+	
+	/** The longest prefixed ID, as written by {@link #writeId(char, long, byte[])}: a type code, a sign and 19 digits **/
+	public static final int MAX_ID_LENGTH = 21;
+
 //ATTRIBUTES
 	/** The object ID, unique per object type **/
 	protected long id;
@@ -31,8 +43,10 @@ public abstract class Element {
 	protected String user;
 	/** The last editor ID **/
 	protected long uid;
-	/** The last edition time **/
+	/** The last edition time, as written in OSM files (created from time when needed) **/
 	protected String timestamp;
+	/** The last edition time, in milliseconds since epoch ({@link Timestamps#UNKNOWN} if unknown) **/
+	protected long time;
 	/** Is this object visible or deleted ? **/
 	protected boolean visible;
 	/** The version of the object (default: 1) **/
@@ -40,7 +54,7 @@ public abstract class Element {
 	/** The last changeset ID **/
 	protected long changeset;
 	/** The objects tags, which describe it **/
-	protected Map<String,String> tags;
+	protected Tags tags;
 
 //CONSTRUCTOR
 	/**
@@ -51,7 +65,8 @@ public abstract class Element {
 		this.id = id;
 		version = 1;
 		visible = true;
-		tags = new HashMap<String,String>();
+		time = Timestamps.UNKNOWN;
+		tags = new Tags();
 	}
 
 //ACCESSORS
@@ -59,6 +74,43 @@ public abstract class Element {
 	 * @return the ID, with format : X000000, where X is the object type (N: node, W: way, R: relation)
 	 */
 	public abstract String getId();
+	
+	/**
+	 * @return the ID, without type prefix (unique only for a given type)
+	 */
+	public long getNumericId() {
+		return id;
+	}
+	
+	/**
+	 * @return the element type code ({@link #NODE}, {@link #WAY} or {@link #RELATION})
+	 */
+	public abstract char getType();
+	
+	/**
+	 * Get the type code of an element, from its type name.
+	 * @param type The type name (node, way or relation)
+	 * @return The type code ({@link #NODE}, {@link #WAY} or {@link #RELATION})
+	 */
+	public static char getType(String type) {
+		char result;
+		
+		switch(type) {
+			case "node":
+				result = NODE;
+				break;
+			case "way":
+				result = WAY;
+				break;
+			case "relation":
+				result = RELATION;
+				break;
+			default:
+				throw new RuntimeException("Unknown element type: "+type);
+		}
+		
+		return result;
+	}
 
 	/**
 	 * @return the user
@@ -75,11 +127,21 @@ public abstract class Element {
 	}
 
 	/**
-	 * @return the last edit timestamp
+	 * @return the last edit timestamp, as written in OSM files (for example "2010-03-20T20:47:00Z")
 	 */
 	public String getTimestamp() {
+		if(timestamp == null && time != Timestamps.UNKNOWN) {
+			timestamp = Timestamps.format(time);
+		}
 		return timestamp;
 	}
+	
+	/**
+	 * @return the last edit time, in milliseconds since epoch, or {@link Timestamps#UNKNOWN} if unknown
+	 */
+	public long getTime() {
+		return time;
+	}
 
 	/**
 	 * @return Is the object visible in data ?
@@ -103,7 +165,7 @@ public abstract class Element {
 	}
 
 	/**
-	 * @return the tags
+	 * @return the tags, sorted by key (see {@link Tags})
 	 */
 	public Map<String, String> getTags() {
 		return tags;
@@ -130,10 +192,20 @@ public abstract class Element {
 	}
 
 	/**
-	 * @param timestamp the last edit timestamp
+	 * @param timestamp the last edit timestamp, as written in OSM files (its time is unknown if not in OSM form)
 	 */
 	public void setTimestamp(String timestamp) {
 		this.timestamp = timestamp;
+		this.time = Timestamps.parse(timestamp);
+	}
+	
+	/**
+	 * Sets the last edit time. Its timestamp string is only created if read.
+	 * @param time the last edit time, in milliseconds since epoch
+	 */
+	public void setTime(long time) {
+		this.time = time;
+		this.timestamp = null;
 	}
 
 	/**
@@ -158,12 +230,31 @@ public abstract class Element {
 	}
 
 	/**
-	 * Add a tag
+	 * Resets the element, so it can be reused for another element of the same type.
+	 * Metadata get their default values, and tags are removed.
+	 * @param id The new element ID
+	 */
+	protected void reset(long id) {
+		this.id = id;
+		user = null;
+		uid = 0;
+		timestamp = null;
+		time = Timestamps.UNKNOWN;
+		visible = true;
+		version = 1;
+		changeset = 0;
+		tags.clear();
+	}
+	
+	/**
+	 * Add a tag. Tags without key are ignored.
 	 * @param key The tag key
 	 * @param value The tag value
 	 */
 	public void addTag(String key, String value) {
-		tags.put(key, value);
+		if(key != null) {
+			tags.put(key, value);
+		}
 	}
 	
 	/**
@@ -173,4 +264,30 @@ public abstract class Element {
 	public void deleteTag(String key) {
 		tags.remove(key);
 	}
+
+//OTHER METHODS
+	/**
+	 * Writes a prefixed ID (for example N123, as given by {@link #getId()}) as ASCII bytes,
+	 * at the end of the given buffer, without creating any string.
+	 * @param type The type code ({@link #NODE}, {@link #WAY} or {@link #RELATION})
+	 * @param id The numeric ID
+	 * @param buffer The buffer, at least {@link #MAX_ID_LENGTH} bytes long
+	 * @return The index of the first written byte, the ID ending at the buffer end
+	 */
+	public static int writeId(char type, long id, byte[] buffer) {
+		int pos = buffer.length;
+		
+		//Digits are computed on the negative value, as Long.MIN_VALUE has no positive counterpart
+		long value = (id < 0) ? id : -id;
+		do {
+			buffer[--pos] = (byte) ('0' - value % 10);
+			value /= 10;
+		} while(value < 0);
+		
+		if(id < 0) {
+			buffer[--pos] = '-';
+		}
+		buffer[--pos] = (byte) type;
+		return pos;
+	}
 }
@@ -17,14 +17,20 @@ package info.pavie.osm2hive.model.osm;
 
 /**
  * A node is an OSM element with coordinates.
+ * Coordinates are stored as fixed-point integers, in 1e-7 degrees as in OSM database. Decimal coordinates
+ * with up to 7 decimals give back exactly the same double values, more precise ones are rounded.
  * @author Adrien PAVIE
  */
 public class Node extends Element {
+//CONSTANTS
+	/** The scale of fixed-point coordinates (7 decimals) **/
+	public static final double COORDINATE_SCALE = 1e7;
+
 //ATTRIBUTES
-	/** The latitude **/
-	private double lat;
-	/** The longitude **/
-	private double lon;
+	/** The latitude, in 1e-7 degrees **/
+	private int lat;
+	/** The longitude, in 1e-7 degrees **/
+	private int lon;
 	
 //CONSTRUCTOR
 	/**
@@ -35,42 +41,101 @@ public class Node extends Element {
 	 */
 	public Node(long id, double lat, double lon) {
 		super(id);
-		this.lat = lat;
-		this.lon = lon;
+		setLat(lat);
+		setLon(lon);
 	}
 
 //ACCESSORS
 	@Override
 	public String getId() {
-		return "N"+id;
+		return NODE+Long.toString(id);
+	}
+	
+	@Override
+	public char getType() {
+		return NODE;
 	}
 
 	/**
 	 * @return the latitude
 	 */
 	public double getLat() {
-		return lat;
+		return lat / COORDINATE_SCALE;
 	}
 
 	/**
 	 * @return the longitude
 	 */
 	public double getLon() {
+		return lon / COORDINATE_SCALE;
+	}
+	
+	/**
+	 * @return the latitude, in 1e-7 degrees
+	 */
+	public int getFixedLat() {
+		return lat;
+	}
+	
+	/**
+	 * @return the longitude, in 1e-7 degrees
+	 */
+	public int getFixedLon() {
 		return lon;
 	}
 
 //MODIFIERS
+	/**
+	 * Resets the node, so it can be reused for another node.
+	 * @param id The new node ID
+	 * @param lat The new latitude
+	 * @param lon The new longitude
+	 */
+	public void reset(long id, double lat, double lon) {
+		reset(id);
+		setLat(lat);
+		setLon(lon);
+	}
+	
+	/**
+	 * Resets the node with fixed-point coordinates, so it can be reused for another node.
+	 * @param id The new node ID
+	 * @param lat The new latitude, in 1e-7 degrees
+	 * @param lon The new longitude, in 1e-7 degrees
+	 */
+	public void resetFixed(long id, int lat, int lon) {
+		reset(id);
+		this.lat = lat;
+		this.lon = lon;
+	}
+	
 	/**
 	 * @param lat the new latitude
+	 * @throws NumberFormatException If the latitude is out of int range once scaled
 	 */
 	public void setLat(double lat) {
-		this.lat = lat;
+		this.lat = toFixed(lat);
 	}
 
 	/**
 	 * @param lon the new longitude
+	 * @throws NumberFormatException If the longitude is out of int range once scaled
 	 */
 	public void setLon(double lon) {
-		this.lon = lon;
+		this.lon = toFixed(lon);
+	}
+
+//OTHER METHODS
+	/**
+	 * @param coordinate The coordinate, in degrees
+	 * @return The coordinate in 1e-7 degrees, rounded to the nearest integer
+	 * @throws NumberFormatException If the coordinate is not a number, or is out of int range once scaled
+	 */
+	public static int toFixed(double coordinate) {
+		long fixed = Math.round(coordinate * COORDINATE_SCALE);
+		if(Double.isNaN(coordinate) || fixed < Integer.MIN_VALUE || fixed > Integer.MAX_VALUE) {
+			throw new NumberFormatException("Coordinate out of range: "+coordinate);
+		}
+		return (int) fixed;
 	}
 }
@@ -17,117 +17,203 @@
 package info.pavie.osm2hive.model.osm;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * A relation is a meta OSM object. It allows to combine other elements.
+ * Its members are stored in parallel arrays (type codes, numeric IDs and roles), in relation order.
+ * A relation can contain the same member several times, for example a route going back and forth on a way.
  * @author Adrien PAVIE
  */
 public class Relation extends Element {
+//CONSTANTS
+	/** Initial capacity of the members arrays **/
+	private static final int DEFAULT_CAPACITY = 8;
+
 //ATTRIBUTES
-	/** The relation members **/
-	private List<Member> members;
+	/** The members type codes **/
+	private char[] memberTypes;
+	
+	/** The members numeric IDs **/
+	private long[] memberRefs;
+	
+	/** The members roles **/
+	private String[] memberRoles;
+	
+	/** The amount of members (only the first membersCount values of arrays are used) **/
+	private int membersCount;
 
 //CONSTRUCTOR
 	public Relation(long id) {
 		super(id);
-		members = new ArrayList<Member>();
+		memberTypes = new char[DEFAULT_CAPACITY];
+		memberRefs = new long[DEFAULT_CAPACITY];
+		memberRoles = new String[DEFAULT_CAPACITY];
 	}
 
 //ACCESSORS
 	@Override
 	public String getId() {
-		return "R"+id;
+		return RELATION+Long.toString(id);
+	}
+	
+	@Override
+	public char getType() {
+		return RELATION;
 	}
 	
 	/**
-	 * @param e The element
-	 * @return The role of this element, or null if no role
+	 * Get the role of an element. This needs to look for the element in members,
+	 * prefer {@link #getMemberRole(int)} when reading all members.
+	 * @param e The element, as a prefixed ID (N000000)
+	 * @return The role of the first member being this element
 	 */
 	public String getMemberRole(String e) {
-		String result = null;
+		int index = indexOf(e);
 		
-		boolean found = false;
-		int index = 0;
-		while(!found && index < members.size()) {
-			if(members.get(index).elem.equals(e)) {
-				found = true;
-				result = members.get(index).role;
-			}
-			index++;
-		}
-		
-		if(!found) {
+		if(index < 0) {
 			throw new RuntimeException("Element "+e+" not found");
 		}
 		
-		return result;
+		return memberRoles[index];
 	}
 	
 	/**
-	 * @return The list of member elements
+	 * @return The list of member elements, as prefixed IDs (N000000). The list is created at each call.
 	 */
 	public List<String> getMembers() {
-		List<String> elems = new ArrayList<String>(members.size());
-		for(Member m : members) {
-			elems.add(m.elem);
+		List<String> elems = new ArrayList<String>(membersCount);
+		for(int i=0; i < membersCount; i++) {
+			elems.add(memberTypes[i]+Long.toString(memberRefs[i]));
 		}
 		return elems;
 	}
+	
+	/**
+	 * @return The amount of members
+	 */
+	public int getMembersCount() {
+		return membersCount;
+	}
+	
+	/**
+	 * @param index The member index
+	 * @return The member type code ({@link #NODE}, {@link #WAY} or {@link #RELATION})
+	 */
+	public char getMemberType(int index) {
+		checkIndex(index);
+		return memberTypes[index];
+	}
+	
+	/**
+	 * @param index The member index
+	 * @return The member numeric ID
+	 */
+	public long getMemberRef(int index) {
+		checkIndex(index);
+		return memberRefs[index];
+	}
+	
+	/**
+	 * @param index The member index
+	 * @return The member role
+	 */
+	public String getMemberRole(int index) {
+		checkIndex(index);
+		return memberRoles[index];
+	}
 
 //MODIFIERS
+	/**
+	 * Resets the relation, so it can be reused for another relation. Its members arrays are kept, to avoid growing them again.
+	 * @param id The new relation ID
+	 */
+	@Override
+	public void reset(long id) {
+		super.reset(id);
+		Arrays.fill(memberRoles, 0, membersCount, null);
+		membersCount = 0;
+	}
+	
 	/**
 	 * Adds a new member
 	 * @param role The role of the member
-	 * @param e The element
+	 * @param e The element, as a prefixed ID (N000000)
 	 */
 	public void addMember(String role, String e) {
 		if(e == null || e.equals("")) {
 			throw new NullPointerException("Element can't be null");
 		}
 		
-		members.add(new Member(role, e));
+		addMember(role, e.charAt(0), Long.parseLong(e.substring(1)));
+	}
+	
+	/**
+	 * Adds a new member
+	 * @param role The role of the member
+	 * @param type The element type code ({@link #NODE}, {@link #WAY} or {@link #RELATION})
+	 * @param ref The element numeric ID
+	 */
+	public void addMember(String role, char type, long ref) {
+		if(membersCount == memberRefs.length) {
+			int capacity = membersCount * 2;
+			memberTypes = Arrays.copyOf(memberTypes, capacity);
+			memberRefs = Arrays.copyOf(memberRefs, capacity);
+			memberRoles = Arrays.copyOf(memberRoles, capacity);
+		}
+		
+		memberTypes[membersCount] = type;
+		memberRefs[membersCount] = ref;
+		memberRoles[membersCount] = role;
+		membersCount++;
 	}
 	
 	/**
 	 * Removes a member
-	 * @param e The element to remove
+	 * @param e The element to remove, as a prefixed ID (N000000). Only its first occurrence is removed.
 	 */
 	public void removeMember(String e) {
-		boolean found = false;
-		int index = 0;
-		while(!found && index < members.size()) {
-			if(members.get(index).elem == e) {
-				found = true;
-				members.remove(index);
-			}
-			index++;
+		int index = indexOf(e);
+		
+		if(index >= 0) {
+			int moved = membersCount - index - 1;
+			System.arraycopy(memberTypes, index + 1, memberTypes, index, moved);
+			System.arraycopy(memberRefs, index + 1, memberRefs, index, moved);
+			System.arraycopy(memberRoles, index + 1, memberRoles, index, moved);
+			membersCount--;
+			memberRoles[membersCount] = null;
 		}
 	}
 	
-//INNER CLASS Member
-	private class Member {
-	//ATTRIBUTES
-		/** The member role **/
-		private String role;
-		/** The member object **/
-		private String elem;
-		
-	//CONSTRUCTOR
-		/**
-		 * Default constructor
-		 * @param role The member role
-		 * @param elem The member object
-		 */
-		private Member(String role, String elem) {
-			this.role = role;
-			this.elem = elem;
+//OTHER METHODS
+	/**
+	 * Looks for an element in members.
+	 * @param e The element, as a prefixed ID (N000000)
+	 * @return The index of its first occurrence, or -1 if not found
+	 */
+	private int indexOf(String e) {
+		if(e != null && e.length() > 1) {
+			char type = e.charAt(0);
+			long ref = Long.parseLong(e.substring(1));
+			
+			for(int i=0; i < membersCount; i++) {
+				if(memberRefs[i] == ref && memberTypes[i] == type) {
+					return i;
+				}
+			}
 		}
 		
-	//ACCESSORS
-		@Override
-		public String toString() {
-			return elem+"=>"+role;
+		return -1;
+	}
+	
+	/**
+	 * @param index The member index to check
+	 * @throws IndexOutOfBoundsException If there is no member at this index
+	 */
+	private void checkIndex(int index) {
+		if(index < 0 || index >= membersCount) {
+			throw new IndexOutOfBoundsException("Invalid member index: "+index);
 		}
 	}
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.osm;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The tags of an element, stored as parallel arrays of keys and values sorted by key.
+ * It uses far less memory than a hash map for the few tags of usual elements, and a key is found
+ * with a binary search. Null keys aren't allowed.
+ * @author Adrien PAVIE
+ */
+public class Tags extends AbstractMap<String,String> {
+//CONSTANTS
+	/** Initial amount of tags the arrays can hold **/
+	private static final int DEFAULT_CAPACITY = 4;
+
+//ATTRIBUTES
+	/** The tag keys, sorted **/
+	private String[] keys;
+	
+	/** The tag values, in the same order as keys **/
+	private String[] values;
+	
+	/** The amount of tags **/
+	private int count;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor, for an empty tag list
+	 */
+	public Tags() {
+		keys = new String[DEFAULT_CAPACITY];
+		values = new String[DEFAULT_CAPACITY];
+		count = 0;
+	}
+
+//ACCESSORS
+	@Override
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * @param index The tag index (tags are sorted by key)
+	 * @return The tag key
+	 */
+	public String getKey(int index) {
+		checkIndex(index);
+		return keys[index];
+	}
+	
+	/**
+	 * @param index The tag index (tags are sorted by key)
+	 * @return The tag value
+	 */
+	public String getValue(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+	
+	/**
+	 * Get the index of a tag.
+	 * @param key The tag key
+	 * @return The tag index if found, or (-(insertion index) - 1) if not
+	 */
+	public int indexOf(String key) {
+		return Arrays.binarySearch(keys, 0, count, key);
+	}
+	
+	@Override
+	public String get(Object key) {
+		int index = (key instanceof String) ? indexOf((String) key) : -1;
+		return (index >= 0) ? values[index] : null;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof String && indexOf((String) key) >= 0;
+	}
+	
+	@Override
+	public Set<Map.Entry<String,String>> entrySet() {
+		return new AbstractSet<Map.Entry<String,String>>() {
+			@Override
+			public Iterator<Map.Entry<String,String>> iterator() {
+				return new Iterator<Map.Entry<String,String>>() {
+					private int next = 0;
+					
+					@Override
+					public boolean hasNext() {
+						return next < count;
+					}
+					
+					@Override
+					public Map.Entry<String,String> next() {
+						if(next >= count) {
+							throw new NoSuchElementException();
+						}
+						Map.Entry<String,String> result = new AbstractMap.SimpleImmutableEntry<String,String>(keys[next], values[next]);
+						next++;
+						return result;
+					}
+					
+					@Override
+					public void remove() {
+						if(next == 0) {
+							throw new IllegalStateException();
+						}
+						next--;
+						removeAt(next);
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return count;
+			}
+		};
+	}
+	
+	/**
+	 * Checks if the given tag index is valid.
+	 * @param index The tag index
+	 */
+	private void checkIndex(int index) {
+		if(index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Invalid tag index: "+index);
+		}
+	}
+
+//MODIFIERS
+	@Override
+	public String put(String key, String value) {
+		if(key == null) {
+			throw new NullPointerException("Tag key can't be null");
+		}
+		
+		int index = indexOf(key);
+		String previous = null;
+		
+		//Existing tag
+		if(index >= 0) {
+			previous = values[index];
+			values[index] = value;
+		}
+		//New tag, inserted at its sorted position
+		else {
+			index = -index - 1;
+			if(count == keys.length) {
+				keys = Arrays.copyOf(keys, count * 2);
+				values = Arrays.copyOf(values, count * 2);
+			}
+			System.arraycopy(keys, index, keys, index + 1, count - index);
+			System.arraycopy(values, index, values, index + 1, count - index);
+			keys[index] = key;
+			values[index] = value;
+			count++;
+		}
+		
+		return previous;
+	}
+	
+	@Override
+	public String remove(Object key) {
+		int index = (key instanceof String) ? indexOf((String) key) : -1;
+		String previous = null;
+		
+		if(index >= 0) {
+			previous = values[index];
+			removeAt(index);
+		}
+		
+		return previous;
+	}
+	
+	/**
+	 * Removes all tags, keeping the arrays to avoid growing them again.
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(keys, 0, count, null);
+		Arrays.fill(values, 0, count, null);
+		count = 0;
+	}
+	
+	/**
+	 * Removes the tag at the given index.
+	 * @param index The tag index
+	 */
+	private void removeAt(int index) {
+		System.arraycopy(keys, index + 1, keys, index, count - index - 1);
+		System.arraycopy(values, index + 1, values, index, count - index - 1);
+		count--;
+		keys[count] = null;
+		values[count] = null;
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.osm;
+
+import java.util.TimeZone;
+
+/**
+ * Conversions between OSM timestamps, written as "YYYY-MM-DDTHH:MM:SSZ" (ISO 8601, in UTC), and milliseconds since epoch.
+ * Conversions only use integer operations, without calendar or date format objects, so they can be done for each element.
+ * @author Adrien PAVIE
+ */
+public class Timestamps {
+//CONSTANTS
+	/** Value of unknown times, or of timestamps not written in OSM form **/
+	public static final long UNKNOWN = Long.MIN_VALUE;
+	
+	/** Length of a timestamp written in OSM form **/
+	public static final int LENGTH = 20;
+	
+	/** Separators expected in a timestamp, at the same index (digits are marked with '0') **/
+	private static final String PATTERN = "0000-00-00T00:00:00Z";
+	
+	/** Amount of milliseconds in a day **/
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+//CONSTRUCTORS
+	/**
+	 * Utility class, no instance
+	 */
+	private Timestamps() {}
+
+//OTHER METHODS
+	/**
+	 * @param index An index in a timestamp
+	 * @return The character expected at this index, '0' for a digit
+	 */
+	public static char getPatternChar(int index) {
+		return PATTERN.charAt(index);
+	}
+	
+	/**
+	 * Parses a timestamp written in OSM form.
+	 * @param timestamp The timestamp, for example "2010-03-20T20:47:00Z"
+	 * @return The time in milliseconds since epoch, or {@link #UNKNOWN} if the timestamp is null or not in OSM form
+	 */
+	public static long parse(String timestamp) {
+		if(timestamp == null || timestamp.length() != LENGTH) {
+			return UNKNOWN;
+		}
+		
+		//Check separators and digits
+		for(int i=0; i < LENGTH; i++) {
+			char c = timestamp.charAt(i);
+			char expected = PATTERN.charAt(i);
+			if((expected == '0') ? (c < '0' || c > '9') : (c != expected)) {
+				return UNKNOWN;
+			}
+		}
+		
+		return toMillis(
+				number(timestamp, 0, 4), number(timestamp, 5, 2), number(timestamp, 8, 2),
+				number(timestamp, 11, 2), number(timestamp, 14, 2), number(timestamp, 17, 2));
+	}
+	
+	/**
+	 * Converts a UTC date and time to milliseconds since epoch.
+	 * @param year The year (0 to 9999)
+	 * @param month The month (1 to 12)
+	 * @param day The day of month (1 to the month length)
+	 * @param hour The hour (0 to 23)
+	 * @param minute The minute (0 to 59)
+	 * @param second The second (0 to 60, leap seconds being counted as the next minute first second)
+	 * @return The time in milliseconds since epoch, or {@link #UNKNOWN} if a field is out of range
+	 */
+	public static long toMillis(int year, int month, int day, int hour, int minute, int second) {
+		if(year < 0 || year > 9999 || month < 1 || month > 12 || day < 1 || day > getMonthLength(year, month)
+				|| hour > 23 || minute > 59 || second > 60 || hour < 0 || minute < 0 || second < 0) {
+			return UNKNOWN;
+		}
+		
+		return getEpochDay(year, month, day) * MILLIS_PER_DAY + ((hour * 60 + minute) * 60 + second) * 1000L;
+	}
+	
+	/**
+	 * Formats a time in OSM form. Milliseconds are truncated.
+	 * @param millis The time in milliseconds since epoch (years 0 to 9999)
+	 * @return The timestamp, for example "2010-03-20T20:47:00Z"
+	 */
+	public static String format(long millis) {
+		long epochDay = millis / MILLIS_PER_DAY;
+		long dayMillis = millis % MILLIS_PER_DAY;
+		if(dayMillis < 0) {
+			epochDay--;
+			dayMillis += MILLIS_PER_DAY;
+		}
+		int daySeconds = (int) (dayMillis / 1000);
+		
+		//Civil date from epoch day (days since 0000-03-01, in 400 years eras)
+		long days = epochDay + 719468;
+		long era = ((days >= 0) ? days : days - 146096) / 146097;
+		int dayOfEra = (int) (days - era * 146097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int shiftedMonth = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		int month = (shiftedMonth < 10) ? shiftedMonth + 3 : shiftedMonth - 9;
+		int year = (int) (yearOfEra + era * 400) + ((month <= 2) ? 1 : 0);
+		
+		char[] result = PATTERN.toCharArray();
+		digits(result, 0, 4, year);
+		digits(result, 5, 2, month);
+		digits(result, 8, 2, day);
+		digits(result, 11, 2, daySeconds / 3600);
+		digits(result, 14, 2, daySeconds / 60 % 60);
+		digits(result, 17, 2, daySeconds % 60);
+		
+		return new String(result);
+	}
+	
+	/**
+	 * Shifts a time, so it has in the given time zone the date and time it has in UTC.
+	 * This is how OSM times are given to Hive TIMESTAMP values, which have no time zone.
+	 * @param millis The time in milliseconds since epoch
+	 * @param timeZone The time zone (usually the JVM default one)
+	 * @return The shifted time, in milliseconds since epoch
+	 */
+	public static long toLocal(long millis, TimeZone timeZone) {
+		//Offset at the shifted time, to be right around daylight saving time changes
+		long local = millis - timeZone.getOffset(millis);
+		return millis - timeZone.getOffset(local);
+	}
+	
+	/**
+	 * Get the amount of days since epoch of a date (proleptic Gregorian calendar).
+	 * @param year The year
+	 * @param month The month (1 to 12)
+	 * @param day The day of month
+	 * @return The amount of days since 1970-01-01
+	 */
+	private static long getEpochDay(int year, int month, int day) {
+		//Years starting in March, so leap days are at year end
+		int y = (month <= 2) ? year - 1 : year;
+		int era = ((y >= 0) ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * ((month > 2) ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		
+		return era * 146097L + dayOfEra - 719468;
+	}
+	
+	/**
+	 * @param year The year
+	 * @param month The month (1 to 12)
+	 * @return The amount of days in the month
+	 */
+	private static int getMonthLength(int year, int month) {
+		int result;
+		
+		if(month == 2) {
+			boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+			result = (leap) ? 29 : 28;
+		}
+		else {
+			result = (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @param s The string containing digits
+	 * @param start The index of the first digit
+	 * @param length The amount of digits
+	 * @return The read number
+	 */
+	private static int number(String s, int start, int length) {
+		int result = 0;
+		for(int i=start; i < start + length; i++) {
+			result = result * 10 + (s.charAt(i) - '0');
+		}
+		return result;
+	}
+	
+	/**
+	 * Writes a number with a fixed amount of digits.
+	 * @param chars The written characters
+	 * @param start The index of the first digit
+	 * @param length The amount of digits
+	 * @param value The written number
+	 */
+	private static void digits(char[] chars, int start, int length, int value) {
+		for(int i=start + length - 1; i >= start; i--) {
+			chars[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+}
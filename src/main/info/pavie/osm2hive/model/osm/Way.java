@@ -17,16 +17,25 @@
 package info.pavie.osm2hive.model.osm;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * A way is an OSM element, which combines several {@link Node}s to create a path.
+ * Its nodes are stored as numeric IDs.
  * @author Adrien PAVIE
  */
 public class Way extends Element {
+//CONSTANTS
+	/** Initial capacity of the nodes array **/
+	private static final int DEFAULT_CAPACITY = 8;
+
 //ATTRIBUTES
-	/** The list of nodes of the way **/
-	private List<String> nodes;
+	/** The numeric IDs of the way nodes (only the first nodesCount values are used) **/
+	private long[] nodes;
+	
+	/** The amount of nodes **/
+	private int nodesCount;
 	
 //CONSTRUCTOR
 	/**
@@ -45,7 +54,10 @@ public class Way extends Element {
 			throw new RuntimeException("A way should have at least two nodes");
 		}
 		
-		this.nodes = nodes;
+		this.nodes = new long[nodes.size()];
+		for(String n : nodes) {
+			addNode(n);
+		}
 	}
 	
 	/**
@@ -55,37 +67,98 @@ public class Way extends Element {
 	 */
 	public Way(long id) {
 		super(id);
-		this.nodes = new ArrayList<String>();
+		this.nodes = new long[DEFAULT_CAPACITY];
 	}
 
 //ACCESSORS
 	@Override
 	public String getId() {
-		return "W"+id;
+		return WAY+Long.toString(id);
+	}
+	
+	@Override
+	public char getType() {
+		return WAY;
 	}
 
 	/**
-	 * @return The list of nodes of the way
+	 * @return The list of nodes of the way, as prefixed IDs (N000000). The list is created at each call.
 	 */
 	public List<String> getNodes() {
+		List<String> result = new ArrayList<String>(nodesCount);
+		for(int i=0; i < nodesCount; i++) {
+			result.add(NODE+Long.toString(nodes[i]));
+		}
+		return result;
+	}
+	
+	/**
+	 * @return The amount of nodes of the way
+	 */
+	public int getNodesCount() {
+		return nodesCount;
+	}
+	
+	/**
+	 * @param index The node index in way
+	 * @return The numeric ID of the node
+	 */
+	public long getNodeId(int index) {
+		if(index >= nodesCount) {
+			throw new IndexOutOfBoundsException("Invalid node index: "+index);
+		}
+		return nodes[index];
+	}
+	
+	/**
+	 * @return The numeric IDs of the way nodes. This is the internal array, only the first {@link #getNodesCount()} values are valid.
+	 */
+	public long[] getNodeIds() {
 		return nodes;
 	}
 
 //MODIFIERS
 	/**
-	 * @param n The node to add at the end of the way
+	 * Resets the way, so it can be reused for another way. Its nodes array is kept, to avoid growing it again.
+	 * @param id The new way ID
+	 */
+	@Override
+	public void reset(long id) {
+		super.reset(id);
+		nodesCount = 0;
+	}
+	
+	/**
+	 * @param n The node to add at the end of the way, as a prefixed ID (N000000)
 	 */
 	public void addNode(String n) {
-		nodes.add(n);
+		if(n == null || n.length() < 2 || n.charAt(0) != NODE) {
+			throw new RuntimeException("Invalid node ID: "+n);
+		}
+		addNode(Long.parseLong(n.substring(1)));
+	}
+	
+	/**
+	 * @param n The numeric ID of the node to add at the end of the way
+	 */
+	public void addNode(long n) {
+		if(nodesCount == nodes.length) {
+			nodes = Arrays.copyOf(nodes, nodes.length * 2);
+		}
+		nodes[nodesCount++] = n;
 	}
 	
 	/**
 	 * @param index The index of the node to remove
 	 */
 	public void removeNode(int index) {
-		if(nodes.size() == 2) {
+		if(nodesCount == 2) {
 			throw new RuntimeException("Can't remove node, only two remaining");
 		}
-		nodes.remove(index);
+		if(index >= nodesCount) {
+			throw new IndexOutOfBoundsException("Invalid node index: "+index);
+		}
+		System.arraycopy(nodes, index + 1, nodes, index, nodesCount - index - 1);
+		nodesCount--;
 	}
 }
\ No newline at end of file
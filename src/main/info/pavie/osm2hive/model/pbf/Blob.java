@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.pbf;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A blob is a block of an OSM PBF file, as read by {@link BlobReader}.
+ * It keeps its data as stored in file: decompression is done by {@link #getData()}, so blobs can be read
+ * sequentially, and then decompressed and decoded in parallel.
+ * @author Adrien PAVIE
+ */
+public class Blob {
+//CONSTANTS
+	/** Type of the file header blob **/
+	public static final String HEADER = "OSMHeader";
+	
+	/** Type of the data blobs, containing elements **/
+	public static final String DATA = "OSMData";
+
+//ATTRIBUTES
+	/** The blob type, for example OSMData **/
+	private final String type;
+	
+	/** The blob position in file **/
+	private final long position;
+	
+	/** The serialized Blob message **/
+	private final byte[] message;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param type The blob type
+	 * @param position The blob position in file (position of its header length)
+	 * @param message The Blob message, as stored in file
+	 */
+	public Blob(String type, long position, byte[] message) {
+		this.type = type;
+		this.position = position;
+		this.message = message;
+	}
+
+//ACCESSORS
+	/**
+	 * @return The blob type, for example {@link #HEADER} or {@link #DATA}
+	 */
+	public String getType() {
+		return type;
+	}
+	
+	/**
+	 * @return The blob position in file
+	 */
+	public long getPosition() {
+		return position;
+	}
+	
+	/**
+	 * Decompresses the blob content. Only raw and zlib compressed blobs are supported.
+	 * @return The uncompressed content (a HeaderBlock or a PrimitiveBlock message)
+	 * @throws IOException If the blob is malformed or uses an unsupported compression
+	 */
+	public byte[] getData() throws IOException {
+		ProtobufReader reader = new ProtobufReader(message);
+		int rawSize = -1;
+		byte[] zlibData = null;
+		
+		while(reader.next()) {
+			switch(reader.getField()) {
+				case 1: //raw
+					return reader.readBytes();
+				case 2: //raw_size
+					rawSize = (int) reader.readVarint();
+					break;
+				case 3: //zlib_data
+					zlibData = reader.readBytes();
+					break;
+				case 4: //lzma_data
+				case 5: //OBSOLETE_bzip2_data
+				case 6: //lz4_data
+				case 7: //zstd_data
+					throw new IOException("Unsupported compression in blob at "+position);
+				default:
+					reader.skip();
+			}
+		}
+		
+		if(zlibData == null || rawSize < 0) {
+			throw new IOException("Empty blob at "+position);
+		}
+		
+		return inflate(zlibData, rawSize);
+	}
+
+//OTHER METHODS
+	/**
+	 * Decompresses zlib data.
+	 * @param compressed The compressed data
+	 * @param rawSize The uncompressed data size
+	 * @return The uncompressed data
+	 * @throws IOException If the data is corrupted, or doesn't have the expected size
+	 */
+	private byte[] inflate(byte[] compressed, int rawSize) throws IOException {
+		byte[] result = new byte[rawSize];
+		Inflater inflater = new Inflater();
+		
+		try {
+			inflater.setInput(compressed);
+			int length = 0;
+			while(length < rawSize && !inflater.finished()) {
+				int read = inflater.inflate(result, length, rawSize - length);
+				if(read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += read;
+			}
+			
+			if(length != rawSize || !inflater.finished()) {
+				throw new IOException("Invalid uncompressed size in blob at "+position);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupted blob at "+position, e);
+		} finally {
+			inflater.end();
+		}
+		
+		return result;
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.pbf;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A blob reader reads the {@link Blob}s of an OSM PBF file.
+ * Each blob is preceded by its header length (4 bytes, big endian) and by a BlobHeader message, giving
+ * its type and size. Like {@link info.pavie.osm2hive.model.xml.ElementReader}, it reads a range of the file:
+ * the read blobs are the ones starting in the range. Reading starts at range start, where the first blob
+ * is found by looking for a header length followed by a BlobHeader of "OSMHeader" or "OSMData" type,
+ * so a range is read without reading the blobs before it.
+ * @author Adrien PAVIE
+ */
+public class BlobReader {
+//CONSTANTS
+	/** Maximum BlobHeader size, as defined by the format **/
+	private static final int MAX_HEADER_SIZE = 64 * 1024;
+	
+	/** Maximum Blob size, as defined by the format **/
+	private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+	/** The known blob types, as written at the start of BlobHeader messages (field 1, length, string) **/
+	private static final byte[][] TYPE_PREFIXES = { getTypePrefix(Blob.DATA), getTypePrefix(Blob.HEADER) };
+
+//ATTRIBUTES
+	/** The read stream **/
+	private DataInputStream in;
+	
+	/** The position in file, after which blobs belong to the next range **/
+	private long end;
+	
+	/** The position in file of the next byte to read **/
+	private long pos;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param in The stream to read, positioned at range start
+	 * @param start The range start position in file
+	 * @param end The range end position in file
+	 * @throws IOException If the stream can't be read
+	 */
+	public BlobReader(InputStream in, long start, long end) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		this.end = end;
+		this.pos = start;
+		
+		//The file starts with a blob, other ranges start anywhere
+		if(start > 0) {
+			findBlobStart();
+		}
+	}
+
+//ACCESSORS
+	/**
+	 * @return The current position in file
+	 */
+	public long getPosition() {
+		return pos;
+	}
+
+//OTHER METHODS
+	/**
+	 * Reads the next blob of the range.
+	 * @return The read blob, or null if there is no more blob starting in the range
+	 * @throws IOException If the file can't be read, or is malformed
+	 */
+	public Blob next() throws IOException {
+		if(pos >= end) {
+			return null;
+		}
+			
+		long blobStart = pos;
+			
+		//Header length, end of file is only allowed here
+		int headerLength;
+		try {
+			headerLength = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		pos += 4;
+			
+		if(headerLength <= 0 || headerLength > MAX_HEADER_SIZE) {
+			throw new IOException("Invalid blob header size "+headerLength+" at "+blobStart);
+		}
+			
+		//Blob header
+		byte[] header = new byte[headerLength];
+		in.readFully(header);
+		pos += headerLength;
+			
+		String type = null;
+		long size = -1;
+		ProtobufReader reader = new ProtobufReader(header);
+		while(reader.next()) {
+			switch(reader.getField()) {
+				case 1: //type
+					type = reader.readString();
+					break;
+				case 3: //datasize
+					size = reader.readVarint();
+					break;
+				default:
+					reader.skip();
+			}
+		}
+		
+		if(type == null || size < 0 || size > MAX_BLOB_SIZE) {
+			throw new IOException("Invalid blob header at "+blobStart);
+		}
+		
+		//Blob content
+		byte[] message = new byte[(int) size];
+		in.readFully(message);
+		pos += size;
+		return new Blob(type, blobStart, message);
+	}
+	
+	/**
+	 * Closes the read stream.
+	 * @throws IOException If the stream can't be closed
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+	
+	/**
+	 * Moves forward to the first blob starting at or after the current position, or to range end if there is none.
+	 * The stream is left positioned at the blob header length.
+	 * @throws IOException If the stream can't be read
+	 */
+	private void findBlobStart() throws IOException {
+		while(pos < end) {
+			in.mark(4 + MAX_HEADER_SIZE);
+			boolean found = isBlobStart();
+			in.reset();
+			
+			if(found || in.read() < 0) {
+				return;
+			}
+			pos++;
+		}
+	}
+	
+	/**
+	 * Does the stream contain a blob header at current position ?
+	 * It must be a valid header length, followed by a BlobHeader message of a known type, with a valid data size.
+	 * The stream is read, so it should be marked before.
+	 * @return True if a blob starts at current position
+	 * @throws IOException If the stream can't be read
+	 */
+	private boolean isBlobStart() throws IOException {
+		byte[] length = new byte[4];
+		if(!readAvailable(length) || length[0] != 0 || length[1] > 1) {
+			return false;
+		}
+		int headerLength = ((length[1] & 0xFF) << 16) | ((length[2] & 0xFF) << 8) | (length[3] & 0xFF);
+		if(headerLength <= 0 || headerLength > MAX_HEADER_SIZE) {
+			return false;
+		}
+		
+		//Known type at header start
+		byte[] header = new byte[headerLength];
+		if(!readAvailable(header)) {
+			return false;
+		}
+		
+		boolean known = false;
+		for(byte[] prefix : TYPE_PREFIXES) {
+			known |= startsWith(header, prefix);
+		}
+		if(!known) {
+			return false;
+		}
+		
+		//Valid message, with a data size
+		long size = -1;
+		try {
+			ProtobufReader reader = new ProtobufReader(header);
+			while(reader.next()) {
+				if(reader.getField() == 3) {
+					size = reader.readVarint();
+				}
+				else {
+					reader.skip();
+				}
+			}
+		} catch(IOException e) {
+			return false;
+		}
+		
+		return size >= 0 && size <= MAX_BLOB_SIZE;
+	}
+	
+	/**
+	 * Reads bytes from stream, until the array is full or the stream ends.
+	 * @param bytes The array to fill
+	 * @return True if the array was filled
+	 * @throws IOException If the stream can't be read
+	 */
+	private boolean readAvailable(byte[] bytes) throws IOException {
+		int read = 0;
+		while(read < bytes.length) {
+			int count = in.read(bytes, read, bytes.length - read);
+			if(count < 0) {
+				return false;
+			}
+			read += count;
+		}
+		return true;
+	}
+	
+	/**
+	 * @param bytes The bytes
+	 * @param prefix The expected prefix
+	 * @return True if bytes start with prefix
+	 */
+	private static boolean startsWith(byte[] bytes, byte[] prefix) {
+		if(bytes.length < prefix.length) {
+			return false;
+		}
+		for(int i=0; i < prefix.length; i++) {
+			if(bytes[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @param type The blob type
+	 * @return The first bytes of a BlobHeader message of this type
+	 */
+	private static byte[] getTypePrefix(String type) {
+		byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+		byte[] result = new byte[name.length + 2];
+		result[0] = 0x0A; //Field 1, length-delimited
+		result[1] = (byte) name.length;
+		System.arraycopy(name, 0, result, 2, name.length);
+		return result;
+	}
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.pbf;
+
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A block decoder creates {@link Element}s from the content of OSM PBF blobs.
+ * It handles plain nodes, dense nodes, ways and relations. Delta coded values (dense nodes, way nodes,
+ * relation members) are decoded while reading packed fields, without intermediate arrays,
+ * and IDs, way nodes and member references are given as numbers to the model objects, without creating strings.
+ * As in {@link info.pavie.osm2hive.controller.OSMParser}, ways with less than two nodes and relations
+ * without members are ignored. A decoder is not thread-safe: use one decoder per thread.
+ * @author Adrien PAVIE
+ */
+public class BlockDecoder {
+//CONSTANTS
+	/** The features this decoder can read **/
+	private static final String[] SUPPORTED_FEATURES = { "OsmSchema-V0.6", "DenseNodes", "HistoricalInformation" };
+	
+	/** Amount of nanodegrees in a degree **/
+	private static final double NANO = 1000000000.0;
+	
+	/** The type codes of members, indexed by member type **/
+	private static final char[] MEMBER_TYPES = { Element.NODE, Element.WAY, Element.RELATION };
+
+//ATTRIBUTES
+	/** The string table of the current block **/
+	private String[] strings;
+	
+	/** The coordinates granularity of the current block, in nanodegrees **/
+	private long granularity;
+	
+	/** The latitude offset of the current block, in nanodegrees **/
+	private long latOffset;
+	
+	/** The longitude offset of the current block, in nanodegrees **/
+	private long lonOffset;
+	
+	/** The timestamps granularity of the current block, in milliseconds **/
+	private long dateGranularity;
+	
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 */
+	public BlockDecoder() {
+	}
+
+//OTHER METHODS
+	/**
+	 * Checks that the file header only requires supported features.
+	 * @param header The content of the OSMHeader blob
+	 * @throws IOException If the header is malformed, or requires an unsupported feature
+	 */
+	public static void checkHeader(byte[] header) throws IOException {
+		ProtobufReader reader = new ProtobufReader(header);
+		
+		while(reader.next()) {
+			if(reader.getField() == 4) { //required_features
+				String feature = reader.readString();
+				boolean supported = false;
+				for(String s : SUPPORTED_FEATURES) {
+					supported = supported || s.equals(feature);
+				}
+				if(!supported) {
+					throw new IOException("Unsupported PBF feature: "+feature);
+				}
+			}
+			else {
+				reader.skip();
+			}
+		}
+	}
+	
+	/**
+	 * Decodes the elements of a block.
+	 * @param block The content of an OSMData blob (a PrimitiveBlock message)
+	 * @return The elements of the block, in file order
+	 * @throws IOException If the block is malformed
+	 */
+	public List<Element> decode(byte[] block) throws IOException {
+		List<Element> result = new ArrayList<Element>();
+		List<ProtobufReader> groups = new ArrayList<ProtobufReader>();
+		strings = new String[0];
+		granularity = 100;
+		latOffset = 0;
+		lonOffset = 0;
+		dateGranularity = 1000;
+		
+		//Block settings, which can be written after groups
+		ProtobufReader reader = new ProtobufReader(block);
+		while(reader.next()) {
+			switch(reader.getField()) {
+				case 1: //stringtable
+					readStrings(reader.readMessage());
+					break;
+				case 2: //primitivegroup
+					groups.add(reader.readMessage());
+					break;
+				case 17: //granularity
+					granularity = reader.readVarint();
+					break;
+				case 18: //date_granularity
+					dateGranularity = reader.readVarint();
+					break;
+				case 19: //lat_offset
+					latOffset = reader.readVarint();
+					break;
+				case 20: //lon_offset
+					lonOffset = reader.readVarint();
+					break;
+				default:
+					reader.skip();
+			}
+		}
+		
+		//Elements
+		for(ProtobufReader group : groups) {
+			while(group.next()) {
+				switch(group.getField()) {
+					case 1: //nodes
+						result.add(readNode(group.readMessage()));
+						break;
+					case 2: //dense
+						readDenseNodes(group.readMessage(), result);
+						break;
+					case 3: //ways
+						Way way = readWay(group.readMessage());
+						if(way.getNodesCount() >= 2) {
+							result.add(way);
+						}
+						break;
+					case 4: //relations
+						Relation relation = readRelation(group.readMessage());
+						if(relation.getMembersCount() > 0) {
+							result.add(relation);
+						}
+						break;
+					default:
+						group.skip();
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Reads the string table of the block.
+	 * @param reader The StringTable message
+	 * @throws IOException If the message is malformed
+	 */
+	private void readStrings(ProtobufReader reader) throws IOException {
+		List<String> table = new ArrayList<String>();
+		
+		while(reader.next()) {
+			if(reader.getField() == 1) {
+				table.add(reader.readString());
+			}
+			else {
+				reader.skip();
+			}
+		}
+		
+		strings = table.toArray(new String[table.size()]);
+	}
+	
+	/**
+	 * @param index The string index in string table
+	 * @return The string
+	 * @throws IOException If the index is out of string table
+	 */
+	private String getString(long index) throws IOException {
+		if(index < 0 || index >= strings.length) {
+			throw new IOException("Invalid string index "+index);
+		}
+		return strings[(int) index];
+	}
+	
+	/**
+	 * Converts a timestamp to milliseconds. Its string is only created if read (see {@link Element#getTimestamp()}).
+	 * @param time The timestamp, in date granularity units
+	 * @return The time in milliseconds since epoch
+	 */
+	private long getTime(long time) {
+		return time * dateGranularity;
+	}
+	
+	/**
+	 * Reads a plain node.
+	 * @param reader The Node message
+	 * @return The node
+	 * @throws IOException If the message is malformed
+	 */
+	private Node readNode(ProtobufReader reader) throws IOException {
+		long id = 0, lat = 0, lon = 0;
+		ProtobufReader keys = null, values = null, info = null;
+		
+		while(reader.next()) {
+			switch(reader.getField()) {
+				case 1:
+					id = reader.readSignedVarint();
+					break;
+				case 2:
+					keys = reader.readMessage();
+					break;
+				case 3:
+					values = reader.readMessage();
+					break;
+				case 4:
+					info = reader.readMessage();
+					break;
+				case 8:
+					lat = reader.readSignedVarint();
+					break;
+				case 9:
+					lon = reader.readSignedVarint();
+					break;
+				default:
+					reader.skip();
+			}
+		}
+		
+		Node result = new Node(id, (latOffset + granularity * lat) / NANO, (lonOffset + granularity * lon) / NANO);
+		readInfo(info, result);
+		readTags(keys, values, result);
+		return result;
+	}
+	
+	/**
+	 * Reads dense nodes. All their fields are packed and delta coded, so they are read at the same time.
+	 * @param reader The DenseNodes message
+	 * @param result The list where nodes are added
+	 * @throws IOException If the message is malformed
+	 */
+	private void readDenseNodes(ProtobufReader reader, List<Element> result) throws IOException {
+		ProtobufReader ids = null, lats = null, lons = null, keysValues = null;
+		ProtobufReader versions = null, timestamps = null, changesets = null, uids = null, users = null, visibles = null;
+		
+		while(reader.next()) {
+			switch(reader.getField()) {
+				case 1:
+					ids = reader.readMessage();
+					break;
+				case 5: //denseinfo
+					ProtobufReader info = reader.readMessage();
+					while(info.next()) {
+						switch(info.getField()) {
+							case 1:
+								versions = info.readMessage();
+								break;
+							case 2:
+								timestamps = info.readMessage();
+								break;
+							case 3:
+								changesets = info.readMessage();
+								break;
+							case 4:
+								uids = info.readMessage();
+								break;
+							case 5:
+								users = info.readMessage();
+								break;
+							case 6:
+								visibles = info.readMessage();
+								break;
+							default:
+								info.skip();
+						}
+					}
+					break;
+				case 8:
+					lats = reader.readMessage();
+					break;
+				case 9:
+					lons = reader.readMessage();
+					break;
+				case 10:
+					keysValues = reader.readMessage();
+					break;
+				default:
+					reader.skip();
+			}
+		}
+		
+		if(ids == null) {
+			return;
+		}
+		if(lats == null || lons == null) {
+			throw new IOException("Dense nodes without coordinates");
+		}
+		
+		long id = 0, lat = 0, lon = 0, timestamp = 0, changeset = 0, uid = 0, user = 0;
+		while(ids.hasRemaining()) {
+			id += ids.readSignedVarint();
+			lat += lats.readSignedVarint();
+			lon += lons.readSignedVarint();
+			Node n = new Node(id, (latOffset + granularity * lat) / NANO, (lonOffset + granularity * lon) / NANO);
+			
+			//Metadata
+			if(versions != null) {
+				n.setVersion((int) versions.readVarint());
+			}
+			if(timestamps != null) {
+				timestamp += timestamps.readSignedVarint();
+				n.setTime(getTime(timestamp));
+			}
+			if(changesets != null) {
+				changeset += changesets.readSignedVarint();
+				n.setChangeset(changeset);
+			}
+			if(uids != null) {
+				uid += uids.readSignedVarint();
+				n.setUid(uid);
+			}
+			if(users != null) {
+				user += users.readSignedVarint();
+				n.setUser(getString(user));
+			}
+			if(visibles != null) {
+				n.setVisible(visibles.readVarint() != 0);
+			}
+			
+			//Tags, as key and value indexes, ending with 0
+			if(keysValues != null) {
+				long key = keysValues.hasRemaining() ? keysValues.readVarint() : 0;
+				while(key != 0) {
+					n.addTag(getString(key), getString(keysValues.readVarint()));
+					key = keysValues.hasRemaining() ? keysValues.readVarint() : 0;
+				}
+			}
+			
+			result.add(n);
+		}
+	}
+	
+	/**
+	 * Reads a way.
+	 * @param reader The Way message
+	 * @return The way
+	 * @throws IOException If the message is malformed
+	 */
+	private Way readWay(ProtobufReader reader) throws IOException {
+		long id = 0;
+		ProtobufReader keys = null, values = null, info = null, refs = null;
+		
+		while(reader.next()) {
+			switch(reader.getField()) {
+				case 1:
+					id = reader.readVarint();
+					break;
+				case 2:
+					keys = reader.readMessage();
+					break;
+				case 3:
+					values = reader.readMessage();
+					break;
+				case 4:
+					info = reader.readMessage();
+					break;
+				case 8:
+					refs = reader.readMessage();
+					break;
+				default:
+					reader.skip();
+			}
+		}
+		
+		Way result = new Way(id);
+		readInfo(info, result);
+		readTags(keys, values, result);
+		
+		if(refs != null) {
+			long ref = 0;
+			while(refs.hasRemaining()) {
+				ref += refs.readSignedVarint();
+				result.addNode(ref);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Reads a relation.
+	 * @param reader The Relation message
+	 * @return The relation
+	 * @throws IOException If the message is malformed
+	 */
+	private Relation readRelation(ProtobufReader reader) throws IOException {
+		long id = 0;
+		ProtobufReader keys = null, values = null, info = null, roles = null, memberIds = null, types = null;
+		
+		while(reader.next()) {
+			switch(reader.getField()) {
+				case 1:
+					id = reader.readVarint();
+					break;
+				case 2:
+					keys = reader.readMessage();
+					break;
+				case 3:
+					values = reader.readMessage();
+					break;
+				case 4:
+					info = reader.readMessage();
+					break;
+				case 8:
+					roles = reader.readMessage();
+					break;
+				case 9:
+					memberIds = reader.readMessage();
+					break;
+				case 10:
+					types = reader.readMessage();
+					break;
+				default:
+					reader.skip();
+			}
+		}
+		
+		Relation result = new Relation(id);
+		readInfo(info, result);
+		readTags(keys, values, result);
+		
+		if(memberIds != null) {
+			if(roles == null || types == null) {
+				throw new IOException("Relation "+id+" without member roles or types");
+			}
+			
+			long ref = 0;
+			while(memberIds.hasRemaining()) {
+				ref += memberIds.readSignedVarint();
+				long type = types.readVarint();
+				if(type < 0 || type >= MEMBER_TYPES.length) {
+					throw new IOException("Invalid member type "+type+" in relation "+id);
+				}
+				result.addMember(getString(roles.readVarint()), MEMBER_TYPES[(int) type], ref);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Reads the metadata of an element.
+	 * @param info The Info message, or null if the element has no metadata
+	 * @param element The element to fill
+	 * @throws IOException If the message is malformed
+	 */
+	private void readInfo(ProtobufReader info, Element element) throws IOException {
+		if(info == null) {
+			return;
+		}
+		
+		while(info.next()) {
+			switch(info.getField()) {
+				case 1:
+					element.setVersion((int) info.readVarint());
+					break;
+				case 2:
+					element.setTime(getTime(info.readVarint()));
+					break;
+				case 3:
+					element.setChangeset(info.readVarint());
+					break;
+				case 4:
+					element.setUid((int) info.readVarint());
+					break;
+				case 5:
+					element.setUser(getString(info.readVarint()));
+					break;
+				case 6:
+					element.setVisible(info.readVarint() != 0);
+					break;
+				default:
+					info.skip();
+			}
+		}
+	}
+	
+	/**
+	 * Reads the tags of an element, given as parallel lists of string indexes.
+	 * @param keys The packed keys, or null if the element has no tags
+	 * @param values The packed values
+	 * @param element The element to fill
+	 * @throws IOException If the lists are malformed
+	 */
+	private void readTags(ProtobufReader keys, ProtobufReader values, Element element) throws IOException {
+		if(keys == null) {
+			return;
+		}
+		if(values == null) {
+			throw new IOException("Tags without values in element "+element.getId());
+		}
+		
+		while(keys.hasRemaining()) {
+			element.addTag(getString(keys.readVarint()), getString(values.readVarint()));
+		}
+	}
+}
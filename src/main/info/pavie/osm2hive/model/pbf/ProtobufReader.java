@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.pbf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A protobuf reader decodes the fields of a protocol buffers message, stored in a byte array.
+ * It only knows the wire format: the reader of each message type interprets the read fields.
+ * Embedded messages and packed repeated fields are read with a new reader over the same array, so nothing is copied.
+ * @author Adrien PAVIE
+ */
+public class ProtobufReader {
+//CONSTANTS
+	/** Wire type of variable-length integers **/
+	public static final int VARINT = 0;
+	
+	/** Wire type of 64 bits values **/
+	public static final int FIXED64 = 1;
+	
+	/** Wire type of length-delimited values (strings, bytes, messages, packed fields) **/
+	public static final int LENGTH_DELIMITED = 2;
+	
+	/** Wire type of 32 bits values **/
+	public static final int FIXED32 = 5;
+
+//ATTRIBUTES
+	/** The message bytes **/
+	private final byte[] data;
+	
+	/** The position of the next byte to read **/
+	private int pos;
+	
+	/** The position after the message last byte **/
+	private final int end;
+	
+	/** The last read field key (field number and wire type) **/
+	private int key;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param data The array containing the message
+	 * @param offset The message start in array
+	 * @param length The message length
+	 */
+	public ProtobufReader(byte[] data, int offset, int length) {
+		this.data = data;
+		this.pos = offset;
+		this.end = offset + length;
+		this.key = 0;
+	}
+	
+	/**
+	 * Class constructor, for a message filling the whole array
+	 * @param data The message
+	 */
+	public ProtobufReader(byte[] data) {
+		this(data, 0, data.length);
+	}
+
+//ACCESSORS
+	/**
+	 * @return True if the message has bytes left to read
+	 */
+	public boolean hasRemaining() {
+		return pos < end;
+	}
+	
+	/**
+	 * @return The number of the last read field
+	 */
+	public int getField() {
+		return key >>> 3;
+	}
+	
+	/**
+	 * @return The wire type of the last read field
+	 */
+	public int getWireType() {
+		return key & 7;
+	}
+
+//OTHER METHODS
+	/**
+	 * Reads the next field key. Its value must then be read, or skipped.
+	 * @return True if a field was read, false if the message end is reached
+	 * @throws IOException If the key is malformed
+	 */
+	public boolean next() throws IOException {
+		if(pos >= end) {
+			return false;
+		}
+		key = (int) readVarint();
+		return true;
+	}
+	
+	/**
+	 * Reads a variable-length integer (int32, int64, uint32, uint64, bool, enum).
+	 * @return The read value
+	 * @throws IOException If the value is truncated or too long
+	 */
+	public long readVarint() throws IOException {
+		long result = 0;
+		
+		for(int shift = 0; shift < 64; shift += 7) {
+			if(pos >= end) {
+				throw new IOException("Truncated varint");
+			}
+			byte b = data[pos++];
+			result |= (long) (b & 0x7F) << shift;
+			if(b >= 0) {
+				return result;
+			}
+		}
+		
+		throw new IOException("Malformed varint");
+	}
+	
+	/**
+	 * Reads a zigzag encoded variable-length integer (sint32, sint64).
+	 * @return The read value
+	 * @throws IOException If the value is truncated or too long
+	 */
+	public long readSignedVarint() throws IOException {
+		long value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * Reads a length-delimited value (embedded message or packed repeated field).
+	 * @return A reader for this value
+	 * @throws IOException If the value is truncated
+	 */
+	public ProtobufReader readMessage() throws IOException {
+		int length = readLength();
+		ProtobufReader result = new ProtobufReader(data, pos, length);
+		pos += length;
+		return result;
+	}
+	
+	/**
+	 * Reads a length-delimited value as a copied byte array.
+	 * @return The read bytes
+	 * @throws IOException If the value is truncated
+	 */
+	public byte[] readBytes() throws IOException {
+		int length = readLength();
+		byte[] result = new byte[length];
+		System.arraycopy(data, pos, result, 0, length);
+		pos += length;
+		return result;
+	}
+	
+	/**
+	 * Reads a length-delimited value as an UTF-8 string.
+	 * @return The read string
+	 * @throws IOException If the value is truncated
+	 */
+	public String readString() throws IOException {
+		int length = readLength();
+		String result = new String(data, pos, length, StandardCharsets.UTF_8);
+		pos += length;
+		return result;
+	}
+	
+	/**
+	 * Skips the value of the last read field.
+	 * @throws IOException If the value is truncated, or has an unknown wire type
+	 */
+	public void skip() throws IOException {
+		switch(getWireType()) {
+			case VARINT:
+				readVarint();
+				break;
+			case FIXED64:
+				skipBytes(8);
+				break;
+			case LENGTH_DELIMITED:
+				skipBytes(readLength());
+				break;
+			case FIXED32:
+				skipBytes(4);
+				break;
+			default:
+				throw new IOException("Unsupported wire type "+getWireType()+" for field "+getField());
+		}
+	}
+	
+	/**
+	 * Reads the length of a length-delimited value, and checks it fits in the message.
+	 * @return The value length
+	 * @throws IOException If the value is truncated
+	 */
+	private int readLength() throws IOException {
+		long length = readVarint();
+		if(length < 0 || length > end - pos) {
+			throw new IOException("Truncated field "+getField()+" ("+length+" bytes)");
+		}
+		return (int) length;
+	}
+	
+	/**
+	 * Skips the given amount of bytes.
+	 * @param length The amount of bytes
+	 * @throws IOException If the message is too short
+	 */
+	private void skipBytes(int length) throws IOException {
+		if(length > end - pos) {
+			throw new IOException("Truncated field "+getField());
+		}
+		pos += length;
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Classes related to OSM PBF (Protocol Buffer Binary) data parsing.
+ */
+package info.pavie.osm2hive.model.pbf;
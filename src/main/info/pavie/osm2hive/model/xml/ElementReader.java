@@ -0,0 +1,331 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An element reader reads whole XML elements (from their start markup to their end markup) from a byte stream.
+ * It reads a range of the stream, for example a file split: the first element is the first one starting
+ * at or after the range start, and the last element is the last one starting before the range end,
+ * even if it ends after. This way, consecutive ranges read each element exactly once.
+ * Only the elements with the given names are read, and they can't contain other elements with the same name.
+ * @author Adrien PAVIE
+ */
+public class ElementReader {
+//CONSTANTS
+	/** Size of the read buffer **/
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/** Initial size of the element buffer **/
+	private static final int ELEMENT_SIZE = 4 * 1024;
+	
+	/** Value returned when the end of stream is reached **/
+	private static final int EOF = -1;
+
+//ATTRIBUTES
+	/** The read stream **/
+	private InputStream in;
+	
+	/** The names of the elements to read **/
+	private byte[][] names;
+	
+	/** The longest element name length **/
+	private int maxNameLength;
+	
+	/** The position in stream, after which elements belong to the next range **/
+	private long end;
+	
+	/** The position in stream of the next byte to read **/
+	private long pos;
+	
+	/** The read buffer **/
+	private byte[] buffer;
+	
+	/** The position of the next byte to read in buffer **/
+	private int bufferPos;
+	
+	/** The amount of bytes in buffer **/
+	private int bufferLength;
+	
+	/** The last read element **/
+	private byte[] element;
+	
+	/** The last read element length **/
+	private int elementLength;
+	
+	/** The position in stream of the last read element **/
+	private long elementStart;
+	
+	/** The name of the element being read, as an index in names **/
+	private int elementName;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param in The stream to read, already positioned at range start
+	 * @param start The range start position in stream
+	 * @param end The range end position in stream
+	 * @param names The names of the elements to read, for example "node", "way", "relation"
+	 */
+	public ElementReader(InputStream in, long start, long end, String... names) {
+		this.in = in;
+		this.pos = start;
+		this.end = end;
+		this.names = new byte[names.length][];
+		this.maxNameLength = 0;
+		
+		for(int i=0; i < names.length; i++) {
+			this.names[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+			maxNameLength = Math.max(maxNameLength, this.names[i].length);
+		}
+		
+		buffer = new byte[BUFFER_SIZE];
+		bufferPos = 0;
+		bufferLength = 0;
+		element = new byte[ELEMENT_SIZE];
+		elementLength = 0;
+		elementStart = -1;
+	}
+
+//ACCESSORS
+	/**
+	 * @return The last read element bytes (only the first {@link #getElementLength()} bytes are valid)
+	 */
+	public byte[] getElement() {
+		return element;
+	}
+	
+	/**
+	 * @return The last read element length
+	 */
+	public int getElementLength() {
+		return elementLength;
+	}
+	
+	/**
+	 * @return The last read element position in stream
+	 */
+	public long getElementStart() {
+		return elementStart;
+	}
+	
+	/**
+	 * @return The current position in stream
+	 */
+	public long getPosition() {
+		return pos;
+	}
+
+//OTHER METHODS
+	/**
+	 * Reads the next element of the range.
+	 * @return True if an element was read, false if there is no more element starting in the range
+	 * @throws IOException If the stream can't be read, or ends in the middle of an element
+	 */
+	public boolean next() throws IOException {
+		elementLength = 0;
+		
+		int b = findElementStart();
+		if(b == EOF) {
+			return false;
+		}
+		
+		//Read until start markup end, ignoring '>' in attribute values
+		int quote = 0;
+		int previous = b;
+		while(b != '>' || quote != 0) {
+			if(b == '"' || b == '\'') {
+				quote = (quote == 0) ? b : ((quote == b) ? 0 : quote);
+			}
+			previous = b;
+			b = readElementByte();
+		}
+		
+		//Read until end markup, if start markup isn't empty
+		if(previous != '/') {
+			do {
+				b = readElementByte();
+			} while(b != '>' || !isElementEnd());
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Closes the read stream.
+	 * @throws IOException If the stream can't be closed
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+	
+	/**
+	 * Looks for the next start markup of a wanted element, and copies its first bytes in element buffer.
+	 * @return The byte after the element name, or EOF if no element starts in range
+	 * @throws IOException If the stream can't be read
+	 */
+	private int findElementStart() throws IOException {
+		int b = readByte();
+		
+		while(b != EOF) {
+			if(b != '<') {
+				b = readByte();
+				continue;
+			}
+			
+			//Elements starting after range end belong to the next range
+			long markupStart = pos - 1;
+			if(markupStart >= end) {
+				return EOF;
+			}
+			
+			//Read markup name
+			appendStart(markupStart);
+			b = readByte();
+			while(isLetter(b) && elementLength <= maxNameLength) {
+				append(b);
+				b = readByte();
+			}
+			
+			elementName = findName();
+			if(elementName >= 0 && (b == '>' || b == '/' || isWhitespace(b))) {
+				append(b);
+				return b;
+			}
+		}
+		
+		return EOF;
+	}
+	
+	/**
+	 * Looks for the element name in the wanted names.
+	 * @return The name index, or -1 if the element buffer doesn't contain a wanted name after '<'
+	 */
+	private int findName() {
+		for(int i=0; i < names.length; i++) {
+			if(elementLength == names[i].length + 1 && regionMatches(1, names[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Does the element buffer end with the end markup of the read element ?
+	 * It should end with "&lt;/name&gt;", white spaces being allowed before '&gt;'.
+	 * @return True if the element is complete
+	 */
+	private boolean isElementEnd() {
+		byte[] name = names[elementName];
+		int index = elementLength - 2;
+		
+		while(index >= 0 && isWhitespace(element[index])) { index--; }
+		index -= name.length + 1;
+		
+		return index >= 0 && element[index] == '<' && element[index+1] == '/' && regionMatches(index + 2, name);
+	}
+	
+	/**
+	 * Does the element buffer contain the given bytes at the given offset ?
+	 * @param offset The offset in element buffer
+	 * @param bytes The bytes to look for
+	 * @return True if the bytes are found
+	 */
+	private boolean regionMatches(int offset, byte[] bytes) {
+		for(int i=0; i < bytes.length; i++) {
+			if(element[offset + i] != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Reads the next byte of the current element, and appends it to the element buffer.
+	 * @return The read byte
+	 * @throws IOException If the stream can't be read, or ends in the middle of the element
+	 */
+	private int readElementByte() throws IOException {
+		int b = readByte();
+		if(b == EOF) {
+			throw new IOException("Unexpected end of stream in element starting at "+elementStart);
+		}
+		append(b);
+		return b;
+	}
+	
+	/**
+	 * Restarts the element buffer with a '&lt;' character.
+	 * @param start The position in stream of the '&lt;' character
+	 */
+	private void appendStart(long start) {
+		elementStart = start;
+		elementLength = 0;
+		append('<');
+	}
+	
+	/**
+	 * Appends a byte to the element buffer, growing it if needed.
+	 * @param b The byte to append
+	 */
+	private void append(int b) {
+		if(elementLength == element.length) {
+			byte[] newElement = new byte[element.length * 2];
+			System.arraycopy(element, 0, newElement, 0, elementLength);
+			element = newElement;
+		}
+		element[elementLength++] = (byte) b;
+	}
+	
+	/**
+	 * Reads the next byte from stream.
+	 * @return The read byte, or EOF if stream end is reached
+	 * @throws IOException If the stream can't be read
+	 */
+	private int readByte() throws IOException {
+		if(bufferPos == bufferLength) {
+			bufferLength = in.read(buffer, 0, BUFFER_SIZE);
+			bufferPos = 0;
+			if(bufferLength <= 0) {
+				bufferLength = 0;
+				return EOF;
+			}
+		}
+		
+		pos++;
+		return buffer[bufferPos++] & 0xFF;
+	}
+	
+	/**
+	 * @param b The byte to test
+	 * @return True if the byte is an ASCII letter
+	 */
+	private static boolean isLetter(int b) {
+		return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+	}
+	
+	/**
+	 * @param b The byte to test
+	 * @return True if the byte is a white space
+	 */
+	private static boolean isWhitespace(int b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+}
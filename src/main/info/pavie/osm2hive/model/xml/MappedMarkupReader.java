@@ -0,0 +1,330 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.xml;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A mapped markup reader reads the markups of a local XML file one by one, from a memory-mapped view of the file.
+ * Markup boundaries are found directly in the mapped bytes, and each markup is copied as a whole run of bytes:
+ * nothing is decoded, and markups are parsed in place with {@link Markup#parse(byte[], int, int)}.
+ * The file is mapped by windows, so files larger than 2 GB can be read. Comments and text between markups are ignored.
+ * A reader can start anywhere in the file (see {@link #seek(long)}), for example to read a part of it in a separate thread.
+ * @author Adrien PAVIE
+ */
+public class MappedMarkupReader implements Closeable {
+//CONSTANTS
+	/** Default size of the mapped window (256 MB) **/
+	public static final int DEFAULT_WINDOW = 256 * 1024 * 1024;
+	
+	/** Initial size of the markup buffer **/
+	private static final int MARKUP_SIZE = 1024;
+	
+	/** The start of comments, after '&lt;' **/
+	private static final String COMMENT_START = "!--";
+
+//ATTRIBUTES
+	/** The read file access **/
+	private final RandomAccessFile access;
+	
+	/** The read file channel **/
+	private final FileChannel channel;
+	
+	/** The file size **/
+	private final long size;
+	
+	/** The size of mapped windows **/
+	private final int windowSize;
+	
+	/** The currently mapped window **/
+	private MappedByteBuffer window;
+	
+	/** The position in file of the window start **/
+	private long windowStart;
+	
+	/** The amount of bytes in window **/
+	private int windowLength;
+	
+	/** The position in file of the next byte to read **/
+	private long pos;
+	
+	/** The last read markup bytes **/
+	private byte[] markup;
+	
+	/** The last read markup length **/
+	private int markupLength;
+	
+	/** The position in file of the last read markup **/
+	private long markupStart;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor, with default window size
+	 * @param file The XML file to read
+	 * @throws IOException If the file can't be opened
+	 */
+	public MappedMarkupReader(File file) throws IOException {
+		this(file, DEFAULT_WINDOW);
+	}
+	
+	/**
+	 * Class constructor
+	 * @param file The XML file to read
+	 * @param windowSize The size of mapped windows
+	 * @throws IOException If the file can't be opened
+	 */
+	public MappedMarkupReader(File file, int windowSize) throws IOException {
+		if(windowSize <= 0) {
+			throw new IllegalArgumentException("Invalid window size: "+windowSize);
+		}
+		
+		this.access = new RandomAccessFile(file, "r");
+		this.channel = access.getChannel();
+		this.size = channel.size();
+		this.windowSize = windowSize;
+		this.window = null;
+		this.windowStart = 0;
+		this.windowLength = 0;
+		this.pos = 0;
+		this.markup = new byte[MARKUP_SIZE];
+		this.markupLength = 0;
+		this.markupStart = -1;
+	}
+
+//ACCESSORS
+	/**
+	 * @return The last read markup bytes, in UTF-8 (only the first {@link #getMarkupLength()} bytes are valid)
+	 */
+	public byte[] getMarkupBytes() {
+		return markup;
+	}
+	
+	/**
+	 * @return The last read markup length, in bytes
+	 */
+	public int getMarkupLength() {
+		return markupLength;
+	}
+	
+	/**
+	 * @return The last read markup, decoded as UTF-8 (prefer {@link #getMarkupBytes()}, which doesn't create a string)
+	 */
+	public String getMarkup() {
+		return new String(markup, 0, markupLength, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * @return The last read markup position in file
+	 */
+	public long getMarkupStart() {
+		return markupStart;
+	}
+	
+	/**
+	 * @return The current position in file
+	 */
+	public long getPosition() {
+		return pos;
+	}
+	
+	/**
+	 * @return The file size
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Is the last read markup a start (or empty) markup with the given name ?
+	 * Only the name is compared, the markup is not decoded.
+	 * @param name The markup name (ASCII only), for example "node"
+	 * @return True if the markup is "&lt;name", followed by a white space, '/' or '&gt;'
+	 */
+	public boolean isStart(String name) {
+		int length = name.length();
+		if(markupLength < length + 2) {
+			return false;
+		}
+		
+		for(int i=0; i < length; i++) {
+			if(markup[i+1] != name.charAt(i)) {
+				return false;
+			}
+		}
+		
+		int b = markup[length+1];
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '/' || b == '>';
+	}
+
+//MODIFIERS
+	/**
+	 * Moves the reader to the given position. The next markup read is the first one starting at or after it.
+	 * @param position The new position in file
+	 */
+	public void seek(long position) {
+		if(position < 0 || position > size) {
+			throw new IllegalArgumentException("Invalid position: "+position);
+		}
+		pos = position;
+		window = null;
+	}
+
+//OTHER METHODS
+	/**
+	 * Reads the next markup of the file.
+	 * @return True if a markup was read, false if the end of file is reached
+	 * @throws IOException If the file can't be read, or ends in the middle of a markup
+	 */
+	public boolean next() throws IOException {
+		while(findMarkupStart()) {
+			if(readMarkup()) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Closes the read file.
+	 * @throws IOException If the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+		access.close();
+	}
+	
+	/**
+	 * Moves forward to the next '&lt;' character.
+	 * @return True if found, false if the end of file is reached
+	 * @throws IOException If the file can't be mapped
+	 */
+	private boolean findMarkupStart() throws IOException {
+		while(mapWindow()) {
+			int index = (int) (pos - windowStart);
+			while(index < windowLength && window.get(index) != '<') { index++; }
+			pos = windowStart + index;
+			
+			if(index < windowLength) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Reads the markup starting at current position. Its bytes are scanned in the mapped window, and copied
+	 * in the markup buffer by runs (until markup end or window end). Comments are skipped without being copied.
+	 * @return True if a markup was read, false if it was a comment
+	 * @throws IOException If the file can't be read, or ends in the middle of the markup
+	 */
+	private boolean readMarkup() throws IOException {
+		markupStart = pos;
+		markupLength = 0;
+		int length = 0;
+		int commentPrefix = 0;
+		int quote = 0;
+		int previous = 0;
+		int beforePrevious = 0;
+		
+		while(true) {
+			if(!mapWindow()) {
+				throw new IOException("Unexpected end of file in markup starting at "+markupStart);
+			}
+			
+			int runStart = (int) (pos - windowStart);
+			int index = runStart;
+			boolean end = false;
+			
+			while(index < windowLength && !end) {
+				int b = window.get(index++);
+				
+				//Comments start with "<!--", and end with "-->", ignoring quotes
+				if(length > 0 && length <= COMMENT_START.length() && commentPrefix == length - 1 && b == COMMENT_START.charAt(length - 1)) {
+					commentPrefix++;
+				}
+				boolean comment = commentPrefix == COMMENT_START.length();
+				
+				//Read until markup end, ignoring '>' in attribute values
+				if(b == '>') {
+					end = (comment) ? length >= 6 && previous == '-' && beforePrevious == '-' : quote == 0;
+				}
+				else if(!comment && (b == '"' || b == '\'')) {
+					quote = (quote == 0) ? b : ((quote == b) ? 0 : quote);
+				}
+				
+				beforePrevious = previous;
+				previous = b;
+				length++;
+			}
+			
+			if(commentPrefix < COMMENT_START.length()) {
+				append(runStart, index - runStart);
+			}
+			pos = windowStart + index;
+			
+			if(end) {
+				return commentPrefix < COMMENT_START.length();
+			}
+		}
+	}
+	
+	/**
+	 * Appends bytes of the mapped window to the markup buffer, growing it if needed.
+	 * @param index The index of the first byte in window
+	 * @param length The amount of bytes
+	 */
+	private void append(int index, int length) {
+		if(markupLength + length > markup.length) {
+			byte[] newMarkup = new byte[Math.max(markup.length * 2, markupLength + length)];
+			System.arraycopy(markup, 0, newMarkup, 0, markupLength);
+			markup = newMarkup;
+		}
+		
+		window.position(index);
+		window.get(markup, markupLength, length);
+		markupLength += length;
+	}
+	
+	/**
+	 * Maps the window containing the current position, if not mapped yet.
+	 * @return True if the window is mapped, false if end of file is reached
+	 * @throws IOException If the file can't be mapped
+	 */
+	private boolean mapWindow() throws IOException {
+		if(window == null || pos - windowStart >= windowLength) {
+			if(pos >= size) {
+				return false;
+			}
+			windowStart = pos;
+			windowLength = (int) Math.min(windowSize, size - pos);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+		}
+		
+		return true;
+	}
+}
@@ -1,6 +1,6 @@
 /*
  * Copyright 2015 Adrien PAVIE
- *
+ * 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -16,16 +16,20 @@
 
 package info.pavie.osm2hive.model.xml;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import info.pavie.osm2hive.model.osm.Timestamps;
+
+import java.nio.charset.StandardCharsets;
 
 /**
  * A markup is the base component of a XML file.
  * It has a name, several attributes, and can have text in it.
  * This class only supports single markup, you can't have a markup in another one.
  * The purpose is to allow XML reading line by line.
+ * The markup is read with a single left-to-right scan of the line, without any regular expression.
+ * A markup object can be reused for several lines with {@link #parse(String)}, so reading a file doesn't create
+ * a markup per line. Lines can also be read as UTF-8 bytes with {@link #parse(byte[], int, int)}, without decoding
+ * them: markup names, attribute keys and XML syntax are ASCII, and can't be mistaken for a byte of a multi-byte character,
+ * so only the attribute values read with {@link #getAttribute(String)} are decoded.
  * @author Adrien PAVIE
  */
 public class Markup {
@@ -48,29 +52,50 @@ public class Markup {
 	/** Defines a complete markup, for example <node>data</node>. **/
 	public static final byte COMPLETE = 5;
 	
+	/** Value returned by scanning methods when the markup is not well-formed **/
+	private static final int INVALID = -1;
+	
 	/*
-	 * Regexes for markups
+	 * Attribute spans layout
 	 */
-	/** Regex for attributes **/
-	private static final String RGX_ATTRS = "(?<attrs>(\\s+[a-zA-Z]\\w*\\x3D(?<q>[\\x22\\x27])[^\\x22\\x27]*?\\k<q>)*)?";
+	/** Amount of integers used to describe one attribute **/
+	private static final int SPAN_SIZE = 5;
+	
+	/** Offset of key start index in an attribute span **/
+	private static final int KEY_START = 0;
 	
-	/** Regex for start markup **/
-	private static final String RGX_START = "\\x3C(?<name>[a-zA-Z]\\w*)"+RGX_ATTRS+"\\s*\\x3E";
+	/** Offset of key end index in an attribute span **/
+	private static final int KEY_END = 1;
 	
-	/** Pattern for start markup **/
-	private static final Pattern PTN_START = Pattern.compile("^"+RGX_START+"$");
+	/** Offset of value start index in an attribute span **/
+	private static final int VALUE_START = 2;
 	
-	/** Pattern for end markup **/
-	private static final Pattern PTN_END = Pattern.compile("^\\x3C\\x2F(?<name>[a-zA-Z]\\w*)\\x3E$");
+	/** Offset of value end index in an attribute span **/
+	private static final int VALUE_END = 3;
+	
+	/** Offset of the flag telling if the value contains entities, in an attribute span **/
+	private static final int VALUE_ENTITIES = 4;
+	
+	/** Initial amount of attributes the spans array can hold **/
+	private static final int DEFAULT_ATTRIBUTES = 12;
+	
+	/** Usual markup names, reused instead of creating a new name for each line **/
+	private static final String[] KNOWN_NAMES = { "node", "way", "relation", "tag", "nd", "member", "osm", "bounds" };
+
+	/** Powers of ten exactly represented as doubles, for reading decimal values without rounding error **/
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
 	
-	/** Pattern for complete markup **/
-	private static final Pattern PTN_COMPLETE = Pattern.compile("^"+RGX_START+"(?<text>[^\\e\\x{3C}\\x{3E}]*)\\x3C\\x2F\\k<name>\\x3E$");
+	/** Maximum amount of digits of a decimal value read directly, so it is exactly represented as a long and as a double **/
+	private static final int MAX_DOUBLE_DIGITS = 15;
 	
-	/** Pattern for declaration markup **/
-	private static final Pattern PTN_DECLARATION = Pattern.compile("^\\x3C\\x3F(?<name>[a-zA-Z]\\w*)"+RGX_ATTRS+"\\s*\\x3F\\x3E$");
+	/** Amount of decimals of fixed-point coordinates (1e-7 degrees, as in OSM database) **/
+	private static final int COORDINATE_DECIMALS = 7;
 	
-	/** Pattern for empty markup **/
-	private static final Pattern PTN_EMPTY = Pattern.compile("^\\x3C(?<name>[a-zA-Z]\\w*)"+RGX_ATTRS+"\\s*\\x2F\\x3E$");
+	/** Maximum amount of digits of a coordinate read directly (up to 4 integer digits and 7 decimals), so scaling it can't overflow a long **/
+	private static final int MAX_COORDINATE_DIGITS = 11;
 
 //ATTRIBUTES
 	/** The markup name, for "html" for an opening HTML markup. **/
@@ -79,69 +104,39 @@ public class Markup {
 	/** The markup type, can be START, END, COMPLETE, DECLARATION or EMPTY. **/
 	private byte type;
 	
-	/** The markup attributes. **/
-	private Map<String,String> attributes;
+	/** The markup attributes, as indexes in the line (see span layout constants). **/
+	private int[] attributes;
+	
+	/** The amount of attributes. **/
+	private int attributesCount;
 	
 	/** The markup text. **/
 	private String text;
 	
+	/** The line being read, if given as a string **/
+	private String line;
+	
+	/** The line being read, if given as UTF-8 bytes **/
+	private byte[] bytes;
+
 //CONSTRUCTORS
-	public Markup(String m) throws InvalidMarkupException {
-		//NEW PROC
-		//Remove surrounding white spaces
-		m = m.trim();
-		
-		//Create pattern matchers
-		Matcher mStart = PTN_START.matcher(m);
-		Matcher mEnd = PTN_END.matcher(m);
-		Matcher mComplete = PTN_COMPLETE.matcher(m);
-		Matcher mDeclaration = PTN_DECLARATION.matcher(m);
-		Matcher mEmpty = PTN_EMPTY.matcher(m);
-		
-		String attrs;
-		/*
-		 * Test markup with each matcher
-		 */
-		//Case of start markup
-		if(mStart.matches()) {
-			type = START;
-			name = mStart.group("name");
-			text = "";
-			attrs = mStart.group("attrs");
-		}
-		//Case of end markup
-		else if(mEnd.matches()) {
-			type = END;
-			name = mEnd.group("name");
-			text = "";
-			attrs = "";
-		}
-		//Case of complete markup
-		else if(mComplete.matches()) {
-			type = COMPLETE;
-			name = mComplete.group("name");
-			text = mComplete.group("text");
-			attrs = mComplete.group("attrs");
-		}
-		//Case of declaration markup
-		else if(mDeclaration.matches()) {
-			type = DECLARATION;
-			name = mDeclaration.group("name");
-			text = "";
-			attrs = mDeclaration.group("attrs");
-		}
-		//Case of empty markup
-		else if(mEmpty.matches()) {
-			type = EMPTY;
-			name = mEmpty.group("name");
-			text = "";
-			attrs = mEmpty.group("attrs");
-		}
-		else {
-			throw new InvalidMarkupException("The markup is not valid: "+m);
-		}
+	/**
+	 * Class constructor, for a markup to be read with {@link #parse(String)}
+	 */
+	public Markup() {
+		attributes = new int[DEFAULT_ATTRIBUTES * SPAN_SIZE];
+		attributesCount = 0;
+		text = "";
+	}
 		
-		parseAttributes(attrs);
+	/**
+	 * Class constructor, reading the given markup
+	 * @param m The markup line
+	 * @throws InvalidMarkupException If the markup is not well-formed
+	 */
+	public Markup(String m) throws InvalidMarkupException {
+		this();
+		parse(m);
 	}
 
 //ACCESSORS
@@ -167,12 +162,237 @@ public class Markup {
 	}
 	
 	/**
-	 * Get an attribute value
+	 * Get an attribute value. The value is created from the line only when this method is called,
+	 * and XML entities (&amp;amp;, &amp;quot;, &amp;#39;, ...) are decoded.
 	 * @param key The attribute key
-	 * @return The attribute value
+	 * @return The attribute value, or null if not defined
 	 */
 	public String getAttribute(String key) {
-		return attributes.get(key);
+		int span = findAttribute(key);
+		String result = null;
+		
+		if(span != INVALID) {
+			int valueStart = attributes[span + VALUE_START];
+			int valueEnd = attributes[span + VALUE_END];
+			result = (attributes[span + VALUE_ENTITIES] == 0) ?
+					substring(valueStart, valueEnd)
+					: decodeValue(valueStart, valueEnd);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Get an attribute value, shared through the given pool. If the pool already contains the value,
+	 * no string is created.
+	 * @param key The attribute key
+	 * @param pool The string pool
+	 * @return The attribute value, or null if not defined
+	 */
+	public String getAttribute(String key, StringPool pool) {
+		int span = findAttribute(key);
+		String result = null;
+		
+		if(span != INVALID) {
+			int valueStart = attributes[span + VALUE_START];
+			int valueEnd = attributes[span + VALUE_END];
+			result = (attributes[span + VALUE_ENTITIES] == 0) ?
+					((bytes != null) ? pool.get(bytes, valueStart, valueEnd) : pool.get(line, valueStart, valueEnd))
+					: pool.get(decodeValue(valueStart, valueEnd));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Get an attribute value as a long. Plain decimal values are read directly from the line, without creating a string.
+	 * @param key The attribute key
+	 * @return The attribute value
+	 * @throws NumberFormatException If the attribute is not defined, or is not a valid long
+	 */
+	public long getLongAttribute(String key) {
+		int span = findAttribute(key);
+		if(span == INVALID) {
+			throw new NumberFormatException("Undefined attribute: "+key);
+		}
+		
+		int pos = attributes[span + VALUE_START];
+		int end = attributes[span + VALUE_END];
+		boolean negative = pos < end && charAt(pos) == '-';
+		if(negative) { pos++; }
+		
+		//Up to 18 digits can't overflow, other values are left to Long.parseLong
+		if(pos == end || end - pos > 18 || attributes[span + VALUE_ENTITIES] != 0) {
+			return Long.parseLong(getAttribute(key));
+		}
+		
+		long result = 0;
+		while(pos < end) {
+			int digit = charAt(pos) - '0';
+			if(digit < 0 || digit > 9) {
+				throw new NumberFormatException("For input string: \""+getAttribute(key)+"\"");
+			}
+			result = result * 10 + digit;
+			pos++;
+		}
+		
+		return (negative) ? -result : result;
+	}
+	
+	/**
+	 * Get an attribute value as a double. Plain decimal values with up to 15 digits, like coordinates, are read directly
+	 * from the line without creating a string, and give the same value as {@link Double#parseDouble(String)}.
+	 * @param key The attribute key
+	 * @return The attribute value
+	 * @throws NumberFormatException If the attribute is not defined, or is not a valid double
+	 */
+	public double getDoubleAttribute(String key) {
+		int span = findAttribute(key);
+		if(span == INVALID) {
+			throw new NumberFormatException("Undefined attribute: "+key);
+		}
+		
+		int pos = attributes[span + VALUE_START];
+		int end = attributes[span + VALUE_END];
+		boolean negative = pos < end && charAt(pos) == '-';
+		if(negative) { pos++; }
+		
+		//Read digits as a long, and count the ones after decimal point
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = INVALID;
+		while(pos < end) {
+			char c = charAt(pos);
+			if(c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if(decimals != INVALID) { decimals++; }
+			}
+			else if(c == '.' && decimals == INVALID) {
+				decimals = 0;
+			}
+			else {
+				break;
+			}
+			pos++;
+		}
+		
+		//Exponents, long values and other syntaxes are left to Double.parseDouble
+		if(pos != end || digits == 0 || digits > MAX_DOUBLE_DIGITS || attributes[span + VALUE_ENTITIES] != 0) {
+			return Double.parseDouble(getAttribute(key));
+		}
+		
+		//Both values are exact, so the division is correctly rounded
+		double result = (decimals > 0) ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+		return (negative) ? -result : result;
+	}
+	
+	/**
+	 * Get a coordinate attribute value as a fixed-point integer, in 1e-7 degrees. Plain decimal values are read directly
+	 * from the line with integer operations only, so values with up to 7 decimals are read exactly.
+	 * Values with more decimals are rounded half away from zero.
+	 * @param key The attribute key
+	 * @return The attribute value, in 1e-7 degrees
+	 * @throws NumberFormatException If the attribute is not defined, is not a valid number, or is out of int range once scaled
+	 */
+	public int getCoordinateAttribute(String key) {
+		int span = findAttribute(key);
+		if(span == INVALID) {
+			throw new NumberFormatException("Undefined attribute: "+key);
+		}
+		
+		int pos = attributes[span + VALUE_START];
+		int end = attributes[span + VALUE_END];
+		boolean negative = pos < end && charAt(pos) == '-';
+		if(negative) { pos++; }
+		
+		//Read digits up to the 7th decimal, the next one giving the rounding
+		long result = 0;
+		int digits = 0;
+		int decimals = INVALID;
+		while(pos < end && digits <= MAX_COORDINATE_DIGITS) {
+			char c = charAt(pos);
+			if(c >= '0' && c <= '9') {
+				if(decimals < COORDINATE_DECIMALS) {
+					result = result * 10 + (c - '0');
+					digits++;
+				}
+				else if(decimals == COORDINATE_DECIMALS && c >= '5') {
+					result++;
+				}
+				if(decimals != INVALID) { decimals++; }
+			}
+			else if(c == '.' && decimals == INVALID) {
+				decimals = 0;
+			}
+			else {
+				break;
+			}
+			pos++;
+		}
+		
+		//Exponents, long values and other syntaxes are left to Double.parseDouble
+		if(pos != end || digits == 0 || digits > MAX_COORDINATE_DIGITS || attributes[span + VALUE_ENTITIES] != 0) {
+			double value = Double.parseDouble(getAttribute(key));
+			if(Double.isNaN(value)) {
+				throw new NumberFormatException("Invalid coordinate: "+getAttribute(key));
+			}
+			result = Math.round(value * POWERS_OF_TEN[COORDINATE_DECIMALS]);
+			negative = false;
+		}
+		else {
+			for(int i=Math.max(decimals, 0); i < COORDINATE_DECIMALS; i++) {
+				result *= 10;
+			}
+		}
+		
+		if(negative) { result = -result; }
+		if(result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+			throw new NumberFormatException("Coordinate out of range: "+getAttribute(key));
+		}
+		
+		return (int) result;
+	}
+	
+	/**
+	 * Get a timestamp attribute value, written in OSM form ("YYYY-MM-DDTHH:MM:SSZ"), as milliseconds since epoch.
+	 * The value is read directly from the line, without creating a string.
+	 * @param key The attribute key
+	 * @return The attribute value, or {@link Timestamps#UNKNOWN} if not defined or not in OSM form
+	 */
+	public long getTimestampAttribute(String key) {
+		int span = findAttribute(key);
+		if(span == INVALID || attributes[span + VALUE_END] - attributes[span + VALUE_START] != Timestamps.LENGTH) {
+			return Timestamps.UNKNOWN;
+		}
+		
+		//Check separators and digits
+		int start = attributes[span + VALUE_START];
+		for(int i=0; i < Timestamps.LENGTH; i++) {
+			char c = charAt(start + i);
+			char expected = Timestamps.getPatternChar(i);
+			if((expected == '0') ? (c < '0' || c > '9') : (c != expected)) {
+				return Timestamps.UNKNOWN;
+			}
+		}
+		
+		return Timestamps.toMillis(
+				readDigits(start, 4), readDigits(start + 5, 2), readDigits(start + 8, 2),
+				readDigits(start + 11, 2), readDigits(start + 14, 2), readDigits(start + 17, 2));
+	}
+	
+	/**
+	 * Get an attribute value as an int, see {@link #getLongAttribute(String)}.
+	 * @param key The attribute key
+	 * @return The attribute value
+	 * @throws NumberFormatException If the attribute is not defined, or is not a valid int
+	 */
+	public int getIntAttribute(String key) {
+		long result = getLongAttribute(key);
+		if(result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+			throw new NumberFormatException("Value out of int range: "+result);
+		}
+		return (int) result;
 	}
 	
 	/**
@@ -181,9 +401,9 @@ public class Markup {
 	 * @return True if defined
 	 */
 	public boolean hasAttribute(String key) {
-		return attributes.containsKey(key);
+		return findAttribute(key) != INVALID;
 	}
-	
+
 //MODIFIERS
 	/**
 	 * Set the markup type.
@@ -192,31 +412,421 @@ public class Markup {
 	void setType(byte t) {
 		type = t;
 	}
-	
+
 //OTHER METHODS
 	/**
-	 * Fills the attributes map with the read attributes from the markup
-	 * @param attrs The attributes as a string
-	 */
-	private void parseAttributes(String attrs) {
-		attributes = new HashMap<String,String>();
-		
-		String attrsStr = attrs.trim();
-		
-		if(attrsStr.length() > 0) {
-			Pattern regex = Pattern.compile(
-				    "(\\w+)" +
-				    "=" +
-				    "(" +
-				    "  (?<p>[\\x22\\x27])" +
-				    "  (.*?)" +
-				    "  \\k<p>" +
-				    ")", 
-				    Pattern.COMMENTS);
-			Matcher regexMatcher = regex.matcher(attrsStr);
-			while (regexMatcher.find()) {
-			    attributes.put(regexMatcher.group(1), regexMatcher.group(4));
-			} 
+	 * Reads a markup line, replacing the previously read markup.
+	 * @param m The markup line
+	 * @throws InvalidMarkupException If the markup is not well-formed
+	 */
+	public void parse(String m) throws InvalidMarkupException {
+		line = m;
+		bytes = null;
+		parse(0, m.length());
+	}
+	
+	/**
+	 * Reads a markup line given as UTF-8 bytes, replacing the previously read markup.
+	 * The bytes are not copied, so they must not change until the attributes are read.
+	 * @param b The bytes containing the markup line
+	 * @param start The index of the line first byte
+	 * @param end The index after the line last byte
+	 * @throws InvalidMarkupException If the markup is not well-formed
+	 */
+	public void parse(byte[] b, int start, int end) throws InvalidMarkupException {
+		line = null;
+		bytes = b;
+		parse(start, end);
+	}
+	
+	/**
+	 * Reads the markup line range, once the line is set.
+	 * @param start The index of the line first character
+	 * @param end The index after the line last character
+	 * @throws InvalidMarkupException If the markup is not well-formed
+	 */
+	private void parse(int start, int end) throws InvalidMarkupException {
+		name = null;
+		type = 0;
+		attributesCount = 0;
+		text = "";
+		
+		//Ignore surrounding white spaces
+		while(start < end && charAt(start) <= ' ') { start++; }
+		while(end > start && charAt(end-1) <= ' ') { end--; }
+		
+		if(!scan(start, end)) {
+			throw new InvalidMarkupException("The markup is not valid: "+substring(start, end));
 		}
 	}
+	
+	/**
+	 * Reads the whole markup, and sets its type, name, attributes and text.
+	 * @param start The index of the markup first character
+	 * @param end The index after the markup last character
+	 * @return True if the markup is well-formed
+	 */
+	private boolean scan(int start, int end) {
+		if(end - start < 3 || charAt(start) != '<') {
+			return false;
+		}
+		
+		int pos = start + 1;
+		char c = charAt(pos);
+		
+		//Case of end markup
+		if(c == '/') {
+			pos = scanName(pos + 1, end);
+			type = END;
+			return pos == end - 1 && charAt(pos) == '>';
+		}
+		
+		//Case of declaration markup
+		if(c == '?') {
+			pos = scanAttributes(scanName(pos + 1, end), end);
+			type = DECLARATION;
+			return pos == end - 2 && charAt(pos) == '?' && charAt(pos + 1) == '>';
+		}
+		
+		pos = scanAttributes(scanName(pos, end), end);
+		if(pos == INVALID) {
+			return false;
+		}
+		
+		//Case of empty markup
+		if(charAt(pos) == '/') {
+			type = EMPTY;
+			return pos == end - 2 && charAt(pos + 1) == '>';
+		}
+		
+		if(charAt(pos) != '>') {
+			return false;
+		}
+		
+		//Case of start markup
+		if(pos == end - 1) {
+			type = START;
+			return true;
+		}
+		
+		//Case of complete markup
+		type = COMPLETE;
+		int textStart = ++pos;
+		while(pos < end && (c = charAt(pos)) != '<' && c != '>' && c != '\u001B') { pos++; }
+		text = substring(textStart, pos);
+		
+		//Closing markup should have the same name
+		int nameLength = name.length();
+		return pos + nameLength + 3 == end
+				&& charAt(pos) == '<'
+				&& charAt(pos + 1) == '/'
+				&& regionMatches(pos + 2, name)
+				&& charAt(end - 1) == '>';
+	}
+	
+	/**
+	 * Reads the markup name, which should start with a letter and be followed by letters, digits or underscores.
+	 * @param pos The index of the name first character
+	 * @param end The index after the markup last character
+	 * @return The index after the name, or INVALID if no name could be read
+	 */
+	private int scanName(int pos, int end) {
+		int nameEnd = scanWord(pos, end);
+		if(nameEnd != INVALID) {
+			int length = nameEnd - pos;
+			name = null;
+			for(int i=0; i < KNOWN_NAMES.length && name == null; i++) {
+				if(KNOWN_NAMES[i].length() == length && regionMatches(pos, KNOWN_NAMES[i])) {
+					name = KNOWN_NAMES[i];
+				}
+			}
+			if(name == null) {
+				name = substring(pos, nameEnd);
+			}
+		}
+		return nameEnd;
+	}
+	
+	/**
+	 * Reads a word, which should start with a letter and be followed by letters, digits or underscores.
+	 * @param pos The index of the word first character
+	 * @param end The index after the markup last character
+	 * @return The index after the word, or INVALID if no word could be read
+	 */
+	private int scanWord(int pos, int end) {
+		if(pos >= end || !isLetter(charAt(pos))) {
+			return INVALID;
+		}
+		
+		pos++;
+		while(pos < end && isWordChar(charAt(pos))) { pos++; }
+		
+		return pos;
+	}
+	
+	/**
+	 * Reads the attributes list, each one being preceded by white spaces.
+	 * Stores the read attributes indexes in the attributes spans.
+	 * @param pos The index after the markup name
+	 * @param end The index after the markup last character
+	 * @return The index of the first character after attributes and white spaces, or INVALID if attributes are not well-formed
+	 */
+	private int scanAttributes(int pos, int end) {
+		if(pos == INVALID) {
+			return INVALID;
+		}
+		
+		while(pos < end && isWhitespace(charAt(pos))) {
+			//Skip white spaces
+			while(pos < end && isWhitespace(charAt(pos))) { pos++; }
+			
+			//No more attributes
+			if(pos == end || !isLetter(charAt(pos))) {
+				break;
+			}
+			
+			//Key, directly followed by equal sign and an opening quote
+			int keyStart = pos;
+			pos = scanWord(pos, end);
+			if(pos + 1 >= end || charAt(pos) != '=') {
+				return INVALID;
+			}
+			int keyEnd = pos;
+			
+			char quote = charAt(++pos);
+			if(quote != '"' && quote != '\'') {
+				return INVALID;
+			}
+			
+			//Value, until the closing quote
+			int valueStart = ++pos;
+			int entities = 0;
+			char c;
+			while(pos < end && (c = charAt(pos)) != quote) {
+				if(c == '&') { entities = 1; }
+				pos++;
+			}
+			if(pos >= end) {
+				return INVALID;
+			}
+			
+			addAttribute(keyStart, keyEnd, valueStart, pos, entities);
+			pos++;
+		}
+		
+		return (pos < end) ? pos : INVALID;
+	}
+	
+	/**
+	 * Stores a new attribute span.
+	 * @param keyStart The index of the key first character
+	 * @param keyEnd The index after the key last character
+	 * @param valueStart The index of the value first character
+	 * @param valueEnd The index after the value last character
+	 * @param entities 1 if the value contains XML entities, 0 otherwise
+	 */
+	private void addAttribute(int keyStart, int keyEnd, int valueStart, int valueEnd, int entities) {
+		int span = attributesCount * SPAN_SIZE;
+		if(span == attributes.length) {
+			int[] newAttributes = new int[attributes.length * 2];
+			System.arraycopy(attributes, 0, newAttributes, 0, attributes.length);
+			attributes = newAttributes;
+		}
+		
+		attributes[span + KEY_START] = keyStart;
+		attributes[span + KEY_END] = keyEnd;
+		attributes[span + VALUE_START] = valueStart;
+		attributes[span + VALUE_END] = valueEnd;
+		attributes[span + VALUE_ENTITIES] = entities;
+		attributesCount++;
+	}
+	
+	/**
+	 * Looks for the given attribute in spans.
+	 * @param key The attribute key
+	 * @return The index of the attribute span, or INVALID if not found
+	 */
+	private int findAttribute(String key) {
+		int keyLength = key.length();
+		
+		for(int span = 0; span < attributesCount * SPAN_SIZE; span += SPAN_SIZE) {
+			int keyStart = attributes[span + KEY_START];
+			if(attributes[span + KEY_END] - keyStart == keyLength && regionMatches(keyStart, key)) {
+				return span;
+			}
+		}
+		
+		return INVALID;
+	}
+	
+	/**
+	 * @param pos The index in line
+	 * @return The character at the given index. For byte lines, it is the byte unsigned value, which is the character
+	 * itself for ASCII characters, and a value above 127 for parts of other characters.
+	 */
+	private char charAt(int pos) {
+		return (bytes != null) ? (char) (bytes[pos] & 0xFF) : line.charAt(pos);
+	}
+	
+	/**
+	 * Does the line contain the given ASCII string at the given index ? The line should be long enough.
+	 * @param pos The index in line
+	 * @param s The string to look for
+	 * @return True if found
+	 */
+	private boolean regionMatches(int pos, String s) {
+		int length = s.length();
+		if(bytes == null) {
+			return line.regionMatches(pos, s, 0, length);
+		}
+		
+		for(int i=0; i < length; i++) {
+			if(bytes[pos + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @param pos The index of the first digit
+	 * @param count The amount of digits, already checked
+	 * @return The number written by the digits
+	 */
+	private int readDigits(int pos, int count) {
+		int result = 0;
+		for(int i=pos; i < pos + count; i++) {
+			result = result * 10 + (charAt(i) - '0');
+		}
+		return result;
+	}
+	
+	/**
+	 * @param start The index of the first character
+	 * @param end The index after the last character
+	 * @return The string of the given line range, decoded from UTF-8 for byte lines
+	 */
+	private String substring(int start, int end) {
+		return (bytes != null) ? new String(bytes, start, end - start, StandardCharsets.UTF_8) : line.substring(start, end);
+	}
+	
+	/**
+	 * @param start The index of the value first character
+	 * @param end The index after the value last character
+	 * @return The attribute value, with XML entities decoded
+	 */
+	private String decodeValue(int start, int end) {
+		String result;
+		
+		if(bytes != null) {
+			String value = substring(start, end);
+			result = decodeEntities(value, 0, value.length());
+		}
+		else {
+			result = decodeEntities(line, start, end);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Creates the string of an attribute value, replacing XML entities by the corresponding characters.
+	 * Predefined entities (amp, lt, gt, quot, apos) and numeric character references are supported,
+	 * unknown entities are kept as is.
+	 * @param s The string containing the value
+	 * @param start The index of the value first character
+	 * @param end The index after the value last character
+	 * @return The decoded value
+	 */
+	static String decodeEntities(String s, int start, int end) {
+		StringBuilder result = new StringBuilder(end - start);
+		int pos = start;
+		
+		while(pos < end) {
+			char c = s.charAt(pos);
+			int entityEnd = (c == '&') ? s.indexOf(';', pos) : INVALID;
+			
+			if(entityEnd == INVALID || entityEnd >= end) {
+				result.append(c);
+				pos++;
+				continue;
+			}
+			
+			int decoded = decodeEntity(s, pos + 1, entityEnd);
+			if(decoded == INVALID) {
+				result.append(s, pos, entityEnd + 1);
+			} else {
+				result.appendCodePoint(decoded);
+			}
+			pos = entityEnd + 1;
+		}
+		
+		return result.toString();
+	}
+	
+	/**
+	 * Decodes a single XML entity.
+	 * @param s The string containing the entity
+	 * @param start The index after the ampersand
+	 * @param end The index of the semicolon
+	 * @return The corresponding code point, or INVALID if the entity is unknown
+	 */
+	private static int decodeEntity(String s, int start, int end) {
+		int length = end - start;
+		int result = INVALID;
+		
+		if(length >= 2 && s.charAt(start) == '#') {
+			//Numeric character reference, decimal or hexadecimal
+			boolean hex = s.charAt(start + 1) == 'x' || s.charAt(start + 1) == 'X';
+			int pos = (hex) ? start + 2 : start + 1;
+			int radix = (hex) ? 16 : 10;
+			int codePoint = 0;
+			
+			if(pos == end) {
+				return INVALID;
+			}
+			
+			while(pos < end) {
+				int digit = Character.digit(s.charAt(pos), radix);
+				if(digit < 0 || codePoint > Character.MAX_CODE_POINT) {
+					return INVALID;
+				}
+				codePoint = codePoint * radix + digit;
+				pos++;
+			}
+			
+			result = (Character.isValidCodePoint(codePoint)) ? codePoint : INVALID;
+		}
+		else if(length == 3 && s.startsWith("amp", start)) { result = '&'; }
+		else if(length == 2 && s.startsWith("lt", start)) { result = '<'; }
+		else if(length == 2 && s.startsWith("gt", start)) { result = '>'; }
+		else if(length == 4 && s.startsWith("quot", start)) { result = '"'; }
+		else if(length == 4 && s.startsWith("apos", start)) { result = '\''; }
+		
+		return result;
+	}
+	
+	/**
+	 * @param c The character to test
+	 * @return True if the character is an ASCII letter
+	 */
+	private static boolean isLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+	
+	/**
+	 * @param c The character to test
+	 * @return True if the character is an ASCII letter, a digit or an underscore
+	 */
+	private static boolean isWordChar(char c) {
+		return isLetter(c) || (c >= '0' && c <= '9') || c == '_';
+	}
+	
+	/**
+	 * @param c The character to test
+	 * @return True if the character is a white space (space, tab, line feed, ...)
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+	}
 }
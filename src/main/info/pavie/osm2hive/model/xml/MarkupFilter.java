@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.xml;
+
+/**
+ * A markup filter tells if a line contains one of the wanted markups, without parsing it.
+ * Only the name right after the opening "&lt;" or "&lt;/" is read: the candidate names are found
+ * using its first character, so unwanted lines are rejected after reading a few characters.
+ * Lines can be given as strings or as UTF-8 bytes, which are tested without being decoded.
+ * A filter is immutable, and can be shared between threads.
+ * @author Adrien PAVIE
+ */
+public class MarkupFilter {
+//CONSTANTS
+	/** Amount of first characters handled (ASCII only) **/
+	private static final int TABLE_SIZE = 128;
+
+//ATTRIBUTES
+	/** The accepted names, indexed by their first character **/
+	private final String[][] names;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor
+	 * @param accepted The markup names to accept, for example "node", "tag"
+	 */
+	public MarkupFilter(String... accepted) {
+		names = new String[TABLE_SIZE][];
+		
+		for(String name : accepted) {
+			if(name.length() == 0 || name.charAt(0) >= TABLE_SIZE) {
+				throw new IllegalArgumentException("Invalid markup name: "+name);
+			}
+			char first = name.charAt(0);
+			
+			//Add name in the list for its first character
+			String[] previous = names[first];
+			String[] current = new String[(previous == null) ? 1 : previous.length + 1];
+			if(previous != null) {
+				System.arraycopy(previous, 0, current, 0, previous.length);
+			}
+			current[current.length - 1] = name;
+			names[first] = current;
+		}
+	}
+
+//OTHER METHODS
+	/**
+	 * Does the line start with one of the accepted markups ?
+	 * Leading white spaces are ignored, and both opening and closing markups are accepted.
+	 * @param line The line to test
+	 * @return True if the line should be parsed
+	 */
+	public boolean accepts(String line) {
+		int length = line.length();
+		int pos = 0;
+		
+		//Skip white spaces
+		while(pos < length && line.charAt(pos) <= ' ') { pos++; }
+		
+		//Markup opening character, and optional closing markup slash
+		if(pos >= length - 1 || line.charAt(pos) != '<') {
+			return false;
+		}
+		pos++;
+		if(line.charAt(pos) == '/') {
+			pos++;
+		}
+		
+		//Find names with this first character
+		if(pos == length || line.charAt(pos) >= TABLE_SIZE) {
+			return false;
+		}
+		String[] candidates = names[line.charAt(pos)];
+		
+		if(candidates != null) {
+			for(String name : candidates) {
+				int nameEnd = pos + name.length();
+				if(line.startsWith(name, pos) && (nameEnd == length || !isNameChar(line.charAt(nameEnd)))) {
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Does the line, given as UTF-8 bytes, start with one of the accepted markups ?
+	 * Leading white spaces are ignored, and both opening and closing markups are accepted.
+	 * @param bytes The bytes containing the line
+	 * @param start The index of the line first byte
+	 * @param end The index after the line last byte
+	 * @return True if the line should be parsed
+	 */
+	public boolean accepts(byte[] bytes, int start, int end) {
+		int pos = start;
+		
+		//Skip white spaces (bytes of non-ASCII characters are negative)
+		while(pos < end && bytes[pos] <= ' ' && bytes[pos] >= 0) { pos++; }
+		
+		//Markup opening character, and optional closing markup slash
+		if(pos >= end - 1 || bytes[pos] != '<') {
+			return false;
+		}
+		pos++;
+		if(bytes[pos] == '/') {
+			pos++;
+		}
+		
+		//Find names with this first character
+		if(pos == end || bytes[pos] < 0) {
+			return false;
+		}
+		String[] candidates = names[bytes[pos]];
+		
+		if(candidates != null) {
+			for(String name : candidates) {
+				int nameEnd = pos + name.length();
+				if(nameEnd <= end && regionMatches(bytes, pos, name) && (nameEnd == end || !isNameChar((char) bytes[nameEnd]))) {
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @param bytes The bytes
+	 * @param start The index of the first compared byte
+	 * @param name The ASCII name, not longer than the bytes after start
+	 * @return True if the bytes contain the name at start
+	 */
+	private static boolean regionMatches(byte[] bytes, int start, String name) {
+		for(int i=0; i < name.length(); i++) {
+			if(bytes[start + i] != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @param c The character to test
+	 * @return True if the character can be part of a markup name
+	 */
+	private static boolean isNameChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+}
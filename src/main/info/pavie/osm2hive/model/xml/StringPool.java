@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.xml;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A string pool shares equal strings read from markups, for example tag keys or frequent tag values,
+ * so they are stored only once in memory. Strings can be looked up directly from a line range,
+ * or a range of UTF-8 bytes, without creating a new string when the pool already contains it.
+ * The pool is bounded: each string has a single slot, and a new string replaces the one in its slot.
+ * Frequent strings stay in the pool, while rare ones are replaced. A pool isn't thread-safe.
+ * @author Adrien PAVIE
+ */
+public class StringPool {
+//CONSTANTS
+	/** Default amount of slots **/
+	public static final int DEFAULT_CAPACITY = 4096;
+	
+	/** Default maximum length of pooled strings **/
+	public static final int DEFAULT_MAX_LENGTH = 32;
+
+//ATTRIBUTES
+	/** The pooled strings, indexed by hash **/
+	private final String[] strings;
+	
+	/** The mask giving the slot of a hash **/
+	private final int mask;
+	
+	/** The maximum length of pooled strings, longer ones are rarely shared **/
+	private final int maxLength;
+
+//CONSTRUCTORS
+	/**
+	 * Class constructor, with default capacity and maximum length
+	 */
+	public StringPool() {
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+	}
+	
+	/**
+	 * Class constructor
+	 * @param capacity The amount of slots (rounded up to a power of two)
+	 * @param maxLength The maximum length of pooled strings
+	 */
+	public StringPool(int capacity, int maxLength) {
+		if(capacity <= 0 || maxLength < 0) {
+			throw new IllegalArgumentException("Invalid string pool size: "+capacity+", "+maxLength);
+		}
+		
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity) { size <<= 1; }
+		
+		strings = new String[size];
+		mask = size - 1;
+		this.maxLength = maxLength;
+	}
+
+//OTHER METHODS
+	/**
+	 * Get the pooled string equal to the given one.
+	 * @param s The string to look for
+	 * @return The pooled string, or s if it wasn't pooled yet (or can't be)
+	 */
+	public String get(String s) {
+		if(s == null || s.length() > maxLength) {
+			return s;
+		}
+		
+		int slot = slot(s.hashCode());
+		String pooled = strings[slot];
+		
+		if(s.equals(pooled)) {
+			return pooled;
+		}
+		else {
+			strings[slot] = s;
+			return s;
+		}
+	}
+	
+	/**
+	 * Get the pooled string equal to a range of the given characters, creating it only if not pooled.
+	 * @param s The characters
+	 * @param start The range start index (inclusive)
+	 * @param end The range end index (exclusive)
+	 * @return The pooled string, or a new string if it wasn't pooled yet (or can't be)
+	 */
+	public String get(String s, int start, int end) {
+		int length = end - start;
+		if(length > maxLength) {
+			return s.substring(start, end);
+		}
+		
+		//Same hash as String.hashCode()
+		int hash = 0;
+		for(int i=start; i < end; i++) {
+			hash = 31 * hash + s.charAt(i);
+		}
+		
+		int slot = slot(hash);
+		String pooled = strings[slot];
+		
+		if(pooled != null && pooled.length() == length && s.regionMatches(start, pooled, 0, length)) {
+			return pooled;
+		}
+		else {
+			pooled = s.substring(start, end);
+			strings[slot] = pooled;
+			return pooled;
+		}
+	}
+	
+	/**
+	 * Get the pooled string equal to a range of the given UTF-8 bytes, creating it only if not pooled.
+	 * ASCII strings are looked up without decoding, other ones are decoded first.
+	 * @param bytes The UTF-8 bytes
+	 * @param start The range start index (inclusive)
+	 * @param end The range end index (exclusive)
+	 * @return The pooled string, or a new string if it wasn't pooled yet (or can't be)
+	 */
+	public String get(byte[] bytes, int start, int end) {
+		int length = end - start;
+		if(length > maxLength) {
+			return new String(bytes, start, length, StandardCharsets.UTF_8);
+		}
+		
+		//Same hash as String.hashCode(), ASCII characters being single bytes
+		int hash = 0;
+		for(int i=start; i < end; i++) {
+			byte b = bytes[i];
+			if(b < 0) {
+				return get(new String(bytes, start, length, StandardCharsets.UTF_8));
+			}
+			hash = 31 * hash + b;
+		}
+		
+		int slot = slot(hash);
+		String pooled = strings[slot];
+		
+		if(pooled != null && pooled.length() == length && regionMatches(bytes, start, pooled)) {
+			return pooled;
+		}
+		else {
+			pooled = new String(bytes, start, length, StandardCharsets.US_ASCII);
+			strings[slot] = pooled;
+			return pooled;
+		}
+	}
+	
+	/**
+	 * @param bytes The ASCII bytes
+	 * @param start The index of the first compared byte
+	 * @param s The string to compare, not longer than the bytes after start
+	 * @return True if the bytes contain the string at start
+	 */
+	private static boolean regionMatches(byte[] bytes, int start, String s) {
+		for(int i=0; i < s.length(); i++) {
+			if(bytes[start + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @param hash The string hash
+	 * @return The slot of the string
+	 */
+	private int slot(int hash) {
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
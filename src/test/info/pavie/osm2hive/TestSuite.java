@@ -16,8 +16,24 @@
 
 package info.pavie.osm2hive;
 
+import info.pavie.osm2hive.controller.TestElementWriteSupport;
+import info.pavie.osm2hive.controller.TestElementWritable;
+import info.pavie.osm2hive.controller.TestHiveImporter;
+import info.pavie.osm2hive.controller.TestOSMConverter;
 import info.pavie.osm2hive.controller.TestOSMParser;
+import info.pavie.osm2hive.controller.TestOSMSerDe;
+import info.pavie.osm2hive.controller.TestParallelOSMParser;
+import info.pavie.osm2hive.controller.TestVectorizedOSMNodeRecordReader;
+import info.pavie.osm2hive.model.geo.TestNodeLocationIndex;
+import info.pavie.osm2hive.model.osm.TestElement;
+import info.pavie.osm2hive.model.osm.TestNode;
+import info.pavie.osm2hive.model.osm.TestTags;
+import info.pavie.osm2hive.model.osm.TestTimestamps;
+import info.pavie.osm2hive.model.pbf.TestBlobReader;
+import info.pavie.osm2hive.model.xml.TestElementReader;
+import info.pavie.osm2hive.model.xml.TestMappedMarkupReader;
 import info.pavie.osm2hive.model.xml.TestMarkup;
+import info.pavie.osm2hive.model.xml.TestMarkupFilter;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -25,7 +41,23 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
 		TestOSMParser.class,
-		TestMarkup.class
+		TestHiveImporter.class,
+		TestOSMSerDe.class,
+		TestMarkup.class,
+		TestMarkupFilter.class,
+		TestElementReader.class,
+		TestBlobReader.class,
+		TestTags.class,
+		TestTimestamps.class,
+		TestElement.class,
+		TestNode.class,
+		TestNodeLocationIndex.class,
+		TestOSMConverter.class,
+		TestMappedMarkupReader.class,
+		TestParallelOSMParser.class,
+		TestElementWriteSupport.class,
+		TestElementWritable.class,
+		TestVectorizedOSMNodeRecordReader.class
 		})
 
 /**
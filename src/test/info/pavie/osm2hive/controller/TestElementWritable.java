@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Timestamps;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Test;
+
+/**
+ * Test class for {@link ElementWritable}.
+ * @author Adrien PAVIE
+ */
+public class TestElementWritable {
+//OTHER METHODS
+	/**
+	 * Writes an element, and reads it in a new writable.
+	 * @param element The element
+	 * @return The read writable
+	 * @throws IOException If the element can't be written or read
+	 */
+	private ElementWritable copy(Element element) throws IOException {
+		ElementWritable writable = new ElementWritable();
+		writable.set(element);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		writable.write(new DataOutputStream(bytes));
+		
+		ElementWritable result = new ElementWritable();
+		result.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		return result;
+	}
+	
+	/**
+	 * Checks that two elements have the same type, ID, metadata, tags, coordinates, nodes and members.
+	 * @param expected The expected element
+	 * @param result The checked element
+	 */
+	private void assertSameElement(Element expected, Element result) {
+		assertEquals(expected.getType(), result.getType());
+		assertEquals(expected.getNumericId(), result.getNumericId());
+		assertEquals(expected.getUser(), result.getUser());
+		assertEquals(expected.getUid(), result.getUid());
+		assertEquals(expected.getTime(), result.getTime());
+		assertEquals(expected.getTimestamp(), result.getTimestamp());
+		assertEquals(expected.isVisible(), result.isVisible());
+		assertEquals(expected.getVersion(), result.getVersion());
+		assertEquals(expected.getChangeset(), result.getChangeset());
+		assertEquals(expected.getTags(), result.getTags());
+		
+		if(expected instanceof Node) {
+			assertEquals(((Node) expected).getFixedLat(), ((Node) result).getFixedLat());
+			assertEquals(((Node) expected).getFixedLon(), ((Node) result).getFixedLon());
+		}
+		else if(expected instanceof Way) {
+			assertEquals(((Way) expected).getNodes(), ((Way) result).getNodes());
+		}
+		else {
+			assertEquals(((Relation) expected).getMembers(), ((Relation) result).getMembers());
+			for(int i=0; i < ((Relation) expected).getMembersCount(); i++) {
+				assertEquals(((Relation) expected).getMemberRole(i), ((Relation) result).getMemberRole(i));
+			}
+		}
+	}
+
+//TESTS
+// write() and readFields()
+	@Test
+	public void testWriteReadFieldsPBF() throws IOException {
+		JobConf job = new JobConf();
+		job.set(OSMSerDe.ELEMENT_TYPE, "all");
+		File pbf = new File("res/xml/sample.osm.pbf");
+		OSMPBFRecordReader reader = new OSMPBFRecordReader(job, new FileSplit(new Path(pbf.getPath()), 0, pbf.length(), null));
+		LongWritable key = reader.createKey();
+		ElementWritable value = reader.createValue();
+		
+		int count = 0;
+		while(reader.next(key, value)) {
+			ElementWritable result = copy(value.get());
+			assertNotSame(value.get(), result.get());
+			assertSameElement(value.get(), result.get());
+			count++;
+		}
+		reader.close();
+		
+		assertEquals(6, count);
+	}
+	
+	@Test
+	public void testWriteReadFieldsMetadata() throws IOException {
+		Way way = new Way(-5);
+		way.setTimestamp("yesterday");
+		way.setVisible(false);
+		way.addNode(Long.MAX_VALUE);
+		way.addNode(-1);
+		way.addNode(Long.MIN_VALUE);
+		way.addTag("name", "Rue de l'Église");
+		
+		Element result = copy(way).get();
+		assertSameElement(way, result);
+		assertEquals(Timestamps.UNKNOWN, result.getTime());
+		assertEquals("yesterday", result.getTimestamp());
+		
+		Relation relation = new Relation(7);
+		relation.addMember(null, Element.WAY, 3);
+		relation.addMember("outer", Element.RELATION, -2);
+		assertSameElement(relation, copy(relation).get());
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import static org.junit.Assert.assertEquals;
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Way;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link ElementWriteSupport}.
+ * @author Adrien PAVIE
+ */
+public class TestElementWriteSupport {
+//ATTRIBUTES
+	private StringBuilder events;
+	private RecordConsumer consumer;
+
+//SETUP
+	@Before
+	public void setUp() throws Exception {
+		events = new StringBuilder();
+		
+		//Records written as text, for example {id=N1;tags=();}
+		consumer = new RecordConsumer() {
+			@Override public void startMessage() { events.append('{'); }
+			@Override public void endMessage() { events.append('}'); }
+			@Override public void startField(String field, int index) { events.append(field).append('='); }
+			@Override public void endField(String field, int index) { events.append(';'); }
+			@Override public void startGroup() { events.append('('); }
+			@Override public void endGroup() { events.append(')'); }
+			@Override public void addInteger(int value) { events.append(value); }
+			@Override public void addLong(long value) { events.append(value); }
+			@Override public void addBoolean(boolean value) { events.append(value); }
+			@Override public void addBinary(Binary value) { events.append(value.toStringUsingUTF8()); }
+			@Override public void addFloat(float value) { events.append(value); }
+			@Override public void addDouble(double value) { events.append(value); }
+		};
+	}
+
+//OTHER METHODS
+	/**
+	 * Writes an element with a new write support.
+	 * @param e The element
+	 * @param numericIds Are IDs numeric ?
+	 * @return The written record
+	 */
+	private String write(Element e, boolean numericIds) {
+		ElementWriteSupport ws = new ElementWriteSupport(e.getType(), numericIds);
+		ws.init(new Configuration());
+		ws.prepareForWrite(consumer);
+		
+		events.setLength(0);
+		ws.write(e);
+		return events.toString();
+	}
+
+//TESTS
+// write()
+	@Test
+	public void testWriteNode() {
+		Node n = new Node(298884269, 54.0901746, 12.2482632);
+		n.setUid(46882);
+		n.setTimestamp("2008-09-21T21:37:45Z");
+		n.setVisible(true);
+		n.setVersion(1);
+		n.setChangeset(676636);
+		n.addTag("name", "Neu Broderstorf");
+		n.addTag("highway", "bus_stop");
+		
+		assertEquals("{id=N298884269;userid=46882;timestamp=2008-09-21T21:37:45Z;isvisible=true;version=1;changesetid=676636;"
+				+ "tags=(key_value=(key=highway;value=bus_stop;)(key=name;value=Neu Broderstorf;););"
+				+ "latitude=54.0901746;longitude=12.2482632;}", write(n, false));
+	}
+	
+	@Test
+	public void testWriteWay() {
+		Way w = new Way(26659127);
+		w.addNode(298884269);
+		w.addNode(-12);
+		
+		assertEquals("{id=W26659127;userid=0;isvisible=true;version=1;changesetid=0;tags=();"
+				+ "nodes=(list=(element=N298884269;)(element=N-12;););}", write(w, false));
+		assertEquals("{id=26659127;userid=0;isvisible=true;version=1;changesetid=0;tags=();"
+				+ "nodes=(list=(element=298884269;)(element=-12;););}", write(w, true));
+	}
+	
+	@Test
+	public void testWriteRelation() {
+		Relation r = new Relation(56688);
+		r.addMember("stop", Element.NODE, 298884269);
+		r.addMember("", Element.WAY, 26659127);
+		
+		assertEquals("{id=R56688;userid=0;isvisible=true;version=1;changesetid=0;tags=();"
+				+ "members=(list=(element=(type=N;ref=N298884269;role=stop;);)(element=(type=W;ref=W26659127;role=;);););}", write(r, false));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testWriteWrongType() {
+		ElementWriteSupport ws = new ElementWriteSupport(Element.WAY, false);
+		ws.prepareForWrite(consumer);
+		ws.write(new Node(1, 0, 0));
+	}
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.xml.ElementReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.Collector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.Counters.Counter;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.Reporter;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link HiveImporter} and its sub-classes.
+ * @author Adrien PAVIE
+ */
+public class TestHiveImporter {
+//CONSTANTS
+	/** Amount of threads running importers at the same time **/
+	private static final int THREADS = 8;
+	
+	/** Amount of runs of each importer type **/
+	private static final int RUNS = 16;
+
+//ATTRIBUTES
+	private List<String> readLines;
+
+//SETUP
+	@Before
+	public void setUp() throws Exception {
+		readLines = readFileLines(new File("res/xml/sample.osm"));
+	}
+
+//OTHER METHODS
+	/**
+	 * Reads a text file, and returns lines as a list
+	 * @param f The file to read
+	 * @return The list of read lines
+	 * @throws FileNotFoundException If file isn't found
+	 */
+	private List<String> readFileLines(File f) throws FileNotFoundException {
+		List<String> lines = new ArrayList<String>();
+		Scanner s = new Scanner(f, "UTF-8");
+		while(s.hasNextLine()) {
+			lines.add(s.nextLine());
+		}
+		s.close();
+		return lines;
+	}
+	
+	/**
+	 * Creates a new importer of the given type
+	 * @param type The index of the importer type (0: nodes, 1: ways, 2: relations, 3: all elements)
+	 * @return The new importer
+	 */
+	private HiveImporter createImporter(int type) {
+		HiveImporter result = null;
+		
+		switch(type) {
+			case 0:
+				result = new HiveNodeImporter();
+				break;
+			case 1:
+				result = new HiveWayImporter();
+				break;
+			case 2:
+				result = new HiveRelationImporter();
+				break;
+			default:
+				result = new HiveElementImporter();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Imports all the read lines with the given importer.
+	 * @param importer The importer to use
+	 * @param start If not null, the latch to wait for before starting the import
+	 * @return The imported rows, copied as standard Java objects
+	 * @throws HiveException If the import fails
+	 * @throws InterruptedException If interrupted while waiting for start
+	 */
+	private List<Object> importLines(HiveImporter importer, CountDownLatch start) throws HiveException, InterruptedException {
+		return importLines(importer, start, new ObjectInspector[] { PrimitiveObjectInspectorFactory.javaStringObjectInspector });
+	}
+	
+	/**
+	 * Imports all the read lines with the given importer and options.
+	 * @param importer The importer to use
+	 * @param options The importer options, given as second argument
+	 * @return The imported rows, copied as standard Java objects
+	 * @throws HiveException If the import fails
+	 * @throws InterruptedException If interrupted while waiting for start
+	 */
+	private List<Object> importLinesWithOptions(HiveImporter importer, String options) throws HiveException, InterruptedException {
+		return importLines(importer, null, new ObjectInspector[] {
+				PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+				PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.stringTypeInfo, new Text(options)) });
+	}
+	
+	/**
+	 * Imports all the read lines with the given importer and arguments.
+	 * Lines are given as texts if the first argument object inspector prefers writable objects.
+	 * @param importer The importer to use
+	 * @param start If not null, the latch to wait for before starting the import
+	 * @param argOIs The importer arguments object inspectors
+	 * @return The imported rows, copied as standard Java objects
+	 * @throws HiveException If the import fails
+	 * @throws InterruptedException If interrupted while waiting for start
+	 */
+	private List<Object> importLines(HiveImporter importer, CountDownLatch start, ObjectInspector[] argOIs) throws HiveException, InterruptedException {
+		final List<Object> rows = new ArrayList<Object>();
+		final StructObjectInspector rowOI = importer.initialize(argOIs);
+		
+		importer.setCollector(new Collector() {
+			@Override
+			public void collect(Object input) throws HiveException {
+				rows.add(ObjectInspectorUtils.copyToStandardJavaObject(input, rowOI));
+			}
+		});
+		
+		if(start != null) {
+			start.await();
+		}
+		
+		boolean text = ((StringObjectInspector) argOIs[0]).preferWritable();
+		for(String line : readLines) {
+			importer.process(new Object[] { (text) ? new Text(line) : line });
+		}
+		importer.close();
+		
+		return rows;
+	}
+
+	/**
+	 * Creates a task reporter, adding counters increments to the given map.
+	 * @param counters The counters values, by group and name (separated by a dot)
+	 * @return The reporter
+	 */
+	static Reporter createReporter(final Map<String,Long> counters) {
+		return new Reporter() {
+			@Override
+			public void incrCounter(String group, String counter, long amount) {
+				String key = group+"."+counter;
+				counters.put(key, (counters.containsKey(key) ? counters.get(key) : 0) + amount);
+			}
+			
+			@Override
+			public void incrCounter(Enum<?> key, long amount) {
+				incrCounter(key.getDeclaringClass().getName(), key.name(), amount);
+			}
+			
+			@Override
+			public Counter getCounter(Enum<?> name) { return null; }
+			
+			@Override
+			public Counter getCounter(String group, String name) { return null; }
+			
+			@Override
+			public InputSplit getInputSplit() { return null; }
+			
+			@Override
+			public float getProgress() { return 0; }
+			
+			@Override
+			public void setStatus(String status) {}
+			
+			@Override
+			public void progress() {}
+		};
+	}
+
+//TESTS
+// process()
+	@Test
+	public void testProcessSequential() throws HiveException, InterruptedException {
+		assertEquals(4, importLines(createImporter(0), null).size());
+		assertEquals(1, importLines(createImporter(1), null).size());
+		assertEquals(1, importLines(createImporter(2), null).size());
+		assertEquals(6, importLines(createImporter(3), null).size());
+	}
+	
+	@Test
+	public void testProcessElementRecords() throws HiveException, InterruptedException, IOException {
+		List<Object> expected = importLines(createImporter(3), null);
+		
+		//Read whole elements, as OSMXmlInputFormat does
+		byte[] data = Files.readAllBytes(Paths.get("res/xml/sample.osm"));
+		ElementReader reader = new ElementReader(new ByteArrayInputStream(data), 0, data.length, "node", "way", "relation");
+		readLines = new ArrayList<String>();
+		while(reader.next()) {
+			readLines.add(new String(reader.getElement(), 0, reader.getElementLength(), StandardCharsets.UTF_8));
+		}
+		reader.close();
+		
+		assertEquals(6, readLines.size());
+		assertEquals(expected, importLines(createImporter(3), null));
+	}
+	
+	@Test
+	public void testProcessText() throws HiveException, InterruptedException, FileNotFoundException {
+		readLines = readFileLines(new File("res/xml/bleruais.osm"));
+		
+		//Lines read from text bytes should give the same rows as lines read from strings
+		for(int type = 0; type < 4; type++) {
+			List<Object> expected = importLines(createImporter(type), null);
+			List<Object> rows = importLines(createImporter(type), null, new ObjectInspector[] { PrimitiveObjectInspectorFactory.writableStringObjectInspector });
+			assertTrue(expected.size() > 0);
+			assertEquals(expected, rows);
+		}
+	}
+	
+	@Test
+	public void testProcessIntCoords() throws HiveException, InterruptedException {
+		List<Object> rows = importLinesWithOptions(createImporter(0), HiveImporter.INT_COORDS);
+		assertEquals(4, rows.size());
+		assertEquals(540901746, ((List<?>) rows.get(0)).get(7));
+		assertEquals(122482632, ((List<?>) rows.get(0)).get(8));
+		
+		rows = importLinesWithOptions(createImporter(3), HiveImporter.INT_COORDS);
+		assertEquals(540906309, ((List<?>) rows.get(1)).get(8));
+		assertNull(((List<?>) rows.get(4)).get(8));
+	}
+	
+	@Test
+	public void testProcessTimestamps() throws HiveException, InterruptedException {
+		List<Object> rows = importLinesWithOptions(createImporter(0), HiveImporter.EPOCH_TIMESTAMPS);
+		assertEquals(1222033065000L, ((List<?>) rows.get(0)).get(2));
+		assertEquals(1209821963000L, ((List<?>) rows.get(1)).get(2));
+		
+		rows = importLinesWithOptions(createImporter(3), HiveImporter.NATIVE_TIMESTAMPS);
+		assertEquals(Timestamp.valueOf("2008-09-21 21:37:45"), ((List<?>) rows.get(0)).get(2));
+		assertEquals(Timestamp.valueOf("2011-01-12 14:23:49"), ((List<?>) rows.get(5)).get(2));
+		
+		//Timestamps not in OSM form
+		readLines = Arrays.asList("<node id=\"1\" lat=\"1.0\" lon=\"2.0\" timestamp=\"2008-09-21\"/>");
+		assertNull(((List<?>) importLinesWithOptions(createImporter(0), HiveImporter.EPOCH_TIMESTAMPS).get(0)).get(2));
+		assertEquals("2008-09-21", ((List<?>) importLines(createImporter(0), null).get(0)).get(2));
+	}
+	
+	@Test
+	public void testProcessNumericIds() throws HiveException, InterruptedException {
+		List<Object> rows = importLinesWithOptions(createImporter(3), HiveImporter.NUMERIC_IDS);
+		assertEquals(6, rows.size());
+		
+		List<?> node = (List<?>) rows.get(0);
+		assertEquals(298884269L, node.get(0));
+		assertEquals("node", node.get(7));
+		
+		List<?> way = (List<?>) rows.get(4);
+		assertEquals(26659127L, way.get(0));
+		assertEquals(Arrays.asList(298884269L, 298884272L, 261728686L), way.get(10));
+		
+		List<?> relation = (List<?>) rows.get(5);
+		assertEquals(56688L, relation.get(0));
+		List<?> members = (List<?>) relation.get(11);
+		assertEquals(4, members.size());
+		assertEquals(Arrays.asList("N", 298884269L, "stop"), members.get(0));
+		assertEquals(Arrays.asList("N", 261728686L, ""), members.get(1));
+		assertEquals(Arrays.asList("W", 26659127L, "path"), members.get(2));
+	}
+	
+	@Test
+	public void testProcessMembersOrder() throws HiveException, InterruptedException {
+		//Route going back on its first way
+		readLines = Arrays.asList(
+				"<relation id=\"1\" version=\"1\">",
+				"<member type=\"way\" ref=\"10\" role=\"forward\"/>",
+				"<member type=\"node\" ref=\"20\" role=\"stop\"/>",
+				"<member type=\"way\" ref=\"10\" role=\"backward\"/>",
+				"</relation>");
+		
+		List<?> members = (List<?>) ((List<?>) importLines(createImporter(2), null).get(0)).get(7);
+		assertEquals(3, members.size());
+		assertEquals(Arrays.asList("W", "W10", "forward"), members.get(0));
+		assertEquals(Arrays.asList("N", "N20", "stop"), members.get(1));
+		assertEquals(Arrays.asList("W", "W10", "backward"), members.get(2));
+		
+		Map<?,?> map = (Map<?,?>) ((List<?>) importLinesWithOptions(createImporter(2), HiveImporter.MEMBERS_MAP).get(0)).get(7);
+		assertEquals(2, map.size());
+		assertEquals("forward", map.get("W10"));
+	}
+	
+	@Test
+	public void testProcessLazyColumns() throws HiveException {
+		HiveImporter importer = createImporter(3);
+		final StructObjectInspector rowOI = importer.initialize(new ObjectInspector[] { PrimitiveObjectInspectorFactory.javaStringObjectInspector });
+		final List<Object> rows = new ArrayList<Object>();
+		
+		//Rows are the elements, columns are read through object inspector
+		importer.setCollector(new Collector() {
+			@Override
+			public void collect(Object input) throws HiveException {
+				assertTrue(input instanceof Element);
+				rows.add(rowOI.getStructFieldData(input, rowOI.getStructFieldRef("id")));
+				rows.add(rowOI.getStructFieldData(input, rowOI.getStructFieldRef("Latitude")));
+			}
+		});
+		
+		for(String line : readLines) {
+			importer.process(new Object[] { line });
+		}
+		
+		assertEquals(12, rows.size());
+		assertEquals("N298884269", rows.get(0));
+		assertEquals(54.0901746, rows.get(1));
+		assertEquals("W26659127", rows.get(8));
+		assertNull(rows.get(9));
+	}
+	
+	@Test
+	public void testProcessWayGeometry() throws HiveException, InterruptedException {
+		for(String options : Arrays.asList(HiveImporter.WAY_GEOMETRY, HiveImporter.WAY_GEOMETRY+","+HiveImporter.DENSE_INDEX)) {
+			List<Object> rows = importLinesWithOptions(createImporter(1), options);
+			assertEquals(1, rows.size());
+			
+			//Linestring of 3 points, first one is node N298884269
+			ByteBuffer wkb = ByteBuffer.wrap((byte[]) ((List<?>) rows.get(0)).get(8)).order(ByteOrder.LITTLE_ENDIAN);
+			assertEquals(9 + 3 * 16, wkb.remaining());
+			assertEquals(2, wkb.getInt(1));
+			assertEquals(3, wkb.getInt(5));
+			assertEquals(12.2482632, wkb.getDouble(9), 0);
+			assertEquals(54.0901746, wkb.getDouble(17), 0);
+		}
+		
+		//Element importer: geometry only for ways
+		List<Object> rows = importLinesWithOptions(createImporter(3), HiveImporter.WAY_GEOMETRY);
+		assertNull(((List<?>) rows.get(0)).get(12));
+		assertEquals(57, ((byte[]) ((List<?>) rows.get(4)).get(12)).length);
+	}
+	
+	@Test
+	public void testProcessWayGeometryNegativeIds() throws HiveException, InterruptedException {
+		//New elements of a file edited with JOSM, not uploaded yet
+		readLines = Arrays.asList(
+				"<node id=\"-1\" action=\"modify\" lat=\"48.1\" lon=\"-1.6\"/>",
+				"<node id=\"-2\" action=\"modify\" lat=\"48.2\" lon=\"-1.7\"/>",
+				"<way id=\"-3\" action=\"modify\">",
+				"<nd ref=\"-1\"/>",
+				"<nd ref=\"-2\"/>",
+				"</way>");
+		
+		for(String options : Arrays.asList(HiveImporter.WAY_GEOMETRY, HiveImporter.WAY_GEOMETRY+","+HiveImporter.DENSE_INDEX)) {
+			List<Object> rows = importLinesWithOptions(createImporter(1), options);
+			assertEquals(1, rows.size());
+			
+			ByteBuffer wkb = ByteBuffer.wrap((byte[]) ((List<?>) rows.get(0)).get(8)).order(ByteOrder.LITTLE_ENDIAN);
+			assertEquals(9 + 2 * 16, wkb.remaining());
+			assertEquals(-1.6, wkb.getDouble(9), 0);
+			assertEquals(48.2, wkb.getDouble(33), 0);
+		}
+	}
+	
+	@Test
+	public void testProcessWayGeometryUnresolved() throws HiveException, InterruptedException {
+		//Second node is unknown
+		readLines = Arrays.asList(
+				"<node id=\"1\" lat=\"48.1\" lon=\"-1.6\"/>",
+				"<way id=\"3\">",
+				"<nd ref=\"1\"/>",
+				"<nd ref=\"2\"/>",
+				"</way>");
+		HiveImporter importer = createImporter(1);
+		List<Object> rows = importLinesWithOptions(importer, HiveImporter.WAY_GEOMETRY);
+		
+		assertEquals(1, rows.size());
+		assertNull(((List<?>) rows.get(0)).get(8));
+		assertEquals(1, importer.getStatistics().get(ImportStatistics.UNRESOLVED_WAY_GEOMETRIES));
+	}
+	
+	@Test(expected=HiveException.class)
+	public void testProcessWayGeometrySplit() throws HiveException, InterruptedException {
+		//Task reading the file from its middle, as set by configure()
+		HiveImporter importer = createImporter(1);
+		importer.splitStart = 1 << 20;
+		importLinesWithOptions(importer, HiveImporter.WAY_GEOMETRY);
+	}
+	
+	@Test
+	public void testInitializeWayGeometryWithoutNodes() throws HiveException {
+		//Only initialized, as while compiling a query: no index file is created
+		HiveImporter importer = createImporter(1);
+		importer.initialize(new ObjectInspector[] {
+				PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+				PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.stringTypeInfo, new Text("way_geometry,dense_index")) });
+		assertNull(importer.locations);
+		importer.close();
+	}
+	
+	@Test(expected=UDFArgumentException.class)
+	public void testInitializeInvalidOption() throws HiveException, InterruptedException {
+		importLinesWithOptions(createImporter(0), "numeric_ids, unknown");
+	}
+	
+	@Test
+	public void testProcessStatistics() throws HiveException, InterruptedException {
+		HiveImporter importer = createImporter(0);
+		assertEquals(4, importLines(importer, null).size());
+		
+		//Only node and tag lines are parsed
+		ImportStatistics stats = importer.getStatistics();
+		assertEquals(readLines.size(), stats.get(ImportStatistics.LINES_READ));
+		assertTrue(stats.get(ImportStatistics.LINES_FILTERED) > 0);
+		assertEquals(5, stats.get(ImportStatistics.NODE_MARKUPS));
+		assertEquals(0, stats.get(ImportStatistics.WAY_MARKUPS));
+		assertEquals(stats.get(ImportStatistics.LINES_READ) - stats.get(ImportStatistics.LINES_FILTERED),
+				stats.get(ImportStatistics.NODE_MARKUPS) + stats.get(ImportStatistics.TAG_MARKUPS));
+		assertEquals(4, stats.get(ImportStatistics.ELEMENTS_PARSED));
+		assertEquals(4, stats.get(ImportStatistics.ELEMENTS_EMITTED));
+		
+		//Only the first record and row are timed here, their duration being counted for the whole sample
+		assertTrue(stats.get(ImportStatistics.PARSE_NANOS) > 0);
+		assertTrue(stats.get(ImportStatistics.ROW_NANOS) > 0);
+		assertEquals(0, stats.get(ImportStatistics.PARSE_NANOS) % HiveImporter.TIMING_SAMPLE);
+		assertEquals(0, stats.get(ImportStatistics.ROW_NANOS) % HiveImporter.TIMING_SAMPLE);
+		
+		//Published counters are only increased by new values
+		Map<String,Long> counters = new HashMap<String,Long>();
+		Reporter reporter = createReporter(counters);
+		stats.publish(reporter);
+		stats.increment(ImportStatistics.ELEMENTS_EMITTED);
+		stats.publish(reporter);
+		assertEquals(Long.valueOf(readLines.size()), counters.get(ImportStatistics.COUNTER_GROUP+".LINES_READ"));
+		assertEquals(Long.valueOf(5), counters.get(ImportStatistics.COUNTER_GROUP+".ELEMENTS_EMITTED"));
+		assertNull(counters.get(ImportStatistics.COUNTER_GROUP+".DROPPED_SHORT_WAYS"));
+	}
+	
+	@Test
+	public void testProcessConcurrent() throws Exception {
+		//Expected results, from importers running alone
+		List<List<Object>> expected = new ArrayList<List<Object>>();
+		for(int type = 0; type < 4; type++) {
+			expected.add(importLines(createImporter(type), null));
+		}
+		
+		//Run several importers of each type at the same time
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<List<Object>>> results = new ArrayList<Future<List<Object>>>();
+		
+		for(int run = 0; run < RUNS * 4; run++) {
+			final HiveImporter importer = createImporter(run % 4);
+			results.add(executor.submit(new Callable<List<Object>>() {
+				@Override
+				public List<Object> call() throws Exception {
+					return importLines(importer, start);
+				}
+			}));
+		}
+		
+		start.countDown();
+		
+		try {
+			for(int run = 0; run < results.size(); run++) {
+				assertEquals(expected.get(run % 4), results.get(run).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
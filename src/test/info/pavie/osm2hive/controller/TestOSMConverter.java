@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.controller;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link OSMConverter}, {@link ElementWriter} and {@link OrcElementWriter}.
+ * @author Adrien PAVIE
+ */
+public class TestOSMConverter {
+//ATTRIBUTES
+	private File output;
+
+//SETUP
+	@Before
+	public void setUp() throws Exception {
+		output = Files.createTempDirectory("osm2hive").toFile();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		for(String table : new String[] { "nodes", "ways", "relations" }) {
+			File directory = new File(output, table);
+			for(File f : directory.listFiles()) {
+				f.delete();
+			}
+			directory.delete();
+		}
+		output.delete();
+	}
+
+//OTHER METHODS
+	/**
+	 * Reads the rows of a converted table, in file names order.
+	 * @param table The table name
+	 * @return The rows
+	 * @throws IOException If reading fails
+	 */
+	private List<String> readTable(String table) throws IOException {
+		File[] files = new File(output, table).listFiles();
+		Arrays.sort(files);
+		
+		List<String> result = new ArrayList<String>();
+		for(File f : files) {
+			result.addAll(Files.readAllLines(f.toPath(), StandardCharsets.UTF_8));
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the first batch of a converted ORC table.
+	 * @param table The table name
+	 * @param expectedRows The expected amount of rows in table
+	 * @return The batch
+	 * @throws IOException If reading fails
+	 */
+	private VectorizedRowBatch readOrc(String table, int expectedRows) throws IOException {
+		File f = new File(new File(output, table), String.format(OSMConverter.DATA_FILE, 0));
+		Reader reader = OrcFile.createReader(new Path(f.getAbsolutePath()), OrcFile.readerOptions(new Configuration()));
+		assertEquals(expectedRows, reader.getNumberOfRows());
+		
+		VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+		RecordReader records = reader.rows();
+		assertTrue(records.nextBatch(batch));
+		records.close();
+		
+		assertEquals(expectedRows, batch.size);
+		return batch;
+	}
+
+//TESTS
+// convert()
+	@Test
+	public void testConvertSample() throws Exception {
+		long[] rows = new OSMConverter(new File("res/xml/sample.osm"), output, false).convert();
+		assertArrayEquals(new long[] { 4, 1, 1 }, rows);
+		
+		List<String> nodes = readTable("nodes");
+		assertEquals(4, nodes.size());
+		assertEquals("N298884269\u000146882\u00012008-09-21T21:37:45Z\u0001true\u00011\u0001676636\u0001\u000154.0901746\u000112.2482632", nodes.get(0));
+		assertEquals("N1831881213\u000175625\u00012012-07-20T09:43:19Z\u0001true\u00011\u000112370172\u0001name\u0003Neu Broderstorf\u0002traffic_sign\u0003city_limit\u000154.0900666\u000112.2539381", nodes.get(2));
+		
+		List<String> ways = readTable("ways");
+		assertEquals("N298884269\u0002N298884272\u0002N261728686", ways.get(0).split("\u0001")[7]);
+		assertEquals("highway\u0003unclassified\u0002name\u0003Pastower Straße", ways.get(0).split("\u0001")[6]);
+		
+		List<String> relations = readTable("relations");
+		assertEquals("N\u0003N298884269\u0003stop\u0002N\u0003N261728686\u0003\u0002W\u0003W26659127\u0003path\u0002N\u0003N298884272\u0003", relations.get(0).split("\u0001")[7]);
+		assertTrue(new File(new File(output, "nodes"), String.format(OSMConverter.DATA_FILE, 0)).isFile());
+	}
+	
+	@Test
+	public void testConvertNumericIds() throws Exception {
+		new OSMConverter(new File("res/xml/sample.osm"), output, true).convert();
+		
+		assertEquals("26659127", readTable("ways").get(0).split("\u0001")[0]);
+		assertEquals("298884269\u0002298884272\u0002261728686", readTable("ways").get(0).split("\u0001")[7]);
+		assertEquals("W\u000326659127\u0003path", readTable("relations").get(0).split("\u0001")[7].split("\u0002")[2]);
+	}
+	
+	@Test
+	public void testConvertOrc() throws Exception {
+		long[] rows = new OSMConverter(new File("res/xml/sample.osm"), output, false, OSMConverter.ORC, 2).convert();
+		assertArrayEquals(new long[] { 4, 1, 1 }, rows);
+		
+		//Nodes
+		VectorizedRowBatch batch = readOrc("nodes", 4);
+		assertEquals("N298884269", ((BytesColumnVector) batch.cols[0]).toString(0));
+		assertEquals(46882, ((LongColumnVector) batch.cols[1]).vector[0]);
+		assertEquals("2008-09-21T21:37:45Z", ((BytesColumnVector) batch.cols[2]).toString(0));
+		assertEquals(1, ((LongColumnVector) batch.cols[3]).vector[0]);
+		assertEquals(54.0901746, ((DoubleColumnVector) batch.cols[7]).vector[0], 0);
+		assertEquals(12.2539381, ((DoubleColumnVector) batch.cols[8]).vector[2], 0);
+		
+		MapColumnVector tags = (MapColumnVector) batch.cols[6];
+		assertEquals(0, tags.lengths[0]);
+		assertEquals(2, tags.lengths[2]);
+		assertEquals("name", ((BytesColumnVector) tags.keys).toString((int) tags.offsets[2]));
+		assertEquals("Neu Broderstorf", ((BytesColumnVector) tags.values).toString((int) tags.offsets[2]));
+		
+		//Ways
+		batch = readOrc("ways", 1);
+		ListColumnVector nodes = (ListColumnVector) batch.cols[7];
+		assertEquals(3, nodes.lengths[0]);
+		assertEquals("N261728686", ((BytesColumnVector) nodes.child).toString((int) nodes.offsets[0] + 2));
+		
+		//Relations
+		batch = readOrc("relations", 1);
+		ListColumnVector members = (ListColumnVector) batch.cols[7];
+		StructColumnVector member = (StructColumnVector) members.child;
+		assertEquals(4, members.lengths[0]);
+		assertEquals("W", ((BytesColumnVector) member.fields[0]).toString(2));
+		assertEquals("W26659127", ((BytesColumnVector) member.fields[1]).toString(2));
+		assertEquals("path", ((BytesColumnVector) member.fields[2]).toString(2));
+	}
+	
+	@Test
+	public void testConvertOrcNumericIds() throws Exception {
+		new OSMConverter(new File("res/xml/sample.osm"), output, true, OSMConverter.ORC, 1).convert();
+		
+		VectorizedRowBatch batch = readOrc("ways", 1);
+		assertEquals(26659127, ((LongColumnVector) batch.cols[0]).vector[0]);
+		assertEquals(298884269, ((LongColumnVector) ((ListColumnVector) batch.cols[7]).child).vector[0]);
+	}
+	
+	@Test
+	public void testConvertParquet() throws Exception {
+		OSMConverter converter = new OSMConverter(new File("res/xml/sample.osm"), output, true, OSMConverter.PARQUET, 2);
+		converter.setRowGroupSize(1024 * 1024);
+		assertArrayEquals(new long[] { 4, 1, 1 }, converter.convert());
+		
+		for(String table : new String[] { "nodes", "ways", "relations" }) {
+			assertTrue(new File(new File(output, table), String.format(OSMConverter.DATA_FILE, 0)).length() > 0);
+		}
+	}
+}
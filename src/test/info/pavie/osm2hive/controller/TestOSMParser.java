@@ -17,12 +17,15 @@
 package info.pavie.osm2hive.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import info.pavie.osm2hive.model.osm.Element;
 import info.pavie.osm2hive.model.osm.Node;
 import info.pavie.osm2hive.model.osm.Relation;
 import info.pavie.osm2hive.model.osm.Way;
 import info.pavie.osm2hive.model.xml.InvalidMarkupException;
+import info.pavie.osm2hive.model.xml.Markup;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -177,4 +180,120 @@ public class TestOSMParser {
 		assertEquals(2, single4_2.getNodes().size());
 		assertEquals(single4_1.getNodes().get(1), single4_2.getNodes().get(0));
 	}
-}
\ No newline at end of file
+	
+	@Test
+	public void testParseReuse() throws IOException, InvalidMarkupException {
+		readLines = readFileLines(new File("res/xml/bleruais.osm"));
+		OSMParser p2 = new OSMParser(true);
+		Element previous = null;
+		int count = 0;
+		
+		//Both parsers should give the same elements, the second one reusing objects
+		for(String line : readLines) {
+			p1.parse(line);
+			p2.parse(line);
+			assertEquals(p1.isElementReady(), p2.isElementReady());
+			
+			if(p1.isElementReady()) {
+				Element e1 = p1.getCurrentElement();
+				Element e2 = p2.getCurrentElement();
+				assertEquals(e1.getId(), e2.getId());
+				assertEquals(e1.getTags(), e2.getTags());
+				assertEquals(e1.getVersion(), e2.getVersion());
+				assertEquals(e1.getTimestamp(), e2.getTimestamp());
+				if(e1 instanceof Way) {
+					assertEquals(((Way) e1).getNodes(), ((Way) e2).getNodes());
+				}
+				else if(e1 instanceof Relation) {
+					assertEquals(((Relation) e1).getMembers(), ((Relation) e2).getMembers());
+				}
+				
+				if(previous != null && previous.getType() == e2.getType()) {
+					assertSame(previous, e2);
+				}
+				previous = e2;
+				count++;
+			}
+		}
+		
+		assertTrue(count > 0);
+	}
+	
+	@Test
+	public void testParseCoordinates() throws IOException, InvalidMarkupException {
+		readLines = readFileLines(new File("res/xml/bleruais.osm"));
+		Markup m = new Markup();
+		String lat = null;
+		String lon = null;
+		int count = 0;
+		
+		//Fixed-point coordinates should give back the same doubles as the written decimals
+		for(String line : readLines) {
+			m.parse(line);
+			if(m.getName().equals("node") && m.getType() != Markup.END) {
+				lat = m.getAttribute("lat");
+				lon = m.getAttribute("lon");
+			}
+			
+			p1.parse(line);
+			if(p1.isElementReady() && p1.getCurrentElement() instanceof Node) {
+				Node n = (Node) p1.getCurrentElement();
+				assertEquals(Double.parseDouble(lat), n.getLat(), 0);
+				assertEquals(Double.parseDouble(lon), n.getLon(), 0);
+				count++;
+			}
+		}
+		
+		assertTrue(count > 0);
+	}
+	
+	@Test
+	public void testStatistics() throws IOException, InvalidMarkupException {
+		readLines = readFileLines(new File("res/xml/sample.osm"));
+		int count = 0;
+		
+		for(String line : readLines) {
+			p1.parse(line);
+			if(p1.isElementReady()) {
+				count++;
+			}
+		}
+		
+		ImportStatistics stats = p1.getStatistics();
+		assertEquals(6, count);
+		assertEquals(6, stats.get(ImportStatistics.ELEMENTS_PARSED));
+		assertEquals(5, stats.get(ImportStatistics.NODE_MARKUPS));
+		assertEquals(2, stats.get(ImportStatistics.WAY_MARKUPS));
+		assertEquals(2, stats.get(ImportStatistics.RELATION_MARKUPS));
+		assertEquals(10, stats.get(ImportStatistics.TAG_MARKUPS));
+		assertEquals(3, stats.get(ImportStatistics.ND_MARKUPS));
+		assertEquals(4, stats.get(ImportStatistics.MEMBER_MARKUPS));
+		assertEquals(4, stats.get(ImportStatistics.OTHER_MARKUPS));
+		long markups = 0;
+		for(int i=ImportStatistics.NODE_MARKUPS; i <= ImportStatistics.OTHER_MARKUPS; i++) {
+			markups += stats.get(i);
+		}
+		assertEquals(readLines.size(), markups);
+		assertEquals(0, stats.get(ImportStatistics.DROPPED_SHORT_WAYS));
+		assertEquals(0, stats.get(ImportStatistics.DROPPED_EMPTY_RELATIONS));
+		assertEquals(0, stats.get(ImportStatistics.DROPPED_UNMATCHED_END));
+		
+		//Dropped elements: way with a single node, relation without members, end without element
+		p1.parse("<way id=\"1\" version=\"1\">");
+		p1.parse("<nd ref=\"2\"/>");
+		p1.parse("</way>");
+		p1.parse("<relation id=\"3\" version=\"1\">");
+		p1.parse("</relation>");
+		p1.parse("</node>");
+		assertFalse(p1.isElementReady());
+		
+		ImportStatistics after = p1.getStatistics();
+		assertEquals(6, after.get(ImportStatistics.ELEMENTS_PARSED));
+		assertEquals(1, after.get(ImportStatistics.DROPPED_SHORT_WAYS));
+		assertEquals(1, after.get(ImportStatistics.DROPPED_EMPTY_RELATIONS));
+		assertEquals(1, after.get(ImportStatistics.DROPPED_UNMATCHED_END));
+		
+		//Snapshots aren't updated
+		assertEquals(0, stats.get(ImportStatistics.DROPPED_SHORT_WAYS));
+	}
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.xml.ElementReader;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link OSMSerDe}.
+ * @author Adrien PAVIE
+ */
+public class TestOSMSerDe {
+//ATTRIBUTES
+	private List<Text> records;
+	private Properties tbl;
+
+//SETUP
+	@Before
+	public void setUp() throws Exception {
+		//Read whole elements, as OSMXmlInputFormat does
+		byte[] data = Files.readAllBytes(Paths.get("res/xml/sample.osm"));
+		ElementReader reader = new ElementReader(new ByteArrayInputStream(data), 0, data.length, "node", "way", "relation");
+		records = new ArrayList<Text>();
+		while(reader.next()) {
+			Text record = new Text();
+			record.set(reader.getElement(), 0, reader.getElementLength());
+			records.add(record);
+		}
+		reader.close();
+		
+		tbl = new Properties();
+	}
+
+//OTHER METHODS
+	/**
+	 * Deserializes all records
+	 * @param serde The SerDe to use
+	 * @return The rows, as standard Java objects
+	 * @throws SerDeException If deserialization fails
+	 */
+	private List<Object> deserializeRecords(OSMSerDe serde) throws SerDeException {
+		List<Object> rows = new ArrayList<Object>();
+		for(Text record : records) {
+			rows.add(ObjectInspectorUtils.copyToStandardJavaObject(serde.deserialize(record), serde.getObjectInspector()));
+		}
+		return rows;
+	}
+
+//TESTS
+// deserialize()
+	@Test
+	public void testDeserializeAll() throws SerDeException {
+		OSMSerDe serde = new OSMSerDe();
+		serde.initialize(new JobConf(), tbl);
+		List<Object> rows = deserializeRecords(serde);
+		
+		assertEquals(6, rows.size());
+		List<?> way = (List<?>) rows.get(4);
+		assertEquals("W26659127", way.get(0));
+		assertEquals("way", way.get(7));
+		assertEquals("Pastower Straße", ((Map<?,?>) way.get(6)).get("name"));
+		assertEquals(3, ((List<?>) way.get(10)).size());
+	}
+	
+	@Test
+	public void testDeserializeNodes() throws SerDeException {
+		tbl.setProperty(OSMSerDe.ELEMENT_TYPE, "node");
+		OSMSerDe serde = new OSMSerDe();
+		serde.initialize(new JobConf(), tbl);
+		List<Object> rows = deserializeRecords(serde);
+		
+		assertEquals(9, ((StructObjectInspector) serde.getObjectInspector()).getAllStructFieldRefs().size());
+		assertEquals("N1831881213", ((List<?>) rows.get(2)).get(0));
+		assertEquals(54.0900666, ((List<?>) rows.get(2)).get(7));
+		assertNull(rows.get(4));
+		assertNull(rows.get(5));
+	}
+	
+	@Test
+	public void testDeserializeWayGeometry() throws SerDeException {
+		tbl.setProperty(OSMSerDe.OPTIONS, "way_geometry");
+		OSMSerDe serde = new OSMSerDe();
+		serde.initialize(new JobConf(), tbl);
+		List<Object> rows = deserializeRecords(serde);
+		
+		//Nodes are read before the way, and give its locations
+		byte[] wkb = (byte[]) ((List<?>) rows.get(4)).get(12);
+		assertNotNull(wkb);
+		assertEquals(9 + 3 * 16, wkb.length);
+		assertNull(((List<?>) rows.get(0)).get(12));
+	}
+	
+	@Test(expected=SerDeException.class)
+	public void testInitializeWayGeometryWays() throws SerDeException {
+		tbl.setProperty(OSMSerDe.ELEMENT_TYPE, "way");
+		tbl.setProperty(OSMSerDe.OPTIONS, "way_geometry");
+		new OSMSerDe().initialize(new JobConf(), tbl);
+	}
+	
+	@Test
+	public void testWayGeometryWholeFiles() {
+		JobConf job = new JobConf();
+		OSMXmlInputFormat xml = new OSMXmlInputFormat();
+		OSMPBFInputFormat pbf = new OSMPBFInputFormat();
+		xml.configure(job);
+		pbf.configure(job);
+		assertTrue(xml.isSplitable(null, new Path("sample.osm")));
+		assertTrue(pbf.isSplitable(null, new Path("sample.osm.pbf")));
+		
+		//Ways need the nodes of their file
+		job.set(OSMSerDe.OPTIONS, "numeric_ids, way_geometry");
+		assertTrue(OSMSerDe.hasOption(job, HiveImporter.WAY_GEOMETRY));
+		xml.configure(job);
+		pbf.configure(job);
+		assertFalse(xml.isSplitable(null, new Path("sample.osm")));
+		assertFalse(pbf.isSplitable(null, new Path("sample.osm.pbf")));
+	}
+	
+	@Test(expected=SerDeException.class)
+	public void testInitializeDenseIndex() throws SerDeException {
+		tbl.setProperty(OSMSerDe.OPTIONS, "way_geometry,dense_index");
+		new OSMSerDe().initialize(new JobConf(), tbl);
+	}
+	
+	@Test
+	public void testDeserializeReadColumns() throws SerDeException {
+		JobConf conf = new JobConf();
+		conf.set(ColumnProjectionUtils.READ_ALL_COLUMNS, "false");
+		conf.set(ColumnProjectionUtils.READ_COLUMN_IDS_CONF_STR, "0,7");
+		tbl.setProperty(OSMSerDe.ELEMENT_TYPE, "way");
+		OSMSerDe serde = new OSMSerDe();
+		serde.initialize(conf, tbl);
+		List<?> way = (List<?>) deserializeRecords(serde).get(4);
+		
+		assertEquals("W26659127", way.get(0));
+		assertNull(way.get(6));
+		assertEquals(3, ((List<?>) way.get(7)).size());
+	}
+	
+	@Test
+	public void testDeserializePBF() throws SerDeException, IOException {
+		OSMSerDe serde = new OSMSerDe();
+		serde.initialize(new JobConf(), tbl);
+		
+		//Rows from XML, by ID
+		Map<Object,Object> expected = new HashMap<Object,Object>();
+		for(Object row : deserializeRecords(serde)) {
+			expected.put(((List<?>) row).get(0), row);
+		}
+		
+		//Rows from PBF, by ID
+		File pbf = new File("res/xml/sample.osm.pbf");
+		OSMPBFRecordReader reader = new OSMPBFRecordReader(new JobConf(), new FileSplit(new Path(pbf.getPath()), 0, pbf.length(), null));
+		LongWritable key = reader.createKey();
+		ElementWritable value = reader.createValue();
+		Map<Object,Object> read = new HashMap<Object,Object>();
+		while(reader.next(key, value)) {
+			Object row = ObjectInspectorUtils.copyToStandardJavaObject(serde.deserialize(value), serde.getObjectInspector());
+			read.put(((List<?>) row).get(0), row);
+		}
+		reader.close();
+		
+		assertEquals(6, read.size());
+		assertEquals(expected, read);
+	}
+	
+	@Test
+	public void testDeserializeNumericIds() throws SerDeException {
+		tbl.setProperty(OSMSerDe.ELEMENT_TYPE, "relation");
+		tbl.setProperty(OSMSerDe.OPTIONS, "numeric_ids");
+		OSMSerDe serde = new OSMSerDe();
+		serde.initialize(new JobConf(), tbl);
+		List<?> relation = (List<?>) deserializeRecords(serde).get(5);
+		
+		assertEquals(56688L, relation.get(0));
+		assertEquals(Arrays.asList("W", 26659127L, "path"), ((List<?>) relation.get(7)).get(2));
+	}
+	
+	@Test
+	public void testDeserializeWaysRecordReader() throws SerDeException, IOException {
+		JobConf job = new JobConf();
+		job.set(OSMSerDe.ELEMENT_TYPE, "way");
+		tbl.setProperty(OSMSerDe.ELEMENT_TYPE, "way");
+		OSMSerDe serde = new OSMSerDe();
+		serde.initialize(job, tbl);
+		
+		//Only ways are read, so there is no null row
+		File xml = new File("res/xml/sample.osm");
+		OSMXmlRecordReader reader = new OSMXmlRecordReader(job, new FileSplit(new Path(xml.getPath()), 0, xml.length(), null));
+		LongWritable key = reader.createKey();
+		Text value = reader.createValue();
+		List<Object> rows = new ArrayList<Object>();
+		while(reader.next(key, value)) {
+			rows.add(ObjectInspectorUtils.copyToStandardJavaObject(serde.deserialize(value), serde.getObjectInspector()));
+		}
+		reader.close();
+		
+		assertEquals(1, rows.size());
+		assertEquals("W26659127", ((List<?>) rows.get(0)).get(0));
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testDeserializeNodesVectorizedInputFormatRowMode() throws SerDeException, IOException {
+		JobConf job = new JobConf();
+		job.set(OSMSerDe.ELEMENT_TYPE, "node");
+		tbl.setProperty(OSMSerDe.ELEMENT_TYPE, "node");
+		OSMSerDe serde = new OSMSerDe();
+		serde.initialize(job, tbl);
+		
+		//Without vectorized plan, there is no batch context and node rows are read as text
+		File xml = new File("res/xml/sample.osm");
+		VectorizedOSMNodeInputFormat format = new VectorizedOSMNodeInputFormat();
+		format.configure(job);
+		RecordReader<Object, Object> reader = (RecordReader<Object, Object>) (RecordReader<?, ?>) format.getRecordReader(new FileSplit(new Path(xml.getPath()), 0, xml.length(), null), job, Reporter.NULL);
+		Object key = reader.createKey();
+		Object value = reader.createValue();
+		assertTrue(value instanceof Text);
+		
+		List<Object> rows = new ArrayList<Object>();
+		while(reader.next(key, value)) {
+			rows.add(ObjectInspectorUtils.copyToStandardJavaObject(serde.deserialize((Text) value), serde.getObjectInspector()));
+		}
+		reader.close();
+		
+		assertEquals(4, rows.size());
+		assertEquals("N298884269", ((List<?>) rows.get(0)).get(0));
+	}
+	
+	@Test
+	public void testDeserializeNodesPBF() throws IOException {
+		JobConf job = new JobConf();
+		job.set(OSMSerDe.ELEMENT_TYPE, "node");
+		File pbf = new File("res/xml/sample.osm.pbf");
+		OSMPBFRecordReader reader = new OSMPBFRecordReader(job, new FileSplit(new Path(pbf.getPath()), 0, pbf.length(), null));
+		LongWritable key = reader.createKey();
+		ElementWritable value = reader.createValue();
+		
+		int count = 0;
+		while(reader.next(key, value)) {
+			assertEquals(Element.NODE, value.get().getType());
+			count++;
+		}
+		reader.close();
+		
+		assertEquals(4, count);
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testRecordReadersStatistics() throws IOException {
+		JobConf job = new JobConf();
+		job.set(OSMSerDe.ELEMENT_TYPE, "node");
+		File xml = new File("res/xml/sample.osm");
+		File pbf = new File("res/xml/sample.osm.pbf");
+		Map<String,Long> counters = new HashMap<String,Long>();
+		Reporter reporter = TestHiveImporter.createReporter(counters);
+		
+		OSMXmlInputFormat xmlFormat = new OSMXmlInputFormat();
+		xmlFormat.configure(job);
+		OSMPBFInputFormat pbfFormat = new OSMPBFInputFormat();
+		pbfFormat.configure(job);
+		RecordReader<?, ?>[] readers = {
+			xmlFormat.getRecordReader(new FileSplit(new Path(xml.getPath()), 0, xml.length(), null), job, reporter),
+			pbfFormat.getRecordReader(new FileSplit(new Path(pbf.getPath()), 0, pbf.length(), null), job, reporter)
+		};
+		
+		//Statistics are published when readers are closed
+		for(RecordReader<?, ?> r : readers) {
+			RecordReader<Object, Object> reader = (RecordReader<Object, Object>) r;
+			Object key = reader.createKey();
+			Object value = reader.createValue();
+			while(reader.next(key, value)) {;}
+			assertNull(counters.get(ImportStatistics.COUNTER_GROUP+".RECORDS_READ"));
+			reader.close();
+			assertEquals(Long.valueOf(4), counters.remove(ImportStatistics.COUNTER_GROUP+".RECORDS_READ"));
+		}
+		
+		//All PBF elements are decoded
+		assertEquals(Long.valueOf(6), counters.get(ImportStatistics.COUNTER_GROUP+".ELEMENTS_PARSED"));
+	}
+	
+	@Test(expected=IOException.class)
+	public void testGetElementNamesInvalid() throws IOException {
+		JobConf job = new JobConf();
+		job.set(OSMSerDe.ELEMENT_TYPE, "changeset");
+		OSMSerDe.getElementNames(job);
+	}
+	
+	@Test(expected=SerDeException.class)
+	public void testInitializeInvalidType() throws SerDeException {
+		tbl.setProperty(OSMSerDe.ELEMENT_TYPE, "changeset");
+		new OSMSerDe().initialize(new JobConf(), tbl);
+	}
+}
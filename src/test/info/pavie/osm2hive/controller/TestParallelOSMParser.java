@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.xml.MappedMarkupReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link ParallelOSMParser}.
+ * @author Adrien PAVIE
+ */
+public class TestParallelOSMParser {
+//OTHER METHODS
+	/**
+	 * Reads element IDs and tags count of the given file, with a sequential parser.
+	 * @param f The file to read
+	 * @return The element descriptions, in file order
+	 * @throws Exception If reading fails
+	 */
+	private List<String> parseSequential(File f) throws Exception {
+		List<String> result = new ArrayList<String>();
+		OSMParser parser = new OSMParser(true);
+		MappedMarkupReader reader = new MappedMarkupReader(f);
+		
+		while(reader.next()) {
+			parser.parse(reader.getMarkup());
+			if(parser.isElementReady()) {
+				result.add(describe(parser.getCurrentElement()));
+			}
+		}
+		reader.close();
+		
+		return result;
+	}
+	
+	/**
+	 * Reads element IDs and tags count of the given file, with a parallel parser.
+	 * @param f The file to read
+	 * @param threads The amount of threads
+	 * @param chunkSize The size of chunks
+	 * @return The element descriptions, in file order
+	 * @throws Exception If reading fails
+	 */
+	private List<String> parseParallel(File f, int threads, long chunkSize) throws Exception {
+		ParallelOSMParser<List<String>> parser = new ParallelOSMParser<List<String>>(f, threads, chunkSize) {
+			@Override
+			protected List<String> startChunk(int chunk) {
+				return new ArrayList<String>();
+			}
+			
+			@Override
+			protected void handle(List<String> result, Element element) {
+				result.add(describe(element));
+			}
+			
+			@Override
+			protected void endChunk(List<String> result) {
+			}
+		};
+		
+		List<List<String>> chunks = parser.parse();
+		assertEquals(Math.max(1, (f.length() + chunkSize - 1) / chunkSize), chunks.size());
+		
+		List<String> result = new ArrayList<String>();
+		for(List<String> chunk : chunks) {
+			result.addAll(chunk);
+		}
+		return result;
+	}
+	
+	/**
+	 * @param e The element
+	 * @return The element ID and tags count
+	 */
+	private static String describe(Element e) {
+		return e.getId()+" "+e.getTags().size();
+	}
+
+//TESTS
+// parse()
+	@Test
+	public void testParseSample() throws Exception {
+		File f = new File("res/xml/sample.osm");
+		List<String> expected = parseSequential(f);
+		assertEquals(6, expected.size());
+		
+		//Chunk boundaries at every position
+		for(int chunkSize=1; chunkSize <= f.length(); chunkSize += 7) {
+			assertEquals(expected, parseParallel(f, 3, chunkSize));
+		}
+	}
+	
+	@Test
+	public void testParseBleruais() throws Exception {
+		File f = new File("res/xml/bleruais.osm");
+		List<String> expected = parseSequential(f);
+		assertTrue(expected.size() > 10000);
+		
+		assertEquals(expected, parseParallel(f, 4, 64 * 1024));
+		assertEquals(expected, parseParallel(f, 1, ParallelOSMParser.DEFAULT_CHUNK));
+	}
+	
+	@Test(expected=IOException.class)
+	public void testParseTruncated() throws Exception {
+		File f = File.createTempFile("osm2hive", ".osm");
+		f.deleteOnExit();
+		Files.write(f.toPath(), "<osm>\n<node id=\"1\" lat=\"1\" lon=\"2\"/>\n<node id=\"2\"".getBytes(StandardCharsets.UTF_8));
+		
+		parseParallel(f, 2, 16);
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Test;
+
+/**
+ * Test class for {@link VectorizedOSMNodeRecordReader}.
+ * @author Adrien PAVIE
+ */
+public class TestVectorizedOSMNodeRecordReader {
+//OTHER METHODS
+	/**
+	 * Creates a batch with the node columns.
+	 * @param id The ID column
+	 * @param size The batch size
+	 * @return The batch
+	 */
+	private VectorizedRowBatch createBatch(ColumnVector id, int size) {
+		VectorizedRowBatch batch = new VectorizedRowBatch(9, size);
+		batch.cols[0] = id;
+		batch.cols[1] = new LongColumnVector(size);
+		batch.cols[2] = new BytesColumnVector(size);
+		batch.cols[3] = new LongColumnVector(size);
+		batch.cols[4] = new LongColumnVector(size);
+		batch.cols[5] = new LongColumnVector(size);
+		batch.cols[6] = new MapColumnVector(size, new BytesColumnVector(size), new BytesColumnVector(size));
+		batch.cols[7] = new DoubleColumnVector(size);
+		batch.cols[8] = new DoubleColumnVector(size);
+		return batch;
+	}
+	
+	/**
+	 * Creates a reader of the whole sample file.
+	 * @param job The job configuration
+	 * @return The reader
+	 * @throws Exception If the file can't be opened
+	 */
+	private VectorizedOSMNodeRecordReader createReader(JobConf job) throws Exception {
+		File f = new File("res/xml/sample.osm");
+		return new VectorizedOSMNodeRecordReader(job, new FileSplit(new Path(f.getPath()), 0, f.length(), null), null);
+	}
+
+//TESTS
+// next()
+	@Test
+	public void testNext() throws Exception {
+		VectorizedOSMNodeRecordReader reader = createReader(new JobConf());
+		VectorizedRowBatch batch = createBatch(new BytesColumnVector(1024), 1024);
+		
+		assertTrue(reader.next(NullWritable.get(), batch));
+		assertEquals(4, batch.size);
+		assertFalse(batch.selectedInUse);
+		assertEquals("N298884269", ((BytesColumnVector) batch.cols[0]).toString(0));
+		assertEquals(46882, ((LongColumnVector) batch.cols[1]).vector[0]);
+		assertEquals("2008-09-21T21:37:45Z", ((BytesColumnVector) batch.cols[2]).toString(0));
+		assertEquals(1, ((LongColumnVector) batch.cols[3]).vector[0]);
+		assertEquals(1, ((LongColumnVector) batch.cols[4]).vector[0]);
+		assertEquals(676636, ((LongColumnVector) batch.cols[5]).vector[0]);
+		assertEquals(54.0901746, ((DoubleColumnVector) batch.cols[7]).vector[0], 0);
+		assertEquals(12.2539381, ((DoubleColumnVector) batch.cols[8]).vector[2], 0);
+		
+		MapColumnVector tags = (MapColumnVector) batch.cols[6];
+		assertEquals(0, tags.lengths[0]);
+		assertEquals(2, tags.lengths[2]);
+		assertEquals("name", ((BytesColumnVector) tags.keys).toString((int) tags.offsets[2]));
+		assertEquals("Neu Broderstorf", ((BytesColumnVector) tags.values).toString((int) tags.offsets[2]));
+		
+		//Ways and relations are skipped
+		assertFalse(reader.next(NullWritable.get(), batch));
+		assertEquals(0, batch.size);
+		reader.close();
+	}
+	
+	@Test
+	public void testNextStatistics() throws Exception {
+		VectorizedOSMNodeRecordReader reader = createReader(new JobConf());
+		Map<String,Long> counters = new HashMap<String,Long>();
+		reader.setReporter(TestHiveImporter.createReporter(counters));
+		VectorizedRowBatch batch = createBatch(new BytesColumnVector(1024), 1024);
+		while(reader.next(NullWritable.get(), batch)) {;}
+		
+		//Only node elements are read and parsed
+		ImportStatistics stats = reader.getStatistics();
+		assertEquals(4, stats.get(ImportStatistics.RECORDS_READ));
+		assertEquals(5, stats.get(ImportStatistics.NODE_MARKUPS));
+		assertEquals(2, stats.get(ImportStatistics.TAG_MARKUPS));
+		assertEquals(0, stats.get(ImportStatistics.WAY_MARKUPS));
+		assertEquals(4, stats.get(ImportStatistics.ELEMENTS_PARSED));
+		assertEquals(4, stats.get(ImportStatistics.ELEMENTS_EMITTED));
+		
+		//Statistics are published when closing
+		assertTrue(counters.isEmpty());
+		reader.close();
+		assertEquals(Long.valueOf(4), counters.get(ImportStatistics.COUNTER_GROUP+".ELEMENTS_EMITTED"));
+		assertEquals(Long.valueOf(5), counters.get(ImportStatistics.COUNTER_GROUP+".NODE_MARKUPS"));
+	}
+	
+	@Test
+	public void testNextSmallBatches() throws Exception {
+		VectorizedOSMNodeRecordReader reader = createReader(new JobConf());
+		VectorizedRowBatch batch = createBatch(new LongColumnVector(3), 3);
+		batch.cols[2] = new LongColumnVector(3);
+		batch.cols[7] = new LongColumnVector(3);
+		batch.cols[8] = new LongColumnVector(3);
+		
+		assertTrue(reader.next(NullWritable.get(), batch));
+		assertEquals(3, batch.size);
+		assertEquals(298884269, ((LongColumnVector) batch.cols[0]).vector[0]);
+		assertEquals(1222033065000L, ((LongColumnVector) batch.cols[2]).vector[0]);
+		assertEquals(540901746, ((LongColumnVector) batch.cols[7]).vector[0]);
+		assertEquals(122539381, ((LongColumnVector) batch.cols[8]).vector[2]);
+		
+		assertTrue(reader.next(NullWritable.get(), batch));
+		assertEquals(1, batch.size);
+		assertEquals(0, ((MapColumnVector) batch.cols[6]).childCount);
+		
+		assertFalse(reader.next(NullWritable.get(), batch));
+		reader.close();
+	}
+	
+	@Test
+	public void testNextReadColumns() throws Exception {
+		JobConf job = new JobConf();
+		job.set(ColumnProjectionUtils.READ_ALL_COLUMNS, "false");
+		job.set(ColumnProjectionUtils.READ_COLUMN_IDS_CONF_STR, "0,7");
+		VectorizedOSMNodeRecordReader reader = createReader(job);
+		VectorizedRowBatch batch = createBatch(new LongColumnVector(1024), 1024);
+		
+		assertTrue(reader.next(NullWritable.get(), batch));
+		assertEquals(4, batch.size);
+		assertEquals(298884269, ((LongColumnVector) batch.cols[0]).vector[0]);
+		assertEquals(54.0901746, ((DoubleColumnVector) batch.cols[7]).vector[0], 0);
+		assertEquals(0, ((LongColumnVector) batch.cols[1]).vector[0]);
+		assertEquals(0, ((DoubleColumnVector) batch.cols[8]).vector[0], 0);
+		reader.close();
+	}
+	
+	@Test
+	public void testNextNativeTimestamps() throws Exception {
+		VectorizedOSMNodeRecordReader reader = createReader(new JobConf());
+		VectorizedRowBatch batch = createBatch(new BytesColumnVector(1024), 1024);
+		batch.cols[2] = new TimestampColumnVector(1024);
+		
+		//Same wall-clock time as Hive timestamps of the row importers
+		assertTrue(reader.next(NullWritable.get(), batch));
+		TimestampColumnVector timestamps = (TimestampColumnVector) batch.cols[2];
+		Timestamp timestamp = new Timestamp(timestamps.time[0]);
+		timestamp.setNanos(timestamps.nanos[0]);
+		assertEquals(Timestamp.valueOf("2008-09-21 21:37:45"), timestamp);
+		assertEquals(0, timestamps.nanos[0]);
+		assertTrue(timestamps.noNulls);
+		reader.close();
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link NodeLocationIndex} implementations and {@link WayGeometry}.
+ * @author Adrien PAVIE
+ */
+public class TestNodeLocationIndex {
+//OTHER METHODS
+	/**
+	 * Fills an index, and checks read locations.
+	 * @param index The index to test
+	 * @throws IOException If the index fails
+	 */
+	private void checkIndex(NodeLocationIndex index) throws IOException {
+		try {
+			index.put(298884269L, 540901746, 122482632);
+			index.put(1L, -338688197, -1512092955);
+			index.put(0L, 0, 0);
+			for(int id=1000; id < 5000; id++) {
+				index.put(id * 7919L, id * 100000, -id * 100000);
+			}
+			index.put(1L, -338688197, 1512092955);
+			index.put(-1L, Node.toFixed(48.1), Node.toFixed(-1.6));
+			index.put(-25L, Node.toFixed(-48.1), Node.toFixed(1.6));
+			
+			assertEquals(4005, index.size());
+			assertEquals(54.0901746, NodeLocationIndex.getLat(index.get(298884269L)), 0);
+			assertEquals(12.2482632, NodeLocationIndex.getLon(index.get(298884269L)), 0);
+			assertEquals(-33.8688197, NodeLocationIndex.getLat(index.get(1L)), 0);
+			assertEquals(151.2092955, NodeLocationIndex.getLon(index.get(1L)), 0);
+			assertEquals(0, NodeLocationIndex.getLat(index.get(0L)), 0);
+			assertEquals(-49.99, NodeLocationIndex.getLon(index.get(4999 * 7919)), 0);
+			assertEquals(48.1, NodeLocationIndex.getLat(index.get(-1L)), 0);
+			assertEquals(1.6, NodeLocationIndex.getLon(index.get(-25L)), 0);
+			assertEquals(NodeLocationIndex.NO_LOCATION, index.get(-2L));
+			assertEquals(NodeLocationIndex.NO_LOCATION, index.get(2L));
+			assertEquals(NodeLocationIndex.NO_LOCATION, index.get(1L << 40));
+		} finally {
+			index.close();
+		}
+	}
+
+//TESTS
+// get()
+	@Test
+	public void testSparse() throws IOException {
+		checkIndex(new SparseNodeLocationIndex());
+	}
+	
+	@Test
+	public void testDense() throws IOException {
+		checkIndex(new DenseNodeLocationIndex());
+	}
+
+// pack()
+	@Test
+	public void testPack() {
+		long location = NodeLocationIndex.pack(-900000000, -1);
+		assertEquals(-90, NodeLocationIndex.getLat(location), 0);
+		assertEquals(-1e-7, NodeLocationIndex.getLon(location), 0);
+		
+		location = NodeLocationIndex.pack(Node.toFixed(48.1), Node.toFixed(-1.6));
+		assertEquals(48.1, NodeLocationIndex.getLat(location), 0);
+		assertEquals(-1.6, NodeLocationIndex.getLon(location), 0);
+	}
+
+// toWKB()
+	@Test
+	public void testToWKB() throws IOException {
+		NodeLocationIndex index = new SparseNodeLocationIndex();
+		index.put(1, Node.toFixed(48.1), Node.toFixed(-1.6));
+		index.put(2, Node.toFixed(48.2), Node.toFixed(-1.7));
+		
+		Way w = new Way(10);
+		w.addNode(1);
+		w.addNode(2);
+		w.addNode(1);
+		
+		ByteBuffer wkb = ByteBuffer.wrap(WayGeometry.toWKB(w, index)).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(9 + 3 * 16, wkb.remaining());
+		assertEquals(1, wkb.get());
+		assertEquals(2, wkb.getInt());
+		assertEquals(3, wkb.getInt());
+		assertEquals(-1.6, wkb.getDouble(), 0);
+		assertEquals(48.1, wkb.getDouble(), 0);
+		assertEquals(-1.7, wkb.getDouble(), 0);
+		assertEquals(48.2, wkb.getDouble(), 0);
+		
+		w.addNode(3);
+		assertNull(WayGeometry.toWKB(w, index));
+	}
+}
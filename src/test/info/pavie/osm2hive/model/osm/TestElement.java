@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link Element}.
+ * @author Adrien PAVIE
+ */
+public class TestElement {
+//OTHER METHODS
+	/**
+	 * @param type The type code
+	 * @param id The numeric ID
+	 * @return The ID written by {@link Element#writeId(char, long, byte[])}, as a string
+	 */
+	private String writeId(char type, long id) {
+		byte[] buffer = new byte[Element.MAX_ID_LENGTH];
+		int pos = Element.writeId(type, id, buffer);
+		return new String(buffer, pos, buffer.length - pos, StandardCharsets.US_ASCII);
+	}
+
+//TESTS
+// writeId()
+	@Test
+	public void testWriteId() {
+		long[] ids = { 0, 7, 10, 123456789, -1, -25 };
+		
+		for(long id : ids) {
+			assertEquals(new Node(id, 0, 0).getId(), writeId(Element.NODE, id));
+		}
+		assertEquals("W42", writeId(Element.WAY, 42));
+		assertEquals("R-42", writeId(Element.RELATION, -42));
+	}
+	
+	@Test
+	public void testWriteIdLimits() {
+		assertEquals("N9223372036854775807", writeId(Element.NODE, Long.MAX_VALUE));
+		assertEquals("N-9223372036854775808", writeId(Element.NODE, Long.MIN_VALUE));
+	}
+	
+	@Test
+	public void testWriteIdLargerBuffer() {
+		byte[] buffer = new byte[32];
+		int pos = Element.writeId(Element.WAY, 1234, buffer);
+		assertEquals(27, pos);
+		assertEquals("W1234", new String(buffer, pos, buffer.length - pos, StandardCharsets.US_ASCII));
+	}
+}
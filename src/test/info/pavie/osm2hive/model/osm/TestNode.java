@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link Node}.
+ * @author Adrien PAVIE
+ */
+public class TestNode {
+//TESTS
+// toFixed()
+	@Test
+	public void testToFixed() {
+		assertEquals(481172258, Node.toFixed(48.1172258));
+		assertEquals(-21199346, Node.toFixed(-2.1199346));
+		assertEquals(1800000000, Node.toFixed(180.0));
+		assertEquals(Integer.MIN_VALUE, Node.toFixed(-214.7483648));
+	}
+	
+	@Test
+	public void testToFixedOutOfRange() {
+		double[] coordinates = { 214.7483648, -214.7483649, 300, Double.POSITIVE_INFINITY, Double.NaN };
+		for(double coordinate : coordinates) {
+			try {
+				Node.toFixed(coordinate);
+				fail("Out of range coordinate accepted: "+coordinate);
+			} catch(NumberFormatException e) {}
+		}
+	}
+
+// setLon()
+	@Test
+	public void testSetLonOutOfRange() {
+		Node node = new Node(1, 48.1, -1.6);
+		try {
+			node.setLon(300);
+			fail("Out of range longitude accepted");
+		} catch(NumberFormatException e) {}
+		assertEquals(-16000000, node.getFixedLon());
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link Tags}.
+ * @author Adrien PAVIE
+ */
+public class TestTags {
+//ATTRIBUTES
+	private Tags t1;
+
+//SETUP
+	@Before
+	public void setUp() throws Exception {
+		t1 = new Tags();
+		t1.put("name", "Pastower Straße");
+		t1.put("highway", "unclassified");
+		t1.put("surface", "asphalt");
+		t1.put("access", "yes");
+		t1.put("maxspeed", "50");
+	}
+
+//TESTS
+// put()
+	@Test
+	public void testPutSorted() {
+		assertEquals(5, t1.size());
+		assertEquals("access", t1.getKey(0));
+		assertEquals("highway", t1.getKey(1));
+		assertEquals("maxspeed", t1.getKey(2));
+		assertEquals("name", t1.getKey(3));
+		assertEquals("surface", t1.getKey(4));
+		assertEquals("50", t1.getValue(2));
+	}
+	
+	@Test
+	public void testPutExisting() {
+		assertEquals("50", t1.put("maxspeed", "30"));
+		assertEquals(5, t1.size());
+		assertEquals("30", t1.get("maxspeed"));
+	}
+	
+	@Test(expected=NullPointerException.class)
+	public void testPutNullKey() {
+		t1.put(null, "value");
+	}
+
+// get()
+	@Test
+	public void testGet() {
+		assertEquals("unclassified", t1.get("highway"));
+		assertNull(t1.get("building"));
+		assertNull(t1.get(null));
+		assertTrue(t1.containsKey("access"));
+		assertFalse(t1.containsKey("zzz"));
+	}
+
+// remove()
+	@Test
+	public void testRemove() {
+		assertEquals("yes", t1.remove("access"));
+		assertNull(t1.remove("access"));
+		assertEquals(4, t1.size());
+		assertEquals("highway", t1.getKey(0));
+		
+		Iterator<Map.Entry<String,String>> it = t1.entrySet().iterator();
+		it.next();
+		it.remove();
+		assertEquals(3, t1.size());
+		assertEquals("maxspeed", t1.getKey(0));
+	}
+	
+	@Test
+	public void testClear() {
+		t1.clear();
+		assertEquals(0, t1.size());
+		assertNull(t1.get("name"));
+		
+		t1.put("building", "yes");
+		assertEquals(1, t1.size());
+		assertEquals("yes", t1.get("building"));
+	}
+
+// equals()
+	@Test
+	public void testEqualsHashMap() {
+		Map<String,String> expected = new HashMap<String,String>();
+		expected.put("name", "Pastower Straße");
+		expected.put("highway", "unclassified");
+		expected.put("surface", "asphalt");
+		expected.put("access", "yes");
+		expected.put("maxspeed", "50");
+		
+		assertEquals(expected, t1);
+		assertEquals(t1, expected);
+		assertEquals(expected.hashCode(), t1.hashCode());
+	}
+}
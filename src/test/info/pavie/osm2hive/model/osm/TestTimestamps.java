@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link Timestamps}.
+ * @author Adrien PAVIE
+ */
+public class TestTimestamps {
+//OTHER METHODS
+	/**
+	 * @return A date format for OSM timestamps, in UTC
+	 */
+	private SimpleDateFormat createDateFormat() {
+		SimpleDateFormat result = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+		result.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return result;
+	}
+
+//TESTS
+// parse()
+	@Test
+	public void testParse() {
+		assertEquals(0L, Timestamps.parse("1970-01-01T00:00:00Z"));
+		assertEquals(1222033065000L, Timestamps.parse("2008-09-21T21:37:45Z"));
+		assertEquals(951782400000L, Timestamps.parse("2000-02-29T00:00:00Z"));
+		assertEquals(-1000L, Timestamps.parse("1969-12-31T23:59:59Z"));
+	}
+	
+	@Test
+	public void testParseDateFormat() throws ParseException {
+		SimpleDateFormat dateFormat = createDateFormat();
+		String[] timestamps = { "2004-08-09T12:00:00Z", "2012-07-20T09:43:19Z", "2100-03-01T23:59:59Z", "1900-02-28T01:02:03Z" };
+		
+		for(String timestamp : timestamps) {
+			assertEquals(timestamp, dateFormat.parse(timestamp).getTime(), Timestamps.parse(timestamp));
+		}
+	}
+	
+	@Test
+	public void testParseInvalid() {
+		assertEquals(Timestamps.UNKNOWN, Timestamps.parse(null));
+		assertEquals(Timestamps.UNKNOWN, Timestamps.parse(""));
+		assertEquals(Timestamps.UNKNOWN, Timestamps.parse("2008-09-21T21:37:45"));
+		assertEquals(Timestamps.UNKNOWN, Timestamps.parse("2008-09-21 21:37:45Z"));
+		assertEquals(Timestamps.UNKNOWN, Timestamps.parse("2008-09-21T21:37:45+02:00"));
+		assertEquals(Timestamps.UNKNOWN, Timestamps.parse("2008-O9-21T21:37:45Z"));
+		assertEquals(Timestamps.UNKNOWN, Timestamps.parse("2008-13-21T21:37:45Z"));
+		assertEquals(Timestamps.UNKNOWN, Timestamps.parse("2009-02-29T21:37:45Z"));
+		assertEquals(Timestamps.UNKNOWN, Timestamps.parse("2008-09-21T24:00:00Z"));
+	}
+
+// format()
+	@Test
+	public void testFormat() {
+		assertEquals("1970-01-01T00:00:00Z", Timestamps.format(0));
+		assertEquals("2008-09-21T21:37:45Z", Timestamps.format(1222033065999L));
+		assertEquals("1969-12-31T23:59:59Z", Timestamps.format(-1));
+		assertEquals("2000-02-29T00:00:00Z", Timestamps.format(951782400000L));
+	}
+	
+	@Test
+	public void testFormatDateFormat() {
+		SimpleDateFormat dateFormat = createDateFormat();
+		
+		//One time every 37 hours and 17 seconds, from 1900 to 2100
+		for(long time = -2208988800000L; time < 4102444800000L; time += 133217000L) {
+			String timestamp = Timestamps.format(time);
+			assertEquals(dateFormat.format(time), timestamp);
+			assertEquals(time, Timestamps.parse(timestamp));
+		}
+	}
+	
+// toLocal()
+	@Test
+	public void testToLocal() {
+		long time = Timestamps.parse("2008-09-21T21:37:45Z");
+		assertEquals(time, Timestamps.toLocal(time, TimeZone.getTimeZone("UTC")));
+		assertEquals(time - 2 * 3600000L, Timestamps.toLocal(time, TimeZone.getTimeZone("Europe/Paris")));
+		assertEquals(time + 4 * 3600000L, Timestamps.toLocal(time, TimeZone.getTimeZone("America/New_York")));
+	}
+}
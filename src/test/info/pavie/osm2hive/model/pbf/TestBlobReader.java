@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.pbf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import info.pavie.osm2hive.model.osm.Element;
+import info.pavie.osm2hive.model.osm.Node;
+import info.pavie.osm2hive.model.osm.Relation;
+import info.pavie.osm2hive.model.osm.Way;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link BlobReader} and {@link BlockDecoder}.
+ * @author Adrien PAVIE
+ */
+public class TestBlobReader {
+//ATTRIBUTES
+	private byte[] data;
+
+//SETUP
+	@Before
+	public void setUp() throws Exception {
+		data = Files.readAllBytes(Paths.get("res/xml/sample.osm.pbf"));
+	}
+
+//OTHER METHODS
+	/**
+	 * Reads all blobs of the sample file, split in several ranges
+	 * @param splitSize The size of each range
+	 * @return The read blobs
+	 * @throws IOException If reading fails
+	 */
+	private List<Blob> readBlobs(int splitSize) throws IOException {
+		List<Blob> result = new ArrayList<Blob>();
+		
+		for(int start = 0; start < data.length; start += splitSize) {
+			int end = Math.min(start + splitSize, data.length);
+			BlobReader reader = new BlobReader(new ByteArrayInputStream(data, start, data.length - start), start, end);
+			
+			Blob blob = reader.next();
+			while(blob != null) {
+				assertTrue(blob.getPosition() >= start && blob.getPosition() < end);
+				result.add(blob);
+				blob = reader.next();
+			}
+			reader.close();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Decodes all data blobs
+	 * @param blobs The blobs to decode
+	 * @return The decoded elements
+	 * @throws IOException If decoding fails
+	 */
+	private List<Element> decodeBlobs(List<Blob> blobs) throws IOException {
+		List<Element> result = new ArrayList<Element>();
+		BlockDecoder decoder = new BlockDecoder();
+		
+		for(Blob blob : blobs) {
+			if(Blob.DATA.equals(blob.getType())) {
+				result.addAll(decoder.decode(blob.getData()));
+			}
+			else {
+				BlockDecoder.checkHeader(blob.getData());
+			}
+		}
+		
+		return result;
+	}
+
+//TESTS
+// next()
+	@Test
+	public void testNextSample() throws IOException {
+		List<Blob> blobs = readBlobs(data.length);
+		
+		assertEquals(3, blobs.size());
+		assertEquals(Blob.HEADER, blobs.get(0).getType());
+		assertEquals(0, blobs.get(0).getPosition());
+		assertEquals(Blob.DATA, blobs.get(1).getType());
+		assertEquals(Blob.DATA, blobs.get(2).getType());
+	}
+	
+	@Test
+	public void testNextSplits() throws IOException {
+		List<Blob> expected = readBlobs(data.length);
+		
+		for(int splitSize = 1; splitSize < data.length; splitSize += 7) {
+			List<Blob> blobs = readBlobs(splitSize);
+			assertEquals(expected.size(), blobs.size());
+			for(int i=0; i < blobs.size(); i++) {
+				assertEquals(expected.get(i).getPosition(), blobs.get(i).getPosition());
+			}
+		}
+	}
+	
+	@Test(expected=IOException.class)
+	public void testNextTruncated() throws IOException {
+		BlobReader reader = new BlobReader(new ByteArrayInputStream(data, 0, data.length - 10), 0, data.length);
+		while(reader.next() != null) {;}
+	}
+
+// decode()
+	@Test
+	public void testDecodeSample() throws IOException {
+		List<Element> elements = decodeBlobs(readBlobs(data.length));
+		assertEquals(6, elements.size());
+		
+		//Dense node
+		Node n1 = (Node) elements.get(0);
+		assertEquals("N298884269", n1.getId());
+		assertEquals(54.0901746, n1.getLat(), 0.0);
+		assertEquals(12.2482632, n1.getLon(), 0.0);
+		assertEquals("SvenHRO", n1.getUser());
+		assertEquals(46882, n1.getUid());
+		assertEquals(676636, n1.getChangeset());
+		assertEquals("2008-09-21T21:37:45Z", n1.getTimestamp());
+		assertTrue(n1.isVisible());
+		assertEquals(0, n1.getTags().size());
+		
+		//Plain node with tags
+		Node n3 = (Node) elements.get(3);
+		assertEquals("N1831881213", n3.getId());
+		assertEquals(54.0900666, n3.getLat(), 0.0);
+		assertEquals("Neu Broderstorf", n3.getTags().get("name"));
+		assertEquals("city_limit", n3.getTags().get("traffic_sign"));
+		
+		//Way
+		Way w = (Way) elements.get(4);
+		assertEquals("W26659127", w.getId());
+		assertEquals(5, w.getVersion());
+		assertEquals(Arrays.asList("N298884269", "N298884272", "N261728686"), w.getNodes());
+		assertEquals("Pastower Straße", w.getTags().get("name"));
+		
+		//Relation
+		Relation r = (Relation) elements.get(5);
+		assertEquals("R56688", r.getId());
+		assertEquals(Arrays.asList("N298884269", "N261728686", "W26659127", "N298884272"), r.getMembers());
+		assertEquals("stop", r.getMemberRole("N298884269"));
+		assertEquals("", r.getMemberRole("N261728686"));
+		assertEquals("Küstenbus Linie 123", r.getTags().get("name"));
+		assertEquals(6, r.getTags().size());
+	}
+	
+	@Test
+	public void testDecodeConcurrent() throws Exception {
+		final List<Blob> blobs = readBlobs(data.length);
+		List<String> expected = new ArrayList<String>();
+		for(Element e : decodeBlobs(blobs)) {
+			expected.add(e.toString());
+		}
+		
+		//Decode blobs in parallel, one decoder per task
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<List<Element>>> results = new ArrayList<Future<List<Element>>>();
+		for(int run = 0; run < 32; run++) {
+			results.add(executor.submit(new Callable<List<Element>>() {
+				@Override
+				public List<Element> call() throws Exception {
+					return decodeBlobs(blobs);
+				}
+			}));
+		}
+		
+		try {
+			for(Future<List<Element>> result : results) {
+				List<String> read = new ArrayList<String>();
+				for(Element e : result.get()) {
+					read.add(e.toString());
+				}
+				assertEquals(expected, read);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link ElementReader}.
+ * @author Adrien PAVIE
+ */
+public class TestElementReader {
+//CONSTANTS
+	private static final String[] ELEMENTS = { "node", "way", "relation" };
+
+//OTHER METHODS
+	/**
+	 * Reads all elements of the given data, split in several ranges
+	 * @param data The data to read
+	 * @param splitSize The size of each range
+	 * @return The read elements
+	 * @throws IOException If reading fails
+	 */
+	private List<String> readElements(byte[] data, int splitSize) throws IOException {
+		List<String> result = new ArrayList<String>();
+		
+		for(int start = 0; start < data.length; start += splitSize) {
+			int end = Math.min(start + splitSize, data.length);
+			ElementReader reader = new ElementReader(new ByteArrayInputStream(data, start, data.length - start), start, end, ELEMENTS);
+			
+			while(reader.next()) {
+				assertTrue(reader.getElementStart() >= start && reader.getElementStart() < end);
+				result.add(new String(reader.getElement(), 0, reader.getElementLength(), StandardCharsets.UTF_8));
+			}
+			reader.close();
+		}
+		
+		return result;
+	}
+
+//TESTS
+// next()
+	@Test
+	public void testNextSample() throws IOException {
+		byte[] data = Files.readAllBytes(Paths.get("res/xml/sample.osm"));
+		List<String> elements = readElements(data, data.length);
+		
+		assertEquals(6, elements.size());
+		assertEquals("<node id=\"298884269\" lat=\"54.0901746\" lon=\"12.2482632\" user=\"SvenHRO\" uid=\"46882\" visible=\"true\" version=\"1\" changeset=\"676636\" timestamp=\"2008-09-21T21:37:45Z\"/>", elements.get(0));
+		assertTrue(elements.get(2).startsWith("<node id=\"1831881213\""));
+		assertTrue(elements.get(2).endsWith("<tag k=\"traffic_sign\" v=\"city_limit\"/>\n </node>"));
+		assertTrue(elements.get(4).startsWith("<way id=\"26659127\""));
+		assertTrue(elements.get(4).endsWith("</way>"));
+		assertTrue(elements.get(5).startsWith("<relation id=\"56688\""));
+		assertTrue(elements.get(5).endsWith("</relation>"));
+	}
+	
+	@Test
+	public void testNextSplits() throws IOException {
+		for(String file : new String[] { "res/xml/sample.osm", "res/xml/bleruais.osm" }) {
+			byte[] data = Files.readAllBytes(Paths.get(file));
+			List<String> expected = readElements(data, data.length);
+			
+			for(int splitSize : new int[] { 1, 7, 64, 333, 4096 }) {
+				assertEquals(expected, readElements(data, splitSize));
+			}
+		}
+	}
+	
+	@Test
+	public void testNextOtherMarkups() throws IOException {
+		byte[] data = "<osm><nodes/><node id='1' v='a>b'></node ><wayside/><way id='2'><nd ref='1'/></way></osm>".getBytes(StandardCharsets.UTF_8);
+		ElementReader reader = new ElementReader(new ByteArrayInputStream(data), 0, data.length, ELEMENTS);
+		
+		assertTrue(reader.next());
+		assertEquals("<node id='1' v='a>b'></node >", new String(reader.getElement(), 0, reader.getElementLength(), StandardCharsets.UTF_8));
+		assertEquals(13, reader.getElementStart());
+		assertTrue(reader.next());
+		assertEquals("<way id='2'><nd ref='1'/></way>", new String(reader.getElement(), 0, reader.getElementLength(), StandardCharsets.UTF_8));
+		assertFalse(reader.next());
+	}
+	
+	@Test(expected=IOException.class)
+	public void testNextTruncated() throws IOException {
+		byte[] data = "<osm><way id='2'><nd ref='1'/>".getBytes(StandardCharsets.UTF_8);
+		ElementReader reader = new ElementReader(new ByteArrayInputStream(data), 0, data.length, ELEMENTS);
+		reader.next();
+	}
+}
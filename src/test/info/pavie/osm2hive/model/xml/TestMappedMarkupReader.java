@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package info.pavie.osm2hive.model.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link MappedMarkupReader}.
+ * @author Adrien PAVIE
+ */
+public class TestMappedMarkupReader {
+//OTHER METHODS
+	/**
+	 * Reads all markups of the given file.
+	 * @param f The file to read
+	 * @param windowSize The size of mapped windows
+	 * @return The read markups
+	 * @throws IOException If reading fails
+	 */
+	private List<String> readMarkups(File f, int windowSize) throws IOException {
+		List<String> result = new ArrayList<String>();
+		MappedMarkupReader reader = new MappedMarkupReader(f, windowSize);
+		
+		while(reader.next()) {
+			result.add(reader.getMarkup());
+		}
+		assertEquals(reader.getSize(), reader.getPosition());
+		reader.close();
+		
+		return result;
+	}
+
+//TESTS
+// next()
+	@Test
+	public void testNextSample() throws IOException {
+		List<String> markups = readMarkups(new File("res/xml/sample.osm"), MappedMarkupReader.DEFAULT_WINDOW);
+		
+		assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", markups.get(0));
+		assertTrue(markups.get(1).startsWith("<osm "));
+		assertEquals("<node id=\"298884269\" lat=\"54.0901746\" lon=\"12.2482632\" user=\"SvenHRO\" uid=\"46882\" visible=\"true\" version=\"1\" changeset=\"676636\" timestamp=\"2008-09-21T21:37:45Z\"/>", markups.get(3));
+		assertEquals("</osm>", markups.get(markups.size() - 1));
+		
+		//Same markups with small windows
+		assertEquals(markups, readMarkups(new File("res/xml/sample.osm"), 7));
+	}
+	
+	@Test
+	public void testNextCommentsQuotes() throws IOException {
+		File f = File.createTempFile("osm2hive", ".osm");
+		f.deleteOnExit();
+		Files.write(f.toPath(), "<osm>\n <!-- <node id=\"1\"/> -->\n<tag k=\"a>b\" v='\"é\"'/><!---->\n</osm>".getBytes(StandardCharsets.UTF_8));
+		
+		for(int window : new int[] { 3, 1024 }) {
+			List<String> markups = readMarkups(f, window);
+			assertEquals(3, markups.size());
+			assertEquals("<osm>", markups.get(0));
+			assertEquals("<tag k=\"a>b\" v='\"é\"'/>", markups.get(1));
+			assertEquals("</osm>", markups.get(2));
+		}
+	}
+	
+	@Test
+	public void testGetMarkupBytes() throws IOException, InvalidMarkupException {
+		File f = File.createTempFile("osm2hive", ".osm");
+		f.deleteOnExit();
+		Files.write(f.toPath(), "<osm>\n<tag k=\"name\" v=\"Pastower Straße\"/>\n</osm>".getBytes(StandardCharsets.UTF_8));
+		
+		//Markup parsed in place, from a window smaller than the markup
+		MappedMarkupReader reader = new MappedMarkupReader(f, 5);
+		Markup markup = new Markup();
+		try {
+			assertTrue(reader.next());
+			assertTrue(reader.next());
+			assertEquals(reader.getMarkup().getBytes(StandardCharsets.UTF_8).length, reader.getMarkupLength());
+			markup.parse(reader.getMarkupBytes(), 0, reader.getMarkupLength());
+			assertEquals("tag", markup.getName());
+			assertEquals("Pastower Straße", markup.getAttribute("v"));
+		} finally {
+			reader.close();
+		}
+	}
+	
+	@Test(expected=IOException.class)
+	public void testNextTruncated() throws IOException {
+		File f = File.createTempFile("osm2hive", ".osm");
+		f.deleteOnExit();
+		Files.write(f.toPath(), "<osm>\n<node id=\"1\"".getBytes(StandardCharsets.UTF_8));
+		
+		MappedMarkupReader reader = new MappedMarkupReader(f);
+		try {
+			assertTrue(reader.next());
+			assertFalse(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+// seek(), isStart()
+	@Test
+	public void testSeekIsStart() throws IOException {
+		File f = File.createTempFile("osm2hive", ".osm");
+		f.deleteOnExit();
+		Files.write(f.toPath(), "<osm>\n<node id=\"1\"/>\n<nodes/>\n<way\tid=\"2\">\n</way>\n</osm>".getBytes(StandardCharsets.UTF_8));
+		
+		MappedMarkupReader reader = new MappedMarkupReader(f, 4);
+		try {
+			//Seek in the middle of the node markup
+			reader.seek(8);
+			assertTrue(reader.next());
+			assertEquals("<nodes/>", reader.getMarkup());
+			assertFalse(reader.isStart("node"));
+			
+			assertTrue(reader.next());
+			assertEquals(30, reader.getMarkupStart());
+			assertTrue(reader.isStart("way"));
+			assertFalse(reader.isStart("wa"));
+			
+			assertTrue(reader.next());
+			assertFalse(reader.isStart("way"));
+			
+			//Seek backwards
+			reader.seek(0);
+			assertTrue(reader.next());
+			assertTrue(reader.next());
+			assertTrue(reader.isStart("node"));
+		} finally {
+			reader.close();
+		}
+	}
+}
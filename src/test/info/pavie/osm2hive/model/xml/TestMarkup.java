@@ -17,7 +17,15 @@
 package info.pavie.osm2hive.model.xml;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import info.pavie.osm2hive.model.osm.Timestamps;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -119,6 +127,47 @@ public class TestMarkup {
 		m1 = new Markup("<node key = \"value\" />");
 	}
 	
+	@Test
+	public void testMarkupEmptyAttributeOtherQuoteInValue() throws InvalidMarkupException {
+		m1 = new Markup("<tag k=\"name\" v=\"Rue de l'Église\"/>");
+		assertEquals(Markup.EMPTY, m1.getType());
+		assertEquals("Rue de l'Église", m1.getAttribute("v"));
+		assertEquals("tag", m1.getName());
+	}
+	
+	@Test(expected=InvalidMarkupException.class)
+	public void testMarkupCompleteInvalidText() throws InvalidMarkupException {
+		m1 = new Markup("<node>TEXT>/node>");
+	}
+	
+	@Test
+	public void testMarkupEmptyAttributeEntities() throws InvalidMarkupException {
+		m1 = new Markup("<tag k=\"url\" v=\"a.asp?b=1&amp;c=&quot;2&quot; &lt;&gt; d&apos;e\"/>");
+		assertEquals("a.asp?b=1&c=\"2\" <> d'e", m1.getAttribute("v"));
+		assertEquals("url", m1.getAttribute("k"));
+	}
+	
+	@Test
+	public void testMarkupEmptyAttributeNumericEntities() throws InvalidMarkupException {
+		m1 = new Markup("<tag k=\"name\" v=\"&#67;h&#xE2;teau &#x1F3F0;\"/>");
+		assertEquals("Ch\u00e2teau \uD83C\uDFF0", m1.getAttribute("v"));
+	}
+	
+	@Test
+	public void testMarkupEmptyAttributeUnknownEntities() throws InvalidMarkupException {
+		m1 = new Markup("<tag k=\"name\" v=\"A &unknown; &#xZZ; &amp\"/>");
+		assertEquals("A &unknown; &#xZZ; &amp", m1.getAttribute("v"));
+	}
+	
+	@Test
+	public void testMarkupEmptyAttributeUndefined() throws InvalidMarkupException {
+		m1 = new Markup("<tag k=\"name\" value=\"A\"/>");
+		assertNull(m1.getAttribute("v"));
+		assertFalse(m1.hasAttribute("v"));
+		assertFalse(m1.hasAttribute("valu"));
+		assertEquals("A", m1.getAttribute("value"));
+	}
+	
 	@Test(expected=InvalidMarkupException.class)
 	public void testMarkupEmptyAttributeSpacedInvalidChar() throws InvalidMarkupException {
 		m1 = new Markup("<node key=\"val\"ue\" />");
@@ -255,4 +304,177 @@ public class TestMarkup {
 		assertTrue(m1.hasAttribute("encoding"));
 		assertEquals("xml", m1.getName());
 	}
+	
+	@Test
+	public void testParseReuse() throws InvalidMarkupException {
+		m1 = new Markup("<node id=\"1\" lat=\"2.5\" lon=\"3\" visible=\"true\">");
+		m1.parse("<tag k=\"name\" v=\"A &amp; B\"/>");
+		assertEquals(Markup.EMPTY, m1.getType());
+		assertEquals("tag", m1.getName());
+		assertEquals("A & B", m1.getAttribute("v"));
+		assertFalse(m1.hasAttribute("id"));
+		assertFalse(m1.hasAttribute("lat"));
+	}
+	
+	@Test
+	public void testGetLongAttribute() throws InvalidMarkupException {
+		m1 = new Markup("<node id=\"9223372036854775807\" uid=\"-42\" version=\"3\" ref=\"1a\"/>");
+		assertEquals(Long.MAX_VALUE, m1.getLongAttribute("id"));
+		assertEquals(-42, m1.getLongAttribute("uid"));
+		assertEquals(3, m1.getIntAttribute("version"));
+		
+		try {
+			m1.getLongAttribute("ref");
+			fail("Invalid number accepted");
+		} catch(NumberFormatException e) {}
+		
+		try {
+			m1.getIntAttribute("id");
+			fail("Out of range int accepted");
+		} catch(NumberFormatException e) {}
+		
+		try {
+			m1.getLongAttribute("changeset");
+			fail("Undefined attribute accepted");
+		} catch(NumberFormatException e) {}
+	}
+	
+	@Test
+	public void testGetAttributePool() throws InvalidMarkupException {
+		StringPool pool = new StringPool();
+		m1 = new Markup("<tag k=\"highway\" v=\"residential\"/>");
+		String first = m1.getAttribute("v", pool);
+		m1.parse("<tag k=\"highway\" v=\"residential\"/>");
+		assertEquals("residential", first);
+		assertSame(first, m1.getAttribute("v", pool));
+		assertNull(m1.getAttribute("role", pool));
+		
+		m1.parse("<tag k=\"name\" v=\"R&amp;D\"/>");
+		assertEquals("R&D", m1.getAttribute("v", pool));
+	}
+	
+	@Test
+	public void testGetDoubleAttribute() throws InvalidMarkupException {
+		m1 = new Markup("<node lat=\"48.1172258\" lon=\"-2.1199346\" a=\"12\" b=\".5\" c=\"1e3\" d=\"0.12345678901234567\" e=\"-0\" f=\"1.2.3\"/>");
+		assertEquals(Double.parseDouble("48.1172258"), m1.getDoubleAttribute("lat"), 0);
+		assertEquals(Double.parseDouble("-2.1199346"), m1.getDoubleAttribute("lon"), 0);
+		assertEquals(12.0, m1.getDoubleAttribute("a"), 0);
+		assertEquals(0.5, m1.getDoubleAttribute("b"), 0);
+		assertEquals(1000.0, m1.getDoubleAttribute("c"), 0);
+		assertEquals(Double.parseDouble("0.12345678901234567"), m1.getDoubleAttribute("d"), 0);
+		assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(m1.getDoubleAttribute("e")));
+		
+		try {
+			m1.getDoubleAttribute("f");
+			fail("Invalid number accepted");
+		} catch(NumberFormatException e) {}
+		
+		try {
+			m1.getDoubleAttribute("g");
+			fail("Undefined attribute accepted");
+		} catch(NumberFormatException e) {}
+	}
+	
+	@Test
+	public void testGetTimestampAttribute() throws InvalidMarkupException {
+		m1 = new Markup("<node timestamp=\"2008-09-21T21:37:45Z\" a=\"2008-09-21T21:37:45\" b=\"2008-02-30T21:37:45Z\" c=\"2008-09-21T21:37:45+0\"/>");
+		assertEquals(1222033065000L, m1.getTimestampAttribute("timestamp"));
+		assertEquals(Timestamps.UNKNOWN, m1.getTimestampAttribute("a"));
+		assertEquals(Timestamps.UNKNOWN, m1.getTimestampAttribute("b"));
+		assertEquals(Timestamps.UNKNOWN, m1.getTimestampAttribute("c"));
+		assertEquals(Timestamps.UNKNOWN, m1.getTimestampAttribute("d"));
+		
+		byte[] bytes = "<node user=\"Sören\" timestamp=\"2012-07-20T09:43:19Z\"/>".getBytes(StandardCharsets.UTF_8);
+		m1.parse(bytes, 0, bytes.length);
+		assertEquals(1342777399000L, m1.getTimestampAttribute("timestamp"));
+	}
+	
+	@Test
+	public void testGetCoordinateAttribute() throws InvalidMarkupException {
+		m1 = new Markup("<node lat=\"48.1172258\" lon=\"-2.1199346\" a=\"12\" b=\"0.12345675\" c=\"-0.12345674999\" d=\"1e-3\" e=\"-180.0\" f=\"250\" g=\"1.2.3\" i=\"144115188075855872\" j=\"-2147483648.00000000001\" k=\"NaN\"/>");
+		assertEquals(481172258, m1.getCoordinateAttribute("lat"));
+		assertEquals(-21199346, m1.getCoordinateAttribute("lon"));
+		assertEquals(120000000, m1.getCoordinateAttribute("a"));
+		assertEquals(1234568, m1.getCoordinateAttribute("b"));
+		assertEquals(-1234567, m1.getCoordinateAttribute("c"));
+		assertEquals(10000, m1.getCoordinateAttribute("d"));
+		assertEquals(-1800000000, m1.getCoordinateAttribute("e"));
+		
+		try {
+			m1.getCoordinateAttribute("f");
+			fail("Out of range coordinate accepted");
+		} catch(NumberFormatException e) {}
+		
+		try {
+			m1.getCoordinateAttribute("i");
+			fail("Out of range 18 digits coordinate accepted");
+		} catch(NumberFormatException e) {}
+		
+		try {
+			m1.getCoordinateAttribute("j");
+			fail("Out of range long coordinate accepted");
+		} catch(NumberFormatException e) {}
+		
+		try {
+			m1.getCoordinateAttribute("k");
+			fail("NaN coordinate accepted");
+		} catch(NumberFormatException e) {}
+		
+		try {
+			m1.getCoordinateAttribute("g");
+			fail("Invalid number accepted");
+		} catch(NumberFormatException e) {}
+		
+		try {
+			m1.getCoordinateAttribute("h");
+			fail("Undefined attribute accepted");
+		} catch(NumberFormatException e) {}
+	}
+	
+	@Test
+	public void testParseBytes() throws InvalidMarkupException {
+		String[] lines = {
+			"  <node id='670135730' visible='true' lat='48.1172258' lon='-2.1199346'>",
+			"    <tag k='description' v='Borne en granit gravée IGN' />",
+			"    <tag k=\"name\" v=\"R&amp;D &#233;t&#xE9;\"/>",
+			"<tag k=\"a\" v=\"b\">Texte accentué</tag>",
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+			"  </node>"
+		};
+		Markup fromBytes = new Markup();
+		StringPool pool = new StringPool();
+		
+		for(String line : lines) {
+			m1 = new Markup(line);
+			
+			//Line in the middle of other bytes
+			byte[] encoded = line.getBytes(StandardCharsets.UTF_8);
+			byte[] bytes = new byte[encoded.length + 4];
+			Arrays.fill(bytes, (byte) 'x');
+			System.arraycopy(encoded, 0, bytes, 2, encoded.length);
+			fromBytes.parse(bytes, 2, encoded.length + 2);
+			
+			assertEquals(m1.getName(), fromBytes.getName());
+			assertEquals(m1.getType(), fromBytes.getType());
+			assertEquals(m1.getText(), fromBytes.getText());
+			for(String key : new String[] { "id", "visible", "k", "v", "version", "encoding" }) {
+				assertEquals(m1.getAttribute(key), fromBytes.getAttribute(key));
+				assertEquals(m1.getAttribute(key), fromBytes.getAttribute(key, pool));
+			}
+		}
+		
+		//Numbers are read from bytes
+		byte[] node = lines[0].getBytes(StandardCharsets.UTF_8);
+		fromBytes.parse(node, 0, node.length);
+		assertEquals(670135730L, fromBytes.getLongAttribute("id"));
+		assertEquals(48.1172258, fromBytes.getDoubleAttribute("lat"), 0);
+		assertEquals(-2.1199346, fromBytes.getDoubleAttribute("lon"), 0);
+		assertEquals(481172258, fromBytes.getCoordinateAttribute("lat"));
+	}
+	
+	@Test(expected=InvalidMarkupException.class)
+	public void testParseBytesInvalid() throws InvalidMarkupException {
+		byte[] bytes = "<tag k=\"a\" v=\"b\"".getBytes(StandardCharsets.UTF_8);
+		new Markup().parse(bytes, 0, bytes.length);
+	}
 }
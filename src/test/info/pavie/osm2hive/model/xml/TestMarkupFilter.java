@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Adrien PAVIE
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package info.pavie.osm2hive.model.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link MarkupFilter}.
+ * @author Adrien PAVIE
+ */
+public class TestMarkupFilter {
+//ATTRIBUTES
+	private MarkupFilter f1;
+
+//SETUP
+	@Before
+	public void setUp() throws Exception {
+		f1 = new MarkupFilter("way", "tag", "nd");
+	}
+
+//TESTS
+/*
+ * accepts()
+ */
+	@Test
+	public void testAcceptsStart() {
+		assertTrue(f1.accepts("<way id=\"26659127\" user=\"Masch\">"));
+		assertTrue(f1.accepts("  <nd ref=\"298884269\"/>"));
+		assertTrue(f1.accepts("\t<tag k=\"highway\" v=\"unclassified\"/>"));
+	}
+	
+	@Test
+	public void testAcceptsEnd() {
+		assertTrue(f1.accepts(" </way>"));
+		assertTrue(f1.accepts("</way >"));
+	}
+	
+	@Test
+	public void testAcceptsNameOnly() {
+		assertTrue(f1.accepts("<nd"));
+	}
+	
+	@Test
+	public void testRejectsOtherMarkups() {
+		assertFalse(f1.accepts(" <node id=\"298884269\" lat=\"54.0901746\" lon=\"12.2482632\"/>"));
+		assertFalse(f1.accepts(" </relation>"));
+		assertFalse(f1.accepts("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"));
+		assertFalse(f1.accepts("<ways>"));
+		assertFalse(f1.accepts("<wa>"));
+		assertFalse(f1.accepts("<Way>"));
+	}
+	
+	@Test
+	public void testRejectsNonMarkups() {
+		assertFalse(f1.accepts(""));
+		assertFalse(f1.accepts("   "));
+		assertFalse(f1.accepts("<"));
+		assertFalse(f1.accepts("</"));
+		assertFalse(f1.accepts("way"));
+		assertFalse(f1.accepts("< way>"));
+		assertFalse(f1.accepts("<éway>"));
+	}
+	
+	@Test
+	public void testAcceptsBytes() {
+		String[] lines = {
+			"<way id=\"26659127\" user=\"Masch\">", "  <nd ref=\"298884269\"/>", "\t<tag k=\"highway\" v=\"unclassified\"/>",
+			"</way>", "<nd", " <node id=\"298884269\"/>", "<ways>", "<wa>", "<Way>", "", "   ", "<", "</", "way", "< way>", "<éway>", "<tagé>"
+		};
+		
+		for(String line : lines) {
+			//Line between other bytes, which should not be read
+			byte[] encoded = line.getBytes(StandardCharsets.UTF_8);
+			byte[] bytes = new byte[encoded.length + 2];
+			bytes[0] = '<';
+			bytes[bytes.length - 1] = 'a';
+			System.arraycopy(encoded, 0, bytes, 1, encoded.length);
+			
+			assertEquals(line, f1.accepts(line), f1.accepts(bytes, 1, encoded.length + 1));
+		}
+	}
+}